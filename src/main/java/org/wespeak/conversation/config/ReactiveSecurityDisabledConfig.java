@@ -0,0 +1,23 @@
+package org.wespeak.conversation.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/** Security configuration when security is disabled (dev mode), for the reactive profile. */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "app.security.enabled", havingValue = "false")
+public class ReactiveSecurityDisabledConfig {
+
+  @Bean
+  public SecurityWebFilterChain filterChain(ServerHttpSecurity http) {
+    http.csrf(csrf -> csrf.disable()).authorizeExchange(auth -> auth.anyExchange().permitAll());
+    return http.build();
+  }
+}
@@ -7,6 +7,10 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 /**
  * Scheduling configuration that can be disabled via property. In tests, set
  * spring.task.scheduling.enabled=false to disable.
+ *
+ * <p>With spring.threads.virtual.enabled=true the auto-configured scheduler launches every
+ * {@code @Scheduled} run on its own virtual thread, so one job blocked on Mongo no longer delays
+ * the others behind the single scheduler thread.
  */
 @Configuration
 @EnableScheduling
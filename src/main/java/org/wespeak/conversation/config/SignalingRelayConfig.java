@@ -0,0 +1,48 @@
+package org.wespeak.conversation.config;
+
+import java.time.Duration;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.StringUtils;
+import org.wespeak.conversation.websocket.LoopbackSignalingRelay;
+import org.wespeak.conversation.websocket.MongoSignalingRelay;
+import org.wespeak.conversation.websocket.SignalingRelay;
+
+/**
+ * Selects how signaling reaches participants connected to other instances. {@code local} (the
+ * default) keeps every room on one node; {@code mongo} relays through a change stream so rooms can
+ * span instances without sticky routing.
+ */
+@Configuration
+public class SignalingRelayConfig {
+
+  @Value("${app.signaling.relay.node-id:}")
+  private String nodeId;
+
+  @Bean
+  @ConditionalOnProperty(
+      name = "app.signaling.relay.type",
+      havingValue = "local",
+      matchIfMissing = true)
+  public SignalingRelay loopbackSignalingRelay() {
+    return new LoopbackSignalingRelay(nodeId(), new LoopbackSignalingRelay.Bus());
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "close")
+  @ConditionalOnProperty(name = "app.signaling.relay.type", havingValue = "mongo")
+  public SignalingRelay mongoSignalingRelay(
+      MongoTemplate mongoTemplate,
+      @Value("${app.signaling.relay.retention-seconds:60}") long retentionSeconds,
+      @Value("${app.signaling.relay.outbox-capacity:10000}") int outboxCapacity) {
+    return new MongoSignalingRelay(
+        mongoTemplate, nodeId(), Duration.ofSeconds(retentionSeconds), outboxCapacity);
+  }
+
+  private String nodeId() {
+    return StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString();
+  }
+}
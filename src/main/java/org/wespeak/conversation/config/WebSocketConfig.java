@@ -1,13 +1,17 @@
 package org.wespeak.conversation.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.wespeak.conversation.websocket.SignalingCodecs;
 import org.wespeak.conversation.websocket.SignalingWebSocketHandler;
 
 @Configuration
 @EnableWebSocket
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WebSocketConfig implements WebSocketConfigurer {
 
   private final SignalingWebSocketHandler signalingHandler;
@@ -18,6 +22,14 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-    registry.addHandler(signalingHandler, "/ws/signaling").setAllowedOrigins("*");
+    // Clients may negotiate binary CBOR signaling; without a subprotocol they get text JSON
+    DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+    handshakeHandler.setSupportedProtocols(
+        SignalingCodecs.SUPPORTED_PROTOCOLS.toArray(String[]::new));
+
+    registry
+        .addHandler(signalingHandler, "/ws/signaling")
+        .setHandshakeHandler(handshakeHandler)
+        .setAllowedOrigins("*");
   }
 }
@@ -0,0 +1,24 @@
+package org.wespeak.conversation.controller;
+
+/** Helpers for answering conditional GETs. */
+final class ConditionalRequests {
+
+  private ConditionalRequests() {}
+
+  /** Whether an {@code If-None-Match} header matches the current entity tag. */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag) || tag.equals("*")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
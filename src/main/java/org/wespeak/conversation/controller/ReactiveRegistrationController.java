@@ -0,0 +1,67 @@
+package org.wespeak.conversation.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.security.Principal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.wespeak.conversation.dto.RegistrationDto;
+import org.wespeak.conversation.dto.RegistrationsResponse;
+import org.wespeak.conversation.service.ReactiveRegistrationService;
+import reactor.core.publisher.Mono;
+
+/** {@link RegistrationController} on WebFlux, for the reactive profile; same URLs and DTOs. */
+@RestController
+@RequestMapping("/api/v1/conversations")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Tag(name = "Registrations", description = "Registration management endpoints")
+@SecurityRequirement(name = "bearer-jwt")
+public class ReactiveRegistrationController {
+
+  private final ReactiveRegistrationService registrationService;
+
+  @PostMapping("/timeslots/{timeSlotId}/register")
+  @Operation(
+      summary = "Register for time slot",
+      description = "Register the current user for a time slot")
+  public Mono<ResponseEntity<RegistrationDto>> register(
+      @PathVariable String timeSlotId, Principal principal) {
+    String userId = getUserId(principal);
+    return registrationService
+        .register(timeSlotId, userId)
+        .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+  }
+
+  @DeleteMapping("/timeslots/{timeSlotId}/register")
+  @Operation(
+      summary = "Cancel registration",
+      description = "Cancel the current user's registration")
+  public Mono<ResponseEntity<Void>> unregister(
+      @PathVariable String timeSlotId, Principal principal) {
+    String userId = getUserId(principal);
+    return registrationService
+        .unregister(timeSlotId, userId)
+        .then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+  }
+
+  @GetMapping("/registrations")
+  @Operation(
+      summary = "Get my registrations",
+      description = "Get all registrations for the current user")
+  public Mono<ResponseEntity<RegistrationsResponse>> getMyRegistrations(Principal principal) {
+    String userId = getUserId(principal);
+    return registrationService.getUserRegistrations(userId).map(ResponseEntity::ok);
+  }
+
+  private String getUserId(Principal principal) {
+    if (principal == null) {
+      return "dev-user-001";
+    }
+    return principal.getName();
+  }
+}
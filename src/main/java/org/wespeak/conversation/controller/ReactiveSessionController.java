@@ -0,0 +1,101 @@
+package org.wespeak.conversation.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.security.Principal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.wespeak.conversation.dto.*;
+import org.wespeak.conversation.service.ReactiveSessionService;
+import org.wespeak.conversation.service.SessionSnapshots;
+import reactor.core.publisher.Mono;
+
+/** {@link SessionController} on WebFlux, for the reactive profile; same URLs and DTOs. */
+@RestController
+@RequestMapping("/api/v1/conversations/sessions")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Tag(name = "Sessions", description = "Session management endpoints")
+@SecurityRequirement(name = "bearer-jwt")
+public class ReactiveSessionController {
+
+  private final ReactiveSessionService sessionService;
+
+  @PostMapping("/join")
+  @Operation(summary = "Join session", description = "Join a session for a time slot")
+  public Mono<ResponseEntity<SessionDto>> joinSession(
+      @Valid @RequestBody JoinSessionRequest request, Principal principal) {
+    String userId = getUserId(principal);
+    return sessionService.joinSession(userId, request).map(ResponseEntity::ok);
+  }
+
+  @GetMapping("/current")
+  @Operation(
+      summary = "Get current session",
+      description =
+          "Get the user's current active session. Answers 304 to a matching If-None-Match; with"
+              + " sinceVersion, waits until the session is past that version or the poll times out")
+  public Mono<ResponseEntity<SessionDto>> getCurrentSession(
+      @RequestParam(required = false) Long sinceVersion,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      Principal principal) {
+    String userId = getUserId(principal);
+    Mono<SessionSnapshots.Snapshot> snapshot =
+        sinceVersion == null
+            ? sessionService.getCurrentSession(userId)
+            : sessionService.awaitCurrentSession(userId, sinceVersion);
+    return snapshot.map(current -> toResponse(current, ifNoneMatch));
+  }
+
+  @PatchMapping("/current/media")
+  @Operation(summary = "Update media state", description = "Update camera/microphone state")
+  public Mono<ResponseEntity<ParticipantDto>> updateMediaState(
+      @Valid @RequestBody MediaStateRequest request, Principal principal) {
+    String userId = getUserId(principal);
+    return sessionService.updateMediaState(userId, request).map(ResponseEntity::ok);
+  }
+
+  @PostMapping("/current/leave")
+  @Operation(summary = "Leave session", description = "Leave the current session")
+  public Mono<ResponseEntity<Void>> leaveSession(Principal principal) {
+    String userId = getUserId(principal);
+    return sessionService
+        .leaveSession(userId)
+        .then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+  }
+
+  @GetMapping("/history")
+  @Operation(
+      summary = "Get session history",
+      description = "Get user's session history; pass nextCursor back as cursor for the next page")
+  public Mono<ResponseEntity<SessionHistoryResponse>> getSessionHistory(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "10") int size,
+      Principal principal) {
+    String userId = getUserId(principal);
+    return sessionService.getSessionHistory(userId, cursor, page, size).map(ResponseEntity::ok);
+  }
+
+  private ResponseEntity<SessionDto> toResponse(
+      SessionSnapshots.Snapshot snapshot, String ifNoneMatch) {
+    String etag = snapshot.etag();
+    if (ConditionalRequests.matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    return ResponseEntity.ok().eTag(etag).body(snapshot.session());
+  }
+
+  private String getUserId(Principal principal) {
+    if (principal == null) {
+      return "dev-user-001";
+    }
+    return principal.getName();
+  }
+}
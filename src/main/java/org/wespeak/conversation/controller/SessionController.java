@@ -5,14 +5,20 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.wespeak.conversation.dto.*;
 import org.wespeak.conversation.service.SessionService;
+import org.wespeak.conversation.service.SessionSnapshots;
 
 @RestController
 @RequestMapping("/api/v1/conversations/sessions")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 @Tag(name = "Sessions", description = "Session management endpoints")
 @SecurityRequirement(name = "bearer-jwt")
@@ -30,11 +36,23 @@ public class SessionController {
   }
 
   @GetMapping("/current")
-  @Operation(summary = "Get current session", description = "Get the user's current active session")
-  public ResponseEntity<SessionDto> getCurrentSession(Principal principal) {
+  @Operation(
+      summary = "Get current session",
+      description =
+          "Get the user's current active session. Answers 304 to a matching If-None-Match; with"
+              + " sinceVersion, waits until the session is past that version or the poll times out")
+  public CompletableFuture<ResponseEntity<SessionDto>> getCurrentSession(
+      @RequestParam(required = false) Long sinceVersion,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      Principal principal) {
     String userId = getUserId(principal);
-    SessionDto response = sessionService.getCurrentSession(userId);
-    return ResponseEntity.ok(response);
+    if (sinceVersion == null) {
+      return CompletableFuture.completedFuture(
+          toResponse(sessionService.getCurrentSession(userId), ifNoneMatch));
+    }
+    return sessionService
+        .awaitCurrentSession(userId, sinceVersion)
+        .thenApply(snapshot -> toResponse(snapshot, ifNoneMatch));
   }
 
   @PatchMapping("/current/media")
@@ -55,16 +73,29 @@ public class SessionController {
   }
 
   @GetMapping("/history")
-  @Operation(summary = "Get session history", description = "Get user's session history")
+  @Operation(
+      summary = "Get session history",
+      description = "Get user's session history; pass nextCursor back as cursor for the next page")
   public ResponseEntity<SessionHistoryResponse> getSessionHistory(
+      @RequestParam(required = false) String cursor,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
       Principal principal) {
     String userId = getUserId(principal);
-    SessionHistoryResponse response = sessionService.getSessionHistory(userId, page, size);
+    SessionHistoryResponse response =
+        sessionService.getSessionHistory(userId, cursor, page, size);
     return ResponseEntity.ok(response);
   }
 
+  private ResponseEntity<SessionDto> toResponse(
+      SessionSnapshots.Snapshot snapshot, String ifNoneMatch) {
+    String etag = snapshot.etag();
+    if (ConditionalRequests.matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    return ResponseEntity.ok().eTag(etag).body(snapshot.session());
+  }
+
   private String getUserId(Principal principal) {
     if (principal == null) {
       return "dev-user-001";
@@ -1,11 +1,17 @@
 package org.wespeak.conversation.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.time.Instant;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,11 +21,19 @@ import org.wespeak.conversation.service.TimeSlotService;
 
 @RestController
 @RequestMapping("/api/v1/conversations/timeslots")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 @Tag(name = "TimeSlots", description = "Time slot management endpoints")
 public class TimeSlotController {
 
   private final TimeSlotService timeSlotService;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${app.conversation.catalog.max-age-seconds:5}")
+  private long maxAgeSeconds;
+
+  @Value("${app.conversation.catalog.stale-while-revalidate-seconds:30}")
+  private long staleWhileRevalidateSeconds;
 
   @GetMapping
   @Operation(summary = "List time slots", description = "Get available time slots with filters")
@@ -31,19 +45,52 @@ public class TimeSlotController {
       @Parameter(description = "Start date filter") @RequestParam(required = false)
           Instant fromDate,
       @Parameter(description = "End date filter") @RequestParam(required = false) Instant toDate,
-      @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "20") int size) {
+      @Parameter(description = "nextCursor of the previous page") @RequestParam(required = false)
+          String cursor,
+      @Parameter(description = "Page number, only used without a cursor")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @RequestParam(defaultValue = "20") int size,
+      @Parameter(description = "Also count all matching slots")
+          @RequestParam(defaultValue = "false")
+          boolean includeTotal,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-    TimeSlotsResponse response =
-        timeSlotService.findTimeSlots(language, level, fromDate, toDate, page, size);
-    return ResponseEntity.ok(response);
+    // Answered from the catalog version before the page query runs
+    String etag =
+        timeSlotService.catalogTag(
+            language, level, fromDate, toDate, cursor, page, size, includeTotal);
+    if (notModified(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(etag)
+          .cacheControl(cacheControl())
+          .build();
+    }
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(cacheControl());
+    if (etag != null) {
+      ok.eTag(etag);
+    }
+    return ok.body(
+        timeSlotService.findTimeSlots(
+            language, level, fromDate, toDate, cursor, page, size, includeTotal));
   }
 
   @GetMapping("/{id}")
   @Operation(summary = "Get time slot", description = "Get a time slot by ID")
-  public ResponseEntity<TimeSlotDto> getTimeSlot(@PathVariable String id) {
-    TimeSlotDto response = timeSlotService.findById(id);
-    return ResponseEntity.ok(response);
+  public ResponseEntity<TimeSlotDto> getTimeSlot(
+      @PathVariable String id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    TimeSlotService.CatalogEntry entry = timeSlotService.findEntry(id);
+    if (notModified(ifNoneMatch, entry.etag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(entry.etag())
+          .cacheControl(cacheControl())
+          .build();
+    }
+    return ResponseEntity.ok()
+        .eTag(entry.etag())
+        .cacheControl(cacheControl())
+        .body(timeSlotService.toResponse(entry));
   }
 
   @PostMapping
@@ -70,4 +117,20 @@ public class TimeSlotController {
     timeSlotService.delete(id);
     return ResponseEntity.noContent().build();
   }
+
+  /** Public and briefly fresh; caches may serve it stale while they revalidate. */
+  private CacheControl cacheControl() {
+    return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+        .cachePublic()
+        .staleWhileRevalidate(Duration.ofSeconds(staleWhileRevalidateSeconds));
+  }
+
+  /** Whether a conditional catalog request can be answered 304, counted by outcome. */
+  private boolean notModified(String ifNoneMatch, String etag) {
+    boolean matches = etag != null && ConditionalRequests.matches(ifNoneMatch, etag);
+    meterRegistry
+        .counter("catalog.responses", "result", matches ? "not_modified" : "full")
+        .increment();
+    return matches;
+  }
 }
@@ -15,6 +15,8 @@ import org.wespeak.conversation.entity.TimeSlot;
 @AllArgsConstructor
 public class SessionDto {
   private String id;
+  /** Increases with every change; pass it back as sinceVersion to wait for the next one */
+  private Long version;
   private String timeSlotId;
   private String targetLanguageCode;
   private TimeSlot.Level level;
@@ -15,6 +15,9 @@ public class SessionHistoryResponse {
   private Long total;
   private Boolean hasMore;
 
+  /** Pass as {@code cursor} to get the next page; null on the last page */
+  private String nextCursor;
+
   @Data
   @Builder
   @NoArgsConstructor
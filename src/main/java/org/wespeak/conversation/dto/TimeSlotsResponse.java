@@ -12,6 +12,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class TimeSlotsResponse {
   private List<TimeSlotDto> timeslots;
+  // Only counted when the request asks for it
   private Long total;
   private Boolean hasMore;
+  // Pass back as ?cursor= for the next page; null on the last page
+  private String nextCursor;
 }
@@ -17,6 +17,18 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @AllArgsConstructor
 @Document(collection = "participants")
 @CompoundIndex(name = "idx_participant_user_status", def = "{'userId': 1, 'status': 1}")
+@CompoundIndex(
+    name = "idx_participant_user_joined",
+    def = "{'userId': 1, 'joinedAt': -1, '_id': -1}")
+@CompoundIndex(
+    name = "idx_participant_session_user",
+    def = "{'sessionId': 1, 'userId': 1}",
+    unique = true)
+@CompoundIndex(
+    name = "idx_participant_user_connected",
+    def = "{'userId': 1}",
+    unique = true,
+    partialFilter = "{'status': 'connected'}")
 public class Participant {
 
   @Id private String id;
@@ -0,0 +1,32 @@
+package org.wespeak.conversation.entity;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/** SchedulerLease entity - Which node runs a scheduled job, and until when. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "scheduler_leases")
+public class SchedulerLease {
+
+  /** Job name */
+  @Id private String id;
+
+  /** Node holding the lease */
+  private String owner;
+
+  /** Fencing token, incremented every time the lease changes hands */
+  private long token;
+
+  /** The lease is free to take from this instant; abandoned leases are removed a day later */
+  @Indexed(name = "idx_lease_expires", expireAfter = "1d")
+  private Instant expiresAt;
+}
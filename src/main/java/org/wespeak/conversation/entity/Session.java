@@ -19,12 +19,14 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @AllArgsConstructor
 @Document(collection = "sessions")
 @CompoundIndex(name = "idx_session_status_lang", def = "{'status': 1, 'targetLanguageCode': 1}")
+@CompoundIndex(name = "idx_session_status_end", def = "{'status': 1, 'endTime': 1}")
 public class Session {
 
   @Id private String id;
 
-  /** Reference to the time slot */
-  @Indexed private String timeSlotId;
+  /** Reference to the time slot. A slot has exactly one session. */
+  @Indexed(unique = true)
+  private String timeSlotId;
 
   /** Target language being practiced */
   private String targetLanguageCode;
@@ -41,9 +43,21 @@ public class Session {
   /** End time */
   private Instant endedAt;
 
+  /** Participants currently connected, kept in step with joins and leaves */
+  @Builder.Default private Integer connectedCount = 0;
+
+  /** Scheduled end (end of the time slot); the session is ended at this time */
+  private Instant endTime;
+
+  /** Time after which nobody can join (slot start plus grace period) */
+  private Instant joinDeadline;
+
   /** Whether recording is enabled (at least 1 participant consented) */
   @Builder.Default private Boolean recordingEnabled = false;
 
+  /** Bumped by every change clients can see (seats, status, media), to detect stale snapshots */
+  @Builder.Default private Long version = 0L;
+
   /** S3 URL of the recording */
   private String recordingUrl;
 
@@ -17,10 +17,26 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "timeslots")
+// A language and level has at most one slot at a given start time
 @CompoundIndex(
     name = "idx_timeslot_lang_level_time",
-    def = "{'targetLanguageCode': 1, 'level': 1, 'startTime': 1}")
+    def = "{'targetLanguageCode': 1, 'level': 1, 'startTime': 1}",
+    unique = true)
 @CompoundIndex(name = "idx_timeslot_time_active", def = "{'startTime': 1, 'isActive': 1}")
+@CompoundIndex(name = "idx_timeslot_active_recurrence", def = "{'isActive': 1, 'recurrence': 1}")
+// Keyset pages of the catalog, ordered by (startTime, id) for each filter combination
+@CompoundIndex(
+    name = "idx_timeslot_lang_level_active_time_id",
+    def = "{'targetLanguageCode': 1, 'level': 1, 'isActive': 1, 'startTime': 1, '_id': 1}")
+@CompoundIndex(
+    name = "idx_timeslot_lang_active_time_id",
+    def = "{'targetLanguageCode': 1, 'isActive': 1, 'startTime': 1, '_id': 1}")
+@CompoundIndex(
+    name = "idx_timeslot_level_active_time_id",
+    def = "{'level': 1, 'isActive': 1, 'startTime': 1, '_id': 1}")
+@CompoundIndex(
+    name = "idx_timeslot_active_time_id",
+    def = "{'isActive': 1, 'startTime': 1, '_id': 1}")
 public class TimeSlot {
 
   @Id private String id;
@@ -43,6 +59,12 @@ public class TimeSlot {
   /** Minimum participants to start (default: 2) */
   @Builder.Default private Integer minParticipants = 2;
 
+  /**
+   * Seats taken: registered and attended registrations. Kept by atomic increments on register,
+   * unregister and no-show, and repaired by {@code SeatCountReconciler} if it drifts.
+   */
+  @Builder.Default private Integer registeredCount = 0;
+
   /** Recurrence pattern */
   private Recurrence recurrence;
 
@@ -3,13 +3,17 @@ package org.wespeak.conversation.exception;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
 
 @Slf4j
 @RestControllerAdvice
@@ -51,10 +55,27 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(status).body(ErrorResponse.of(ex.getCode(), ex.getMessage()));
   }
 
+  @ExceptionHandler(TimeSlotException.class)
+  public ResponseEntity<ErrorResponse> handleTimeSlot(TimeSlotException ex) {
+    log.warn("Time slot error: {}", ex.getMessage());
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+        .body(ErrorResponse.of(ex.getCode(), ex.getMessage()));
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException ex) {
+    return validationError(ex.getBindingResult());
+  }
+
+  /** Invalid request body on the reactive stack. */
+  @ExceptionHandler(WebExchangeBindException.class)
+  public ResponseEntity<ErrorResponse> handleValidation(WebExchangeBindException ex) {
+    return validationError(ex.getBindingResult());
+  }
+
+  private ResponseEntity<ErrorResponse> validationError(BindingResult bindingResult) {
     Map<String, Object> errors = new HashMap<>();
-    ex.getBindingResult()
+    bindingResult
         .getAllErrors()
         .forEach(
             error -> {
@@ -73,6 +94,21 @@ public class GlobalExceptionHandler {
         .body(ErrorResponse.of("MISSING_PARAMETER", ex.getMessage()));
   }
 
+  /** Missing or malformed parameters and unreadable bodies on the reactive stack. */
+  @ExceptionHandler(ServerWebInputException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidInput(ServerWebInputException ex) {
+    log.warn("Invalid request: {}", ex.getReason());
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+        .body(ErrorResponse.of("INVALID_PARAMETER", ex.getReason()));
+  }
+
+  @ExceptionHandler(DuplicateKeyException.class)
+  public ResponseEntity<ErrorResponse> handleDuplicateKey(DuplicateKeyException ex) {
+    log.warn("Duplicate resource: {}", ex.getMessage());
+    return ResponseEntity.status(HttpStatus.CONFLICT)
+        .body(ErrorResponse.of("ALREADY_EXISTS", "A resource with the same key already exists"));
+  }
+
   @ExceptionHandler(Exception.class)
   public ResponseEntity<ErrorResponse> handleGeneral(Exception ex) {
     log.error("Unexpected error", ex);
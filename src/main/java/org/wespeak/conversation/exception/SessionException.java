@@ -39,4 +39,8 @@ public class SessionException extends RuntimeException {
   public static SessionException noActiveSession() {
     return new SessionException("NO_ACTIVE_SESSION", "You don't have an active session");
   }
+
+  public static SessionException invalidCursor() {
+    return new SessionException("INVALID_CURSOR", "The history cursor is not valid");
+  }
 }
@@ -0,0 +1,17 @@
+package org.wespeak.conversation.exception;
+
+import lombok.Getter;
+
+@Getter
+public class TimeSlotException extends RuntimeException {
+  private final String code;
+
+  public TimeSlotException(String code, String message) {
+    super(message);
+    this.code = code;
+  }
+
+  public static TimeSlotException invalidCursor() {
+    return new TimeSlotException("INVALID_CURSOR", "The catalog cursor is not valid");
+  }
+}
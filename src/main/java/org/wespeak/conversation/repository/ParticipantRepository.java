@@ -1,19 +1,22 @@
 package org.wespeak.conversation.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import org.wespeak.conversation.entity.Participant;
 
 @Repository
-public interface ParticipantRepository extends MongoRepository<Participant, String> {
+public interface ParticipantRepository
+    extends MongoRepository<Participant, String>, ParticipantRepositoryCustom {
 
   /** Find all participants in a session. */
   List<Participant> findBySessionId(String sessionId);
 
+  /** Find all participants of several sessions. */
+  List<Participant> findBySessionIdIn(Collection<String> sessionIds);
+
   /** Find active participants in a session. */
   List<Participant> findBySessionIdAndStatusNot(String sessionId, Participant.Status status);
 
@@ -32,8 +35,8 @@ public interface ParticipantRepository extends MongoRepository<Participant, Stri
   /** Find participants who consented to recording. */
   List<Participant> findBySessionIdAndRecordingConsent(String sessionId, Boolean consent);
 
-  /** Find session history for a user. */
-  Page<Participant> findByUserIdOrderByJoinedAtDesc(String userId, Pageable pageable);
+  /** Count a user's participations that have a join time, i.e. their history size. */
+  long countByUserIdAndJoinedAtNotNull(String userId);
 
   /** Find current active session for a user. */
   Optional<Participant> findByUserIdAndStatusNot(String userId, Participant.Status status);
@@ -0,0 +1,50 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.wespeak.conversation.entity.Participant;
+
+/** Atomic participant updates that derived queries cannot express. */
+public interface ParticipantRepositoryCustom {
+
+  /**
+   * Create the participant or reconnect a disconnected one, in one upsert. Throws {@link
+   * org.springframework.dao.DuplicateKeyException} if the user is already connected to this or any
+   * other session.
+   */
+  Participant upsertConnected(
+      String sessionId,
+      String userId,
+      String displayName,
+      boolean recordingConsent,
+      Instant joinedAt);
+
+  /**
+   * A page of a user's participations, newest first, ordered by {@code (joinedAt, id)}. With a
+   * {@code beforeJoinedAt}/{@code beforeId} key the page starts right after that row, using the
+   * index instead of skipping; {@code skip} is only for callers paging by number.
+   */
+  List<Participant> findHistory(
+      String userId, Instant beforeJoinedAt, String beforeId, int skip, int limit);
+
+  /**
+   * Connected participants of each of the given sessions, counted in one aggregation. Sessions
+   * with nobody connected are absent from the result.
+   */
+  Map<String, Integer> countConnected(Collection<String> sessionIds);
+
+  /**
+   * Disconnect a participant unless already disconnected. Returns the participant as it was
+   * before, or empty if there was nothing to disconnect.
+   */
+  Optional<Participant> markDisconnected(String sessionId, String userId, Instant leftAt);
+
+  /**
+   * Disconnect everyone still in a session, stamping {@code leftAt}, in one multi-document update.
+   * Returns how many participants were disconnected.
+   */
+  long disconnectAll(String sessionId, Instant leftAt);
+}
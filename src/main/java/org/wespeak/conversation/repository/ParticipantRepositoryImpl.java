@@ -0,0 +1,141 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.Participant;
+
+/** Queries are built by static methods that {@link ReactiveParticipantRepositoryImpl} reuses. */
+@RequiredArgsConstructor
+public class ParticipantRepositoryImpl implements ParticipantRepositoryCustom {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public Participant upsertConnected(
+      String sessionId,
+      String userId,
+      String displayName,
+      boolean recordingConsent,
+      Instant joinedAt) {
+    return mongoTemplate.findAndModify(
+        reconnectable(sessionId, userId),
+        connected(displayName, recordingConsent, joinedAt),
+        FindAndModifyOptions.options().upsert(true).returnNew(true),
+        Participant.class);
+  }
+
+  static Query reconnectable(String sessionId, String userId) {
+    // A connected participant does not match, so the upsert hits the unique indexes instead
+    return query(
+        where("sessionId")
+            .is(sessionId)
+            .and("userId")
+            .is(userId)
+            .and("status")
+            .ne(Participant.Status.connected));
+  }
+
+  static Update connected(String displayName, boolean recordingConsent, Instant joinedAt) {
+    return new Update()
+        .set("status", Participant.Status.connected)
+        .set("joinedAt", joinedAt)
+        .set("recordingConsent", recordingConsent)
+        .setOnInsert("displayName", displayName)
+        .setOnInsert("cameraEnabled", true)
+        .setOnInsert("micEnabled", true);
+  }
+
+  @Override
+  public List<Participant> findHistory(
+      String userId, Instant beforeJoinedAt, String beforeId, int skip, int limit) {
+    return mongoTemplate.find(
+        history(userId, beforeJoinedAt, beforeId, skip, limit), Participant.class);
+  }
+
+  static Query history(
+      String userId, Instant beforeJoinedAt, String beforeId, int skip, int limit) {
+    Criteria criteria = where("userId").is(userId).and("joinedAt").ne(null);
+    if (beforeJoinedAt != null) {
+      criteria.orOperator(
+          where("joinedAt").lt(beforeJoinedAt),
+          where("joinedAt").is(beforeJoinedAt).and("id").lt(beforeId));
+    }
+
+    return query(criteria)
+        .with(Sort.by(Sort.Direction.DESC, "joinedAt", "id"))
+        .skip(skip)
+        .limit(limit);
+  }
+
+  @Override
+  public Map<String, Integer> countConnected(Collection<String> sessionIds) {
+    Map<String, Integer> counts = new HashMap<>();
+    if (sessionIds.isEmpty()) {
+      return counts;
+    }
+    mongoTemplate
+        .aggregate(connectedBySession(sessionIds), Participant.class, Document.class)
+        .forEach(row -> counts.put(row.getString("_id"), row.getInteger("connected")));
+    return counts;
+  }
+
+  static Aggregation connectedBySession(Collection<String> sessionIds) {
+    return newAggregation(
+        match(where("sessionId").in(sessionIds).and("status").is(Participant.Status.connected)),
+        group("sessionId").count().as("connected"));
+  }
+
+  @Override
+  public Optional<Participant> markDisconnected(String sessionId, String userId, Instant leftAt) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            notDisconnected(sessionId, userId),
+            disconnected(leftAt),
+            FindAndModifyOptions.options().returnNew(false),
+            Participant.class));
+  }
+
+  static Query notDisconnected(String sessionId, String userId) {
+    return query(
+        where("sessionId")
+            .is(sessionId)
+            .and("userId")
+            .is(userId)
+            .and("status")
+            .ne(Participant.Status.disconnected));
+  }
+
+  static Update disconnected(Instant leftAt) {
+    return new Update().set("status", Participant.Status.disconnected).set("leftAt", leftAt);
+  }
+
+  @Override
+  public long disconnectAll(String sessionId, Instant leftAt) {
+    return mongoTemplate
+        .updateMulti(
+            query(
+                where("sessionId").is(sessionId).and("status").ne(Participant.Status.disconnected)),
+            disconnected(leftAt),
+            Participant.class)
+        .getModifiedCount();
+  }
+}
@@ -0,0 +1,22 @@
+package org.wespeak.conversation.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import org.wespeak.conversation.entity.Participant;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of {@link ParticipantRepository} for the reactive profile. */
+@Repository
+public interface ReactiveParticipantRepository
+    extends ReactiveMongoRepository<Participant, String>, ReactiveParticipantRepositoryCustom {
+
+  /** Find active participants in a session. */
+  Flux<Participant> findBySessionIdAndStatusNot(String sessionId, Participant.Status status);
+
+  /** Count a user's participations that have a join time, i.e. their history size. */
+  Mono<Long> countByUserIdAndJoinedAtNotNull(String userId);
+
+  /** Find current active session for a user. */
+  Mono<Participant> findByUserIdAndStatusNot(String userId, Participant.Status status);
+}
@@ -0,0 +1,36 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import org.wespeak.conversation.entity.Participant;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** The atomic participant updates of {@link ParticipantRepositoryCustom} that sessions need. */
+public interface ReactiveParticipantRepositoryCustom {
+
+  /**
+   * See {@link ParticipantRepositoryCustom#upsertConnected}. Fails with {@link
+   * org.springframework.dao.DuplicateKeyException} if the user is already connected.
+   */
+  Mono<Participant> upsertConnected(
+      String sessionId,
+      String userId,
+      String displayName,
+      boolean recordingConsent,
+      Instant joinedAt);
+
+  /** See {@link ParticipantRepositoryCustom#findHistory}. */
+  Flux<Participant> findHistory(
+      String userId, Instant beforeJoinedAt, String beforeId, int skip, int limit);
+
+  /** See {@link ParticipantRepositoryCustom#countConnected}. */
+  Mono<Map<String, Integer>> countConnected(Collection<String> sessionIds);
+
+  /**
+   * See {@link ParticipantRepositoryCustom#markDisconnected}. Completes empty if there was nothing
+   * to disconnect.
+   */
+  Mono<Participant> markDisconnected(String sessionId, String userId, Instant leftAt);
+}
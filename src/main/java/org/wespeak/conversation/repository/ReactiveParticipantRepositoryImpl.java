@@ -0,0 +1,62 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.wespeak.conversation.entity.Participant;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveParticipantRepositoryImpl implements ReactiveParticipantRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Mono<Participant> upsertConnected(
+      String sessionId,
+      String userId,
+      String displayName,
+      boolean recordingConsent,
+      Instant joinedAt) {
+    return mongoTemplate.findAndModify(
+        ParticipantRepositoryImpl.reconnectable(sessionId, userId),
+        ParticipantRepositoryImpl.connected(displayName, recordingConsent, joinedAt),
+        FindAndModifyOptions.options().upsert(true).returnNew(true),
+        Participant.class);
+  }
+
+  @Override
+  public Flux<Participant> findHistory(
+      String userId, Instant beforeJoinedAt, String beforeId, int skip, int limit) {
+    return mongoTemplate.find(
+        ParticipantRepositoryImpl.history(userId, beforeJoinedAt, beforeId, skip, limit),
+        Participant.class);
+  }
+
+  @Override
+  public Mono<Map<String, Integer>> countConnected(Collection<String> sessionIds) {
+    if (sessionIds.isEmpty()) {
+      return Mono.just(Map.of());
+    }
+    return mongoTemplate
+        .aggregate(
+            ParticipantRepositoryImpl.connectedBySession(sessionIds),
+            Participant.class,
+            Document.class)
+        .collectMap(row -> row.getString("_id"), row -> row.getInteger("connected"));
+  }
+
+  @Override
+  public Mono<Participant> markDisconnected(String sessionId, String userId, Instant leftAt) {
+    return mongoTemplate.findAndModify(
+        ParticipantRepositoryImpl.notDisconnected(sessionId, userId),
+        ParticipantRepositoryImpl.disconnected(leftAt),
+        FindAndModifyOptions.options().returnNew(false),
+        Participant.class);
+  }
+}
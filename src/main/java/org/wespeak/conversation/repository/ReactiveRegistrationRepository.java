@@ -0,0 +1,26 @@
+package org.wespeak.conversation.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import org.wespeak.conversation.entity.Registration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of {@link RegistrationRepository} for the reactive profile. */
+@Repository
+public interface ReactiveRegistrationRepository
+    extends ReactiveMongoRepository<Registration, String>, ReactiveRegistrationRepositoryCustom {
+
+  /** Find registration for a user and time slot. */
+  Mono<Registration> findByTimeSlotIdAndUserId(String timeSlotId, String userId);
+
+  /** Count active registrations for a user. */
+  Mono<Long> countByUserIdAndStatus(String userId, Registration.Status status);
+
+  /** Check if user is registered for a time slot. */
+  Mono<Boolean> existsByTimeSlotIdAndUserIdAndStatus(
+      String timeSlotId, String userId, Registration.Status status);
+
+  /** Find all registrations for a user (any status). */
+  Flux<Registration> findByUserIdOrderByRegisteredAtDesc(String userId);
+}
@@ -0,0 +1,12 @@
+package org.wespeak.conversation.repository;
+
+import org.wespeak.conversation.entity.Registration;
+import reactor.core.publisher.Mono;
+
+/** The conditional registration update of {@link RegistrationRepositoryCustom} joins need. */
+public interface ReactiveRegistrationRepositoryCustom {
+
+  /** See {@link RegistrationRepositoryCustom#transition}. */
+  Mono<Boolean> transition(
+      String timeSlotId, String userId, Registration.Status from, Registration.Status to);
+}
@@ -0,0 +1,23 @@
+package org.wespeak.conversation.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.wespeak.conversation.entity.Registration;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveRegistrationRepositoryImpl implements ReactiveRegistrationRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Mono<Boolean> transition(
+      String timeSlotId, String userId, Registration.Status from, Registration.Status to) {
+    return mongoTemplate
+        .updateFirst(
+            RegistrationRepositoryImpl.inStatus(timeSlotId, userId, from),
+            RegistrationRepositoryImpl.movedTo(to),
+            Registration.class)
+        .map(result -> result.getModifiedCount() > 0);
+  }
+}
@@ -0,0 +1,15 @@
+package org.wespeak.conversation.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import org.wespeak.conversation.entity.Session;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of {@link SessionRepository} for the reactive profile. */
+@Repository
+public interface ReactiveSessionRepository
+    extends ReactiveMongoRepository<Session, String>, ReactiveSessionRepositoryCustom {
+
+  /** Find session by time slot. */
+  Mono<Session> findByTimeSlotId(String timeSlotId);
+}
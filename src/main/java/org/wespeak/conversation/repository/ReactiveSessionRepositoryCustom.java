@@ -0,0 +1,24 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import org.wespeak.conversation.entity.Session;
+import reactor.core.publisher.Mono;
+
+/** The atomic session updates of {@link SessionRepositoryCustom} that joins and leaves need. */
+public interface ReactiveSessionRepositoryCustom {
+
+  /** See {@link SessionRepositoryCustom#createIfAbsent}. */
+  Mono<Session> createIfAbsent(Session session);
+
+  /**
+   * See {@link SessionRepositoryCustom#reserveSeat}. Completes empty if the join is not admitted.
+   */
+  Mono<Session> reserveSeat(
+      String timeSlotId, Instant now, int maxParticipants, boolean recordingConsent);
+
+  /** See {@link SessionRepositoryCustom#releaseSeat}. */
+  Mono<Session> releaseSeat(String sessionId);
+
+  /** See {@link SessionRepositoryCustom#findVersion}. */
+  Mono<Long> findVersion(String sessionId);
+}
@@ -0,0 +1,59 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.wespeak.conversation.entity.Session;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveSessionRepositoryImpl implements ReactiveSessionRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Mono<Session> createIfAbsent(Session session) {
+    Query bySlot = query(where("timeSlotId").is(session.getTimeSlotId()));
+    return mongoTemplate
+        .findAndModify(
+            bySlot,
+            SessionRepositoryImpl.insertOnly(session, Instant.now()),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            Session.class)
+        // Lost an insert race the server did not retry; the winner's session is there now
+        .onErrorResume(
+            DuplicateKeyException.class, e -> mongoTemplate.findOne(bySlot, Session.class));
+  }
+
+  @Override
+  public Mono<Session> reserveSeat(
+      String timeSlotId, Instant now, int maxParticipants, boolean recordingConsent) {
+    return mongoTemplate.findAndModify(
+        SessionRepositoryImpl.admissible(timeSlotId, now, maxParticipants),
+        SessionRepositoryImpl.seatTaken(now, recordingConsent),
+        FindAndModifyOptions.options().returnNew(true),
+        Session.class);
+  }
+
+  @Override
+  public Mono<Session> releaseSeat(String sessionId) {
+    return mongoTemplate.findAndModify(
+        SessionRepositoryImpl.seatHeld(sessionId),
+        SessionRepositoryImpl.seatReleased(Instant.now()),
+        FindAndModifyOptions.options().returnNew(true),
+        Session.class);
+  }
+
+  @Override
+  public Mono<Long> findVersion(String sessionId) {
+    return mongoTemplate
+        .findOne(SessionRepositoryImpl.versionOf(sessionId), Session.class)
+        .map(SessionRepositoryImpl::version);
+  }
+}
@@ -0,0 +1,10 @@
+package org.wespeak.conversation.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import org.wespeak.conversation.entity.TimeSlot;
+
+/** Non-blocking counterpart of {@link TimeSlotRepository} for the reactive profile. */
+@Repository
+public interface ReactiveTimeSlotRepository
+    extends ReactiveMongoRepository<TimeSlot, String>, ReactiveTimeSlotRepositoryCustom {}
@@ -0,0 +1,13 @@
+package org.wespeak.conversation.repository;
+
+import reactor.core.publisher.Mono;
+
+/** The seat counter updates of {@link TimeSlotRepositoryCustom} that registrations need. */
+public interface ReactiveTimeSlotRepositoryCustom {
+
+  /** See {@link TimeSlotRepositoryCustom#takeSeat}. */
+  Mono<Boolean> takeSeat(String timeSlotId, int maxParticipants);
+
+  /** See {@link TimeSlotRepositoryCustom#releaseSeats}. */
+  Mono<Void> releaseSeats(String timeSlotId, long seats);
+}
@@ -0,0 +1,33 @@
+package org.wespeak.conversation.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.TimeSlot;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveTimeSlotRepositoryImpl implements ReactiveTimeSlotRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Mono<Boolean> takeSeat(String timeSlotId, int maxParticipants) {
+    return mongoTemplate
+        .updateFirst(
+            TimeSlotRepositoryImpl.seatFree(timeSlotId, maxParticipants),
+            new Update().inc("registeredCount", 1),
+            TimeSlot.class)
+        .map(result -> result.getModifiedCount() > 0);
+  }
+
+  @Override
+  public Mono<Void> releaseSeats(String timeSlotId, long seats) {
+    return mongoTemplate
+        .updateFirst(
+            TimeSlotRepositoryImpl.seatsHeld(timeSlotId, seats),
+            new Update().inc("registeredCount", -seats),
+            TimeSlot.class)
+        .then();
+  }
+}
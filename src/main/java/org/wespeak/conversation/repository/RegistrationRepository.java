@@ -7,7 +7,8 @@ import org.springframework.stereotype.Repository;
 import org.wespeak.conversation.entity.Registration;
 
 @Repository
-public interface RegistrationRepository extends MongoRepository<Registration, String> {
+public interface RegistrationRepository
+    extends MongoRepository<Registration, String>, RegistrationRepositoryCustom {
 
   /** Find registration for a user and time slot. */
   Optional<Registration> findByTimeSlotIdAndUserId(String timeSlotId, String userId);
@@ -0,0 +1,28 @@
+package org.wespeak.conversation.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import org.wespeak.conversation.entity.Registration;
+
+/** Atomic registration updates that derived queries cannot express. */
+public interface RegistrationRepositoryCustom {
+
+  /**
+   * Move a user's registration for a slot from one status to another, only if it currently has
+   * the expected status. Returns whether it did.
+   */
+  boolean transition(
+      String timeSlotId, String userId, Registration.Status from, Registration.Status to);
+
+  /**
+   * Move every registration for a slot that has status {@code from} to {@code to}, in one
+   * multi-document update. Returns how many moved.
+   */
+  long transitionAll(String timeSlotId, Registration.Status from, Registration.Status to);
+
+  /**
+   * Seats taken in each of the given slots (registered and attended registrations), counted in
+   * one aggregation. Slots with no seats taken are absent from the result.
+   */
+  Map<String, Integer> countSeatsTaken(Collection<String> timeSlotIds);
+}
@@ -0,0 +1,73 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.Registration;
+
+@RequiredArgsConstructor
+public class RegistrationRepositoryImpl implements RegistrationRepositoryCustom {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public boolean transition(
+      String timeSlotId, String userId, Registration.Status from, Registration.Status to) {
+    return mongoTemplate
+            .updateFirst(inStatus(timeSlotId, userId, from), movedTo(to), Registration.class)
+            .getModifiedCount()
+        > 0;
+  }
+
+  /** Also used by {@link ReactiveRegistrationRepositoryImpl}. */
+  static Query inStatus(String timeSlotId, String userId, Registration.Status status) {
+    return query(
+        where("timeSlotId").is(timeSlotId).and("userId").is(userId).and("status").is(status));
+  }
+
+  static Update movedTo(Registration.Status status) {
+    return new Update().set("status", status);
+  }
+
+  @Override
+  public long transitionAll(String timeSlotId, Registration.Status from, Registration.Status to) {
+    return mongoTemplate
+        .updateMulti(
+            query(where("timeSlotId").is(timeSlotId).and("status").is(from)),
+            movedTo(to),
+            Registration.class)
+        .getModifiedCount();
+  }
+
+  @Override
+  public Map<String, Integer> countSeatsTaken(Collection<String> timeSlotIds) {
+    Map<String, Integer> counts = new HashMap<>();
+    if (timeSlotIds.isEmpty()) {
+      return counts;
+    }
+    mongoTemplate
+        .aggregate(
+            newAggregation(
+                match(
+                    where("timeSlotId")
+                        .in(timeSlotIds)
+                        .and("status")
+                        .in(Registration.Status.registered, Registration.Status.attended)),
+                group("timeSlotId").count().as("seats")),
+            Registration.class,
+            Document.class)
+        .forEach(row -> counts.put(row.getString("_id"), row.getInteger("seats")));
+    return counts;
+  }
+}
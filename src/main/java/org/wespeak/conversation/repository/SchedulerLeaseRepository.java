@@ -0,0 +1,9 @@
+package org.wespeak.conversation.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import org.wespeak.conversation.entity.SchedulerLease;
+
+@Repository
+public interface SchedulerLeaseRepository
+    extends MongoRepository<SchedulerLease, String>, SchedulerLeaseRepositoryCustom {}
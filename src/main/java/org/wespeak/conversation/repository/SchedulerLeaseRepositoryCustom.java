@@ -0,0 +1,25 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import org.wespeak.conversation.entity.SchedulerLease;
+
+/** Conditional lease writes; each decides ownership in a single atomic update. */
+public interface SchedulerLeaseRepositoryCustom {
+
+  /**
+   * Take a job's lease if nobody holds it or it has expired, bumping its fencing token. Returns
+   * the lease, or empty if another node holds it.
+   */
+  Optional<SchedulerLease> acquire(String job, String owner, Instant now, Instant expiresAt);
+
+  /**
+   * Extend a lease this node still holds under {@code token}. Returns empty if it has expired or
+   * changed hands since, in which case the caller is no longer the holder.
+   */
+  Optional<SchedulerLease> renew(
+      String job, String owner, long token, Instant now, Instant expiresAt);
+
+  /** Expire a lease this node holds so another node can take it without waiting. */
+  void release(String job, String owner, long token, Instant now);
+}
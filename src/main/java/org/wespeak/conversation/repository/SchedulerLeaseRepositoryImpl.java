@@ -0,0 +1,62 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.SchedulerLease;
+
+@RequiredArgsConstructor
+public class SchedulerLeaseRepositoryImpl implements SchedulerLeaseRepositoryCustom {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public Optional<SchedulerLease> acquire(
+      String job, String owner, Instant now, Instant expiresAt) {
+    try {
+      // A held lease does not match, so the upsert collides with it on _id instead
+      return Optional.of(
+          mongoTemplate.findAndModify(
+              query(where("id").is(job).and("expiresAt").lte(now)),
+              new Update().set("owner", owner).set("expiresAt", expiresAt).inc("token", 1),
+              FindAndModifyOptions.options().upsert(true).returnNew(true),
+              SchedulerLease.class));
+    } catch (DuplicateKeyException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public Optional<SchedulerLease> renew(
+      String job, String owner, long token, Instant now, Instant expiresAt) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            query(
+                where("id")
+                    .is(job)
+                    .and("owner")
+                    .is(owner)
+                    .and("token")
+                    .is(token)
+                    .and("expiresAt")
+                    .gt(now)),
+            new Update().set("expiresAt", expiresAt),
+            FindAndModifyOptions.options().returnNew(true),
+            SchedulerLease.class));
+  }
+
+  @Override
+  public void release(String job, String owner, long token, Instant now) {
+    mongoTemplate.updateFirst(
+        query(where("id").is(job).and("owner").is(owner).and("token").is(token)),
+        new Update().set("expiresAt", now),
+        SchedulerLease.class);
+  }
+}
@@ -1,5 +1,8 @@
 package org.wespeak.conversation.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,14 +11,28 @@ import org.springframework.stereotype.Repository;
 import org.wespeak.conversation.entity.Session;
 
 @Repository
-public interface SessionRepository extends MongoRepository<Session, String> {
+public interface SessionRepository
+    extends MongoRepository<Session, String>, SessionRepositoryCustom {
 
   /** Find session by time slot. */
   Optional<Session> findByTimeSlotId(String timeSlotId);
 
+  /** Find the sessions of several time slots. */
+  List<Session> findByTimeSlotIdIn(Collection<String> timeSlotIds);
+
   /** Find active session for a time slot. */
   Optional<Session> findByTimeSlotIdAndStatusIn(String timeSlotId, Session.Status... statuses);
 
+  /** Find sessions in the given states that are due to end before a time, soonest first. */
+  List<Session> findByStatusInAndEndTimeBeforeOrderByEndTimeAsc(
+      Collection<Session.Status> statuses, Instant before);
+
+  /** Find sessions in the given states without a scheduled end. */
+  List<Session> findByStatusInAndEndTimeIsNull(Collection<Session.Status> statuses);
+
+  /** Find sessions in the given states without a join deadline. */
+  List<Session> findByStatusInAndJoinDeadlineIsNull(Collection<Session.Status> statuses);
+
   /** Find sessions by status. */
   Page<Session> findByStatusOrderByCreatedAtDesc(Session.Status status, Pageable pageable);
 
@@ -0,0 +1,57 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.wespeak.conversation.entity.Session;
+
+/** Atomic session updates that derived queries cannot express. */
+public interface SessionRepositoryCustom {
+
+  /**
+   * Insert the session for its time slot unless one exists, and return the stored session. Keyed
+   * by the unique {@code timeSlotId} index, so concurrent callers get the same session.
+   */
+  Session createIfAbsent(Session session);
+
+  /**
+   * Insert the sessions of many time slots in one unordered bulk upsert, skipping slots that
+   * already have one.
+   */
+  void createAllIfAbsent(List<Session> sessions);
+
+  /**
+   * Take a seat in the slot's session if it is not ended, its join window is open and it has
+   * fewer than {@code maxParticipants} connected. Returns the updated session, or empty if the
+   * join is not admitted.
+   */
+  Optional<Session> reserveSeat(
+      String timeSlotId, Instant now, int maxParticipants, boolean recordingConsent);
+
+  /** Give back a seat taken by {@link #reserveSeat}. Returns the updated session. */
+  Optional<Session> releaseSeat(String sessionId);
+
+  /**
+   * Move a waiting session to active once it has {@code minParticipants} connected. Returns the
+   * activated session, or empty if it was not waiting or not full enough.
+   */
+  Optional<Session> activate(String sessionId, int minParticipants, Instant now);
+
+  /** Read only the version of a session, to check whether a cached copy is still current. */
+  Optional<Long> findVersion(String sessionId);
+
+  /** Set the scheduled end of a session created before sessions carried one. */
+  void setEndTime(String sessionId, Instant endTime);
+
+  /** Set the join deadline of a session created before sessions carried one. */
+  void setJoinDeadline(String sessionId, Instant joinDeadline);
+
+  /** End a session that has not ended yet. Returns the ended session, or empty if it was. */
+  Optional<Session> end(String sessionId, Instant now);
+
+  /**
+   * End an active session only while nobody is connected, so a join racing the last leave keeps
+   * the session alive. Returns the ended session, or empty if it was not ended.
+   */
+  Optional<Session> endIfEmpty(String sessionId, Instant now);
+}
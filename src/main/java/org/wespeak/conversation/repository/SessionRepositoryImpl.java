@@ -0,0 +1,216 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.Session;
+
+/**
+ * Queries and updates are built by static methods shared with {@link
+ * ReactiveSessionRepositoryImpl}, so both stacks admit joins under the same conditions.
+ */
+@RequiredArgsConstructor
+public class SessionRepositoryImpl implements SessionRepositoryCustom {
+
+  private static final int DUPLICATE_KEY = 11000;
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public Session createIfAbsent(Session session) {
+    Query bySlot = query(where("timeSlotId").is(session.getTimeSlotId()));
+    try {
+      return mongoTemplate.findAndModify(
+          bySlot,
+          insertOnly(session, Instant.now()),
+          FindAndModifyOptions.options().upsert(true).returnNew(true),
+          Session.class);
+    } catch (DuplicateKeyException e) {
+      // Lost an insert race the server did not retry; the winner's session is there now
+      return mongoTemplate.findOne(bySlot, Session.class);
+    }
+  }
+
+  @Override
+  public void createAllIfAbsent(List<Session> sessions) {
+    if (sessions.isEmpty()) {
+      return;
+    }
+    Instant now = Instant.now();
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Session.class);
+    for (Session session : sessions) {
+      bulk.upsert(
+          query(where("timeSlotId").is(session.getTimeSlotId())), insertOnly(session, now));
+    }
+    try {
+      bulk.execute();
+    } catch (BulkOperationException e) {
+      // Sessions created concurrently by a join are fine; anything else is a real failure
+      if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+        throw e;
+      }
+    }
+  }
+
+  /** Fields of a new session, written only if the upsert inserts. */
+  static Update insertOnly(Session session, Instant now) {
+    return new Update()
+        .setOnInsert("targetLanguageCode", session.getTargetLanguageCode())
+        .setOnInsert("level", session.getLevel())
+        .setOnInsert("status", session.getStatus())
+        .setOnInsert("recordingEnabled", session.getRecordingEnabled())
+        .setOnInsert("connectedCount", 0)
+        .setOnInsert("version", 0L)
+        .setOnInsert("joinDeadline", session.getJoinDeadline())
+        .setOnInsert("endTime", session.getEndTime())
+        .setOnInsert("createdAt", now)
+        .setOnInsert("updatedAt", now);
+  }
+
+  @Override
+  public Optional<Session> reserveSeat(
+      String timeSlotId, Instant now, int maxParticipants, boolean recordingConsent) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            admissible(timeSlotId, now, maxParticipants),
+            seatTaken(now, recordingConsent),
+            FindAndModifyOptions.options().returnNew(true),
+            Session.class));
+  }
+
+  /** The slot's session while it can admit one more participant. */
+  static Query admissible(String timeSlotId, Instant now, int maxParticipants) {
+    // Sessions created before the count existed count as empty; their join deadline is backfilled
+    return query(
+        where("timeSlotId")
+            .is(timeSlotId)
+            .and("status")
+            .in(Session.Status.waiting, Session.Status.active)
+            .and("joinDeadline")
+            .gt(now)
+            .orOperator(
+                where("connectedCount").lt(maxParticipants),
+                where("connectedCount").exists(false)));
+  }
+
+  static Update seatTaken(Instant now, boolean recordingConsent) {
+    Update update =
+        new Update().inc("connectedCount", 1).inc("version", 1).set("updatedAt", now);
+    if (recordingConsent) {
+      update.set("recordingEnabled", true);
+    }
+    return update;
+  }
+
+  @Override
+  public Optional<Session> releaseSeat(String sessionId) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            seatHeld(sessionId),
+            seatReleased(Instant.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            Session.class));
+  }
+
+  static Query seatHeld(String sessionId) {
+    return query(where("id").is(sessionId).and("connectedCount").gt(0));
+  }
+
+  static Update seatReleased(Instant now) {
+    return new Update().inc("connectedCount", -1).inc("version", 1).set("updatedAt", now);
+  }
+
+  @Override
+  public Optional<Session> activate(String sessionId, int minParticipants, Instant now) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            query(
+                where("id")
+                    .is(sessionId)
+                    .and("status")
+                    .is(Session.Status.waiting)
+                    .and("connectedCount")
+                    .gte(minParticipants)),
+            new Update()
+                .set("status", Session.Status.active)
+                .set("startedAt", now)
+                .inc("version", 1)
+                .set("updatedAt", now),
+            FindAndModifyOptions.options().returnNew(true),
+            Session.class));
+  }
+
+  @Override
+  public Optional<Long> findVersion(String sessionId) {
+    return Optional.ofNullable(mongoTemplate.findOne(versionOf(sessionId), Session.class))
+        .map(SessionRepositoryImpl::version);
+  }
+
+  static Query versionOf(String sessionId) {
+    Query byId = query(where("id").is(sessionId));
+    byId.fields().include("version");
+    return byId;
+  }
+
+  static long version(Session session) {
+    return session.getVersion() != null ? session.getVersion() : 0L;
+  }
+
+  @Override
+  public void setEndTime(String sessionId, Instant endTime) {
+    mongoTemplate.updateFirst(
+        query(where("id").is(sessionId)), new Update().set("endTime", endTime), Session.class);
+  }
+
+  @Override
+  public void setJoinDeadline(String sessionId, Instant joinDeadline) {
+    mongoTemplate.updateFirst(
+        query(where("id").is(sessionId)),
+        new Update().set("joinDeadline", joinDeadline),
+        Session.class);
+  }
+
+  @Override
+  public Optional<Session> end(String sessionId, Instant now) {
+    return end(
+        where("id").is(sessionId).and("status").in(Session.Status.waiting, Session.Status.active),
+        now);
+  }
+
+  @Override
+  public Optional<Session> endIfEmpty(String sessionId, Instant now) {
+    return end(
+        where("id")
+            .is(sessionId)
+            .and("status")
+            .is(Session.Status.active)
+            .and("connectedCount")
+            .lte(0),
+        now);
+  }
+
+  private Optional<Session> end(Criteria criteria, Instant now) {
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            query(criteria),
+            new Update()
+                .set("status", Session.Status.ended)
+                .set("endedAt", now)
+                .inc("version", 1)
+                .set("updatedAt", now),
+            FindAndModifyOptions.options().returnNew(true),
+            Session.class));
+  }
+}
@@ -0,0 +1,58 @@
+package org.wespeak.conversation.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.wespeak.conversation.entity.TimeSlot;
+
+/** Atomic time slot updates that derived queries cannot express. */
+public interface TimeSlotRepositoryCustom {
+
+  /**
+   * Take a seat in the slot if it has fewer than {@code maxParticipants} seats taken. Returns
+   * whether it did.
+   */
+  boolean takeSeat(String timeSlotId, int maxParticipants);
+
+  /** Give back {@code seats} seats of the slot, never going below zero. */
+  void releaseSeats(String timeSlotId, long seats);
+
+  /**
+   * Write the slot's editable fields and {@code isActive}, leaving {@code registeredCount} to the
+   * seat increments. Returns the slot as stored, or empty if it no longer exists.
+   */
+  Optional<TimeSlot> updateDetails(TimeSlot slot);
+
+  /**
+   * Overwrite the seat counts of several slots in one bulk write, each only if its count still
+   * has the value it was read with ({@code null} for slots that have none yet). Returns how many
+   * were repaired.
+   */
+  int repairSeatCounts(Map<String, Integer> readCounts, Map<String, Integer> actualCounts);
+
+  /**
+   * Active slots starting strictly between {@code from} and {@code to}, optionally filtered by
+   * language and level, in {@code (startTime, id)} order and strictly after the given position
+   * ({@code null} for the first page). Returns at most {@code limit} slots; {@code skip} is only
+   * for callers paging by number.
+   */
+  List<TimeSlot> findActivePage(
+      String language,
+      TimeSlot.Level level,
+      Instant from,
+      Instant to,
+      Instant afterStartTime,
+      String afterId,
+      int skip,
+      int limit);
+
+  /** How many slots {@link #findActivePage} would return across all pages. */
+  long countActive(String language, TimeSlot.Level level, Instant from, Instant to);
+
+  /**
+   * Insert slots in one unordered bulk upsert keyed by the unique {@code (targetLanguageCode,
+   * level, startTime)} index, skipping those that already exist. Returns how many were inserted.
+   */
+  int createAllIfAbsent(List<TimeSlot> slots);
+}
@@ -0,0 +1,184 @@
+package org.wespeak.conversation.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.TimeSlot;
+
+@RequiredArgsConstructor
+public class TimeSlotRepositoryImpl implements TimeSlotRepositoryCustom {
+
+  private static final int DUPLICATE_KEY = 11000;
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public boolean takeSeat(String timeSlotId, int maxParticipants) {
+    return mongoTemplate
+            .updateFirst(
+                seatFree(timeSlotId, maxParticipants),
+                new Update().inc("registeredCount", 1),
+                TimeSlot.class)
+            .getModifiedCount()
+        > 0;
+  }
+
+  /** The slot while it has a seat free; shared with {@link ReactiveTimeSlotRepositoryImpl}. */
+  static Query seatFree(String timeSlotId, int maxParticipants) {
+    // Slots created before the counter existed count as empty until reconciled
+    Criteria seatFree =
+        new Criteria()
+            .orOperator(
+                where("registeredCount").lt(maxParticipants),
+                where("registeredCount").exists(false));
+    return query(where("id").is(timeSlotId).andOperator(seatFree));
+  }
+
+  @Override
+  public void releaseSeats(String timeSlotId, long seats) {
+    mongoTemplate.updateFirst(
+        seatsHeld(timeSlotId, seats), new Update().inc("registeredCount", -seats), TimeSlot.class);
+  }
+
+  static Query seatsHeld(String timeSlotId, long seats) {
+    // A count that would go negative has drifted; reconciliation repairs it
+    return query(where("id").is(timeSlotId).and("registeredCount").gte(seats));
+  }
+
+  @Override
+  public Optional<TimeSlot> updateDetails(TimeSlot slot) {
+    // A full save would write back the seat count read before the edit, undoing concurrent seats
+    Update details =
+        new Update()
+            .set("targetLanguageCode", slot.getTargetLanguageCode())
+            .set("level", slot.getLevel())
+            .set("startTime", slot.getStartTime())
+            .set("durationMinutes", slot.getDurationMinutes())
+            .set("maxParticipants", slot.getMaxParticipants())
+            .set("recurrence", slot.getRecurrence())
+            .set("isActive", slot.getIsActive())
+            .set("updatedAt", Instant.now());
+    return Optional.ofNullable(
+        mongoTemplate.findAndModify(
+            query(where("id").is(slot.getId())),
+            details,
+            FindAndModifyOptions.options().returnNew(true),
+            TimeSlot.class));
+  }
+
+  @Override
+  public int repairSeatCounts(
+      Map<String, Integer> readCounts, Map<String, Integer> actualCounts) {
+    if (actualCounts.isEmpty()) {
+      return 0;
+    }
+    Instant now = Instant.now();
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimeSlot.class);
+    actualCounts.forEach(
+        (timeSlotId, actual) -> {
+          Integer read = readCounts.get(timeSlotId);
+          Criteria unchanged =
+              read != null
+                  ? where("registeredCount").is(read)
+                  : where("registeredCount").exists(false);
+          bulk.updateOne(
+              query(where("id").is(timeSlotId).andOperator(unchanged)),
+              new Update().set("registeredCount", actual).set("updatedAt", now));
+        });
+    return bulk.execute().getModifiedCount();
+  }
+
+  @Override
+  public List<TimeSlot> findActivePage(
+      String language,
+      TimeSlot.Level level,
+      Instant from,
+      Instant to,
+      Instant afterStartTime,
+      String afterId,
+      int skip,
+      int limit) {
+    Criteria criteria = activeBetween(language, level, from, to);
+    if (afterStartTime != null) {
+      // Seek past the last slot returned instead of skipping over everything before it
+      criteria.orOperator(
+          where("startTime").gt(afterStartTime),
+          where("startTime").is(afterStartTime).and("id").gt(afterId));
+    }
+    Query page =
+        query(criteria)
+            .with(Sort.by(Sort.Order.asc("startTime"), Sort.Order.asc("id")))
+            .skip(skip)
+            .limit(limit);
+    return mongoTemplate.find(page, TimeSlot.class);
+  }
+
+  @Override
+  public long countActive(String language, TimeSlot.Level level, Instant from, Instant to) {
+    return mongoTemplate.count(query(activeBetween(language, level, from, to)), TimeSlot.class);
+  }
+
+  /** Active slots in the time range, with the optional language and level equality filters. */
+  private static Criteria activeBetween(
+      String language, TimeSlot.Level level, Instant from, Instant to) {
+    Criteria criteria = where("isActive").is(true);
+    if (language != null) {
+      criteria.and("targetLanguageCode").is(language);
+    }
+    if (level != null) {
+      criteria.and("level").is(level);
+    }
+    criteria.and("startTime").gt(from).lt(to);
+    return criteria;
+  }
+
+  @Override
+  public int createAllIfAbsent(List<TimeSlot> slots) {
+    if (slots.isEmpty()) {
+      return 0;
+    }
+    Instant now = Instant.now();
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimeSlot.class);
+    for (TimeSlot slot : slots) {
+      bulk.upsert(
+          query(
+              where("targetLanguageCode")
+                  .is(slot.getTargetLanguageCode())
+                  .and("level")
+                  .is(slot.getLevel())
+                  .and("startTime")
+                  .is(slot.getStartTime())),
+          new Update()
+              .setOnInsert("durationMinutes", slot.getDurationMinutes())
+              .setOnInsert("maxParticipants", slot.getMaxParticipants())
+              .setOnInsert("minParticipants", slot.getMinParticipants())
+              .setOnInsert("registeredCount", 0)
+              .setOnInsert("recurrence", slot.getRecurrence())
+              .setOnInsert("isActive", slot.getIsActive())
+              .setOnInsert("createdAt", now)
+              .setOnInsert("updatedAt", now));
+    }
+    try {
+      return bulk.execute().getUpserts().size();
+    } catch (BulkOperationException e) {
+      // Slots created concurrently are fine; anything else is a real failure
+      if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+        throw e;
+      }
+      return e.getResult().getUpserts().size();
+    }
+  }
+}
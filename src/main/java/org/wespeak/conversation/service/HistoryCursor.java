@@ -0,0 +1,37 @@
+package org.wespeak.conversation.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.exception.SessionException;
+
+/**
+ * Position in a user's session history: the {@code (joinedAt, id)} key of the last row returned.
+ * Handed to clients as an opaque URL-safe token.
+ */
+record HistoryCursor(Instant joinedAt, String id) {
+
+  static HistoryCursor after(Participant participant) {
+    return new HistoryCursor(participant.getJoinedAt(), participant.getId());
+  }
+
+  static HistoryCursor decode(String token) {
+    try {
+      String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = key.indexOf(':');
+      return new HistoryCursor(
+          Instant.ofEpochMilli(Long.parseLong(key.substring(0, separator))),
+          key.substring(separator + 1));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw SessionException.invalidCursor();
+    }
+  }
+
+  String encode() {
+    String key = joinedAt.toEpochMilli() + ":" + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+}
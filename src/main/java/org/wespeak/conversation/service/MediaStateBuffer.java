@@ -0,0 +1,149 @@
+package org.wespeak.conversation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Participant;
+
+/**
+ * Write-behind buffer for camera/microphone state. Toggles only replace the latest state held in
+ * memory; a periodic job writes whatever changed since the last run to Mongo in one unordered bulk
+ * update, so a user flapping their mic costs one write per interval instead of one per click.
+ *
+ * <p>Anything that reads a {@link Participant} to show its media state goes through {@link
+ * #apply}, so readers see the buffered state before it reaches Mongo. A participant's pending state
+ * is written with their leave, a session's when it ends, and all pending state on shutdown.
+ *
+ * <p>Each write then tells the {@link #onFlushed} listeners which sessions it touched.
+ */
+@Slf4j
+@Service
+public class MediaStateBuffer {
+
+  private final MongoTemplate mongoTemplate;
+  private final Map<Key, MediaState> pending = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> flushedListeners = new CopyOnWriteArrayList<>();
+
+  public MediaStateBuffer(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    Gauge.builder("participants.media_state.pending", pending, Map::size)
+        .description("Media-state changes waiting to be written to Mongo")
+        .register(meterRegistry);
+  }
+
+  /** Register a callback run with the id of each session whose media state was written. */
+  public void onFlushed(Consumer<String> listener) {
+    flushedListeners.add(listener);
+  }
+
+  /** Record the latest media state of a participant. */
+  public void record(String sessionId, String userId, boolean cameraEnabled, boolean micEnabled) {
+    pending.put(new Key(sessionId, userId), new MediaState(cameraEnabled, micEnabled));
+  }
+
+  /** Buffered state of a participant that has not been written yet. */
+  public Optional<MediaState> find(String sessionId, String userId) {
+    return Optional.ofNullable(pending.get(new Key(sessionId, userId)));
+  }
+
+  /** Overlay buffered state onto a participant read from Mongo. */
+  public void apply(Participant participant) {
+    find(participant.getSessionId(), participant.getUserId())
+        .ifPresent(
+            state -> {
+              participant.setCameraEnabled(state.cameraEnabled());
+              participant.setMicEnabled(state.micEnabled());
+            });
+  }
+
+  /** Write a participant's buffered state now, e.g. when they leave. */
+  public void flush(String sessionId, String userId) {
+    Key key = new Key(sessionId, userId);
+    MediaState state = pending.remove(key);
+    if (state != null) {
+      write(List.of(Map.entry(key, state)));
+    }
+  }
+
+  /** Write the buffered state of every participant of a session. */
+  public void flushSession(String sessionId) {
+    write(drain(key -> key.sessionId().equals(sessionId)));
+  }
+
+  /** Write all buffered state in one bulk update. */
+  @Scheduled(fixedDelayString = "${app.conversation.media-state.flush-interval-ms:1000}")
+  public void flush() {
+    write(drain(key -> true));
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+
+  private List<Map.Entry<Key, MediaState>> drain(Predicate<Key> filter) {
+    List<Map.Entry<Key, MediaState>> drained = new ArrayList<>();
+    for (Map.Entry<Key, MediaState> entry : pending.entrySet()) {
+      // Only take the state we are about to write; a newer toggle stays for the next flush
+      if (filter.test(entry.getKey()) && pending.remove(entry.getKey(), entry.getValue())) {
+        drained.add(Map.entry(entry.getKey(), entry.getValue()));
+      }
+    }
+    return drained;
+  }
+
+  private void write(List<Map.Entry<Key, MediaState>> entries) {
+    if (entries.isEmpty()) return;
+
+    BulkOperations bulk =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Participant.class);
+    for (Map.Entry<Key, MediaState> entry : entries) {
+      bulk.updateOne(
+          Query.query(
+              Criteria.where("sessionId")
+                  .is(entry.getKey().sessionId())
+                  .and("userId")
+                  .is(entry.getKey().userId())),
+          new Update()
+              .set("cameraEnabled", entry.getValue().cameraEnabled())
+              .set("micEnabled", entry.getValue().micEnabled()));
+    }
+
+    Set<String> sessionIds =
+        entries.stream().map(entry -> entry.getKey().sessionId()).collect(Collectors.toSet());
+    try {
+      bulk.execute();
+      log.debug("Flushed {} media-state changes", entries.size());
+    } catch (RuntimeException e) {
+      // Keep the state for the next flush unless a newer toggle already replaced it
+      entries.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+      log.error("Failed to flush {} media-state changes", entries.size(), e);
+      return;
+    }
+    for (String sessionId : sessionIds) {
+      flushedListeners.forEach(listener -> listener.accept(sessionId));
+    }
+  }
+
+  public record MediaState(boolean cameraEnabled, boolean micEnabled) {}
+
+  private record Key(String sessionId, String userId) {}
+}
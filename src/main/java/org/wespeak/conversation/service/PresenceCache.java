@@ -0,0 +1,177 @@
+package org.wespeak.conversation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.repository.ParticipantRepository;
+
+/**
+ * Which session each user is in right now, so polling {@code /sessions/current} and media updates
+ * do not query participants by user on every request. Joins record the new participation and
+ * every disconnect (leave, WebSocket close, session end) invalidates it on this node.
+ *
+ * <p>Changes made on other nodes are only seen once an entry expires, so entries are short-lived,
+ * and "not in a session" answers expire sooner than positive ones. Hit and miss counts are exported
+ * as the {@code presence} cache metrics.
+ */
+@Service
+public class PresenceCache {
+
+  private final ParticipantRepository participantRepository;
+  private final Cache<String, Presence> cache;
+
+  public PresenceCache(
+      ParticipantRepository participantRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.conversation.presence.max-size:100000}") long maxSize,
+      @Value("${app.conversation.presence.ttl-seconds:30}") long ttlSeconds,
+      @Value("${app.conversation.presence.absent-ttl-seconds:5}") long absentTtlSeconds) {
+    this.participantRepository = participantRepository;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(
+                new PresenceExpiry(
+                    Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(absentTtlSeconds)))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "presence");
+  }
+
+  /** The user's live participation, loading it from Mongo on a miss. */
+  public Optional<Presence> find(String userId) {
+    Presence presence = cache.get(userId, this::load);
+    return presence == Presence.ABSENT ? Optional.empty() : Optional.of(presence);
+  }
+
+  /**
+   * The cached answer without loading it: null on a miss, {@link Presence#ABSENT} if the user is
+   * known to be in no session. With {@link #loaded} this lets a caller load through non-blocking
+   * queries of its own.
+   */
+  Presence cached(String userId) {
+    return cache.getIfPresent(userId);
+  }
+
+  /** Cache a participation loaded by the caller, or null if the user is in no session. */
+  Presence loaded(String userId, Participant participant) {
+    Presence presence = participant != null ? Presence.of(participant) : Presence.ABSENT;
+    cache.put(userId, presence);
+    return presence;
+  }
+
+  /** Record a participation that was just created or reconnected. */
+  public void joined(Participant participant) {
+    cache.put(participant.getUserId(), Presence.of(participant));
+  }
+
+  /** Keep a cached participation's media flags in step with a media update. */
+  public void updateMediaState(String userId, boolean cameraEnabled, boolean micEnabled) {
+    cache
+        .asMap()
+        .computeIfPresent(
+            userId,
+            (id, presence) ->
+                presence == Presence.ABSENT
+                    ? presence
+                    : presence.withMedia(cameraEnabled, micEnabled));
+  }
+
+  /** Forget a user's participation after they left or were disconnected. */
+  public void invalidate(String userId) {
+    cache.invalidate(userId);
+  }
+
+  private Presence load(String userId) {
+    return participantRepository
+        .findByUserIdAndStatusNot(userId, Participant.Status.disconnected)
+        .map(Presence::of)
+        .orElse(Presence.ABSENT);
+  }
+
+  /** Snapshot of a live participant, enough to answer without reloading it. */
+  public record Presence(
+      String sessionId,
+      String participantId,
+      String userId,
+      Participant.Status status,
+      String displayName,
+      Boolean cameraEnabled,
+      Boolean micEnabled,
+      Boolean recordingConsent,
+      Instant joinedAt) {
+
+    static final Presence ABSENT =
+        new Presence(null, null, null, null, null, null, null, null, null);
+
+    static Presence of(Participant participant) {
+      return new Presence(
+          participant.getSessionId(),
+          participant.getId(),
+          participant.getUserId(),
+          participant.getStatus(),
+          participant.getDisplayName(),
+          participant.getCameraEnabled(),
+          participant.getMicEnabled(),
+          participant.getRecordingConsent(),
+          participant.getJoinedAt());
+    }
+
+    Presence withMedia(boolean cameraEnabled, boolean micEnabled) {
+      return new Presence(
+          sessionId,
+          participantId,
+          userId,
+          status,
+          displayName,
+          cameraEnabled,
+          micEnabled,
+          recordingConsent,
+          joinedAt);
+    }
+
+    /** A detached participant to build responses from; changes to it are not cached. */
+    public Participant toParticipant() {
+      return Participant.builder()
+          .id(participantId)
+          .sessionId(sessionId)
+          .userId(userId)
+          .status(status)
+          .displayName(displayName)
+          .cameraEnabled(cameraEnabled)
+          .micEnabled(micEnabled)
+          .recordingConsent(recordingConsent)
+          .joinedAt(joinedAt)
+          .build();
+    }
+  }
+
+  private record PresenceExpiry(Duration ttl, Duration absentTtl)
+      implements Expiry<String, Presence> {
+
+    @Override
+    public long expireAfterCreate(String userId, Presence presence, long currentTime) {
+      return (presence == Presence.ABSENT ? absentTtl : ttl).toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String userId, Presence presence, long currentTime, long currentDuration) {
+      return expireAfterCreate(userId, presence, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        String userId, Presence presence, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
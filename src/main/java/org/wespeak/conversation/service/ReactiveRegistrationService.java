@@ -0,0 +1,179 @@
+package org.wespeak.conversation.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.dto.RegistrationDto;
+import org.wespeak.conversation.dto.RegistrationsResponse;
+import org.wespeak.conversation.entity.Registration;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.exception.RegistrationException;
+import org.wespeak.conversation.exception.ResourceNotFoundException;
+import org.wespeak.conversation.repository.ReactiveRegistrationRepository;
+import org.wespeak.conversation.repository.ReactiveTimeSlotRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RegistrationService} on reactive repositories, for the reactive profile. Same checks, same
+ * conditional seat and status writes, same undo on failure; nothing here blocks.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveRegistrationService {
+
+  private final ReactiveRegistrationRepository registrationRepository;
+  private final ReactiveTimeSlotRepository timeSlotRepository;
+  private final TimeSlotService timeSlotService;
+  private final TimetableIndex timetableIndex;
+
+  @Value("${app.conversation.max-active-registrations:3}")
+  private int maxActiveRegistrations;
+
+  @Value("${app.conversation.cancellation-deadline-minutes:15}")
+  private int cancellationDeadlineMinutes;
+
+  @Value("${app.conversation.registration-deadline-minutes:5}")
+  private int registrationDeadlineMinutes;
+
+  /** Register a user for a time slot. */
+  public Mono<RegistrationDto> register(String timeSlotId, String userId) {
+    return findSlot(timeSlotId)
+        .flatMap(
+            slot -> {
+              // Check registration deadline
+              Instant deadline =
+                  slot.getStartTime().minus(registrationDeadlineMinutes, ChronoUnit.MINUTES);
+              if (Instant.now().isAfter(deadline)) {
+                return Mono.<Boolean>error(RegistrationException.registrationClosed());
+              }
+              // Take a seat atomically; concurrent registrations cannot overfill the slot
+              return checkCanRegister(timeSlotId, userId)
+                  .then(Mono.defer(() -> takeSeat(slot)));
+            })
+        .flatMap(
+            seated ->
+                seated
+                    ? save(timeSlotId, userId)
+                    : Mono.<Registration>error(RegistrationException.slotFull()))
+        .flatMap(this::toRegistrationDto);
+  }
+
+  private Mono<Boolean> takeSeat(TimeSlot slot) {
+    return timeSlotRepository.takeSeat(slot.getId(), slot.getMaxParticipants());
+  }
+
+  /** Fails unless the user may take another registration for the slot. */
+  private Mono<Void> checkCanRegister(String timeSlotId, String userId) {
+    return registrationRepository
+        .existsByTimeSlotIdAndUserIdAndStatus(timeSlotId, userId, Registration.Status.registered)
+        .flatMap(
+            registered ->
+                registered
+                    ? Mono.<Long>error(RegistrationException.alreadyRegistered())
+                    : registrationRepository.countByUserIdAndStatus(
+                        userId, Registration.Status.registered))
+        .flatMap(
+            activeCount ->
+                activeCount >= maxActiveRegistrations
+                    ? Mono.<Void>error(
+                        RegistrationException.maxRegistrations(maxActiveRegistrations))
+                    : Mono.<Void>empty());
+  }
+
+  private Mono<Registration> save(String timeSlotId, String userId) {
+    Registration registration =
+        Registration.builder()
+            .timeSlotId(timeSlotId)
+            .userId(userId)
+            .status(Registration.Status.registered)
+            .build();
+    return registrationRepository
+        .save(registration)
+        .onErrorResume(e -> timeSlotRepository.releaseSeats(timeSlotId, 1).then(Mono.error(e)))
+        .doOnNext(
+            saved -> {
+              timetableIndex.seatsChanged(timeSlotId, 1);
+              log.info("User {} registered for time slot {}", userId, timeSlotId);
+            });
+  }
+
+  /** Cancel a registration. */
+  public Mono<Void> unregister(String timeSlotId, String userId) {
+    return registrationRepository
+        .findByTimeSlotIdAndUserId(timeSlotId, userId)
+        .filter(registration -> registration.getStatus() == Registration.Status.registered)
+        .switchIfEmpty(Mono.error(RegistrationException::notRegistered))
+        .flatMap(registration -> findSlot(timeSlotId).flatMap(slot -> cancel(registration, slot)))
+        .doOnSuccess(
+            done -> {
+              timetableIndex.seatsChanged(timeSlotId, -1);
+              log.info("User {} cancelled registration for time slot {}", userId, timeSlotId);
+            });
+  }
+
+  private Mono<Void> cancel(Registration registration, TimeSlot slot) {
+    // Check cancellation deadline
+    Instant deadline = slot.getStartTime().minus(cancellationDeadlineMinutes, ChronoUnit.MINUTES);
+    if (Instant.now().isAfter(deadline)) {
+      return Mono.error(RegistrationException.cancellationDeadlinePassed());
+    }
+
+    registration.setStatus(Registration.Status.cancelled);
+    registration.setCancelledAt(Instant.now());
+    return registrationRepository
+        .save(registration)
+        .then(timeSlotRepository.releaseSeats(slot.getId(), 1));
+  }
+
+  /** Get registrations for a user. */
+  public Mono<RegistrationsResponse> getUserRegistrations(String userId) {
+    return registrationRepository
+        .findByUserIdOrderByRegisteredAtDesc(userId)
+        .filter(registration -> registration.getStatus() == Registration.Status.registered)
+        .concatMap(this::toRegistrationDto)
+        .collectList()
+        .map(dtos -> RegistrationsResponse.builder().registrations(dtos).build());
+  }
+
+  /** See {@link RegistrationService#claimAttendance}. */
+  public Mono<Boolean> claimAttendance(String timeSlotId, String userId) {
+    return registrationRepository.transition(
+        timeSlotId, userId, Registration.Status.registered, Registration.Status.attended);
+  }
+
+  /** Undo {@link #claimAttendance} when the join it was part of fails. */
+  public Mono<Boolean> releaseAttendance(String timeSlotId, String userId) {
+    return registrationRepository.transition(
+        timeSlotId, userId, Registration.Status.attended, Registration.Status.registered);
+  }
+
+  private Mono<TimeSlot> findSlot(String timeSlotId) {
+    return timeSlotRepository
+        .findById(timeSlotId)
+        .switchIfEmpty(
+            Mono.error(() -> ResourceNotFoundException.timeSlotNotFound(timeSlotId)));
+  }
+
+  private Mono<RegistrationDto> toRegistrationDto(Registration registration) {
+    return timeSlotRepository
+        .findById(registration.getTimeSlotId())
+        .map(slot -> toRegistrationDto(registration, slot))
+        .onErrorResume(
+            e -> {
+              log.warn("Could not fetch time slot for registration {}", registration.getId());
+              return Mono.empty();
+            })
+        .defaultIfEmpty(RegistrationService.toRegistrationDto(registration, null));
+  }
+
+  private RegistrationDto toRegistrationDto(Registration registration, TimeSlot slot) {
+    return RegistrationService.toRegistrationDto(
+        registration, timeSlotService.toTimeSlotDto(slot));
+  }
+}
@@ -0,0 +1,292 @@
+package org.wespeak.conversation.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.dto.*;
+import org.wespeak.conversation.entity.*;
+import org.wespeak.conversation.exception.ResourceNotFoundException;
+import org.wespeak.conversation.exception.SessionException;
+import org.wespeak.conversation.repository.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link SessionService} on reactive repositories, for the reactive profile: the same conditional
+ * admission writes and undo steps, sharing this node's presence cache, snapshots, rosters and
+ * session actors with the servlet-side code.
+ *
+ * <p>Reads and admission never block. The one step still done by blocking collaborators, the
+ * bookkeeping after a leave (flushing the leaver's buffered media state, waking long-polls), runs
+ * on the bounded elastic scheduler instead of the event loop.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveSessionService {
+
+  private final ReactiveSessionRepository sessionRepository;
+  private final ReactiveParticipantRepository participantRepository;
+  private final ReactiveTimeSlotRepository timeSlotRepository;
+  private final ReactiveRegistrationService registrationService;
+  private final SessionService sessionService;
+  private final RoomRosterService roomRosterService;
+  private final SessionPreparer sessionPreparer;
+  private final SessionExpiryScheduler sessionExpiryScheduler;
+  private final PresenceCache presenceCache;
+  private final SessionSnapshots sessionSnapshots;
+
+  @Value("${app.conversation.max-participants:8}")
+  private int maxParticipants;
+
+  @Value("${app.conversation.snapshot.long-poll-timeout-ms:25000}")
+  private long longPollTimeoutMillis;
+
+  /** See {@link SessionService#joinSession}. */
+  public Mono<SessionDto> joinSession(String userId, JoinSessionRequest request) {
+    String timeSlotId = request.getTimeSlotId();
+    boolean recordingConsent = Boolean.TRUE.equals(request.getRecordingConsent());
+    String displayName = request.getDisplayName() != null ? request.getDisplayName() : "User";
+
+    return registrationService
+        .claimAttendance(timeSlotId, userId)
+        .flatMap(
+            claimed ->
+                claimed
+                    ? seat(timeSlotId, userId, displayName, recordingConsent)
+                        .onErrorResume(
+                            e ->
+                                registrationService
+                                    .releaseAttendance(timeSlotId, userId)
+                                    .then(Mono.error(e)))
+                    : Mono.<Seated>error(SessionException.notRegistered()))
+        .flatMap(this::admitted);
+  }
+
+  /** Take a seat and connect the participant, giving the seat back if that fails. */
+  private Mono<Seated> seat(
+      String timeSlotId, String userId, String displayName, boolean recordingConsent) {
+    return reserveSeat(timeSlotId, recordingConsent)
+        .flatMap(
+            session ->
+                participantRepository
+                    .upsertConnected(
+                        session.getId(), userId, displayName, recordingConsent, Instant.now())
+                    .map(participant -> new Seated(session, participant))
+                    .onErrorResume(
+                        e ->
+                            sessionRepository
+                                .releaseSeat(session.getId())
+                                .then(
+                                    Mono.error(
+                                        e instanceof DuplicateKeyException
+                                            ? SessionException.alreadyInSession()
+                                            : e))));
+  }
+
+  private Mono<SessionDto> admitted(Seated seat) {
+    Participant participant = seat.participant();
+    String sessionId = participant.getSessionId();
+    roomRosterService.upsert(participant);
+    presenceCache.joined(participant);
+
+    sessionService.actorJoined(seat.session(), participant);
+    return publish(seat.session())
+        .map(
+            snapshot -> {
+              log.info("User {} joined session {}", participant.getUserId(), sessionId);
+              return snapshot.session();
+            });
+  }
+
+  /** See {@link SessionService#getCurrentSession}. */
+  public Mono<SessionSnapshots.Snapshot> getCurrentSession(String userId) {
+    return currentSessionId(userId).flatMap(this::snapshot);
+  }
+
+  /** See {@link SessionService#awaitCurrentSession}. */
+  public Mono<SessionSnapshots.Snapshot> awaitCurrentSession(String userId, long sinceVersion) {
+    Duration timeout = Duration.ofMillis(longPollTimeoutMillis);
+    return currentSessionId(userId)
+        .flatMap(
+            sessionId ->
+                snapshot(sessionId)
+                    .flatMap(
+                        snapshot ->
+                            Mono.fromFuture(
+                                sessionSnapshots.awaitChange(
+                                    sessionId, sinceVersion, timeout, snapshot))));
+  }
+
+  /** See {@link SessionService#updateMediaState}. */
+  public Mono<ParticipantDto> updateMediaState(String userId, MediaStateRequest request) {
+    return presence(userId)
+        .map(presence -> sessionService.applyMediaState(presence.toParticipant(), request));
+  }
+
+  /** See {@link SessionService#leaveSession}. */
+  public Mono<Void> leaveSession(String userId) {
+    return presence(userId)
+        .flatMap(
+            presence -> {
+              String sessionId = presence.sessionId();
+              Instant leftAt = Instant.now();
+              return participantRepository
+                  .markDisconnected(sessionId, userId, leftAt)
+                  .flatMap(
+                      previous ->
+                          previous.getStatus() == Participant.Status.connected
+                              ? sessionRepository
+                                  .releaseSeat(sessionId)
+                                  .map(released -> new Left(true, released))
+                                  .defaultIfEmpty(new Left(true, null))
+                              : Mono.just(new Left(true, null)))
+                  .defaultIfEmpty(new Left(false, null))
+                  .flatMap(
+                      left ->
+                          Mono.fromRunnable(
+                                  () ->
+                                      sessionService.disconnected(
+                                          sessionId, userId, leftAt, left.wasIn(), left.released()))
+                              .subscribeOn(Schedulers.boundedElastic()))
+                  .then(
+                      Mono.fromRunnable(
+                          () -> log.info("User {} left session {}", userId, sessionId)));
+            });
+  }
+
+  /** See {@link SessionService#getSessionHistory}. */
+  public Mono<SessionHistoryResponse> getSessionHistory(
+      String userId, String cursor, int page, int size) {
+    Flux<Participant> rows =
+        Flux.defer(
+            () -> {
+              if (cursor != null) {
+                HistoryCursor after = HistoryCursor.decode(cursor);
+                return participantRepository.findHistory(
+                    userId, after.joinedAt(), after.id(), 0, size + 1);
+              }
+              return participantRepository.findHistory(userId, null, null, page * size, size + 1);
+            });
+
+    return rows.collectList()
+        .flatMap(
+            fetched -> {
+              // One extra row tells whether there is a next page
+              boolean hasMore = fetched.size() > size;
+              List<Participant> pageRows = hasMore ? fetched.subList(0, size) : fetched;
+              Set<String> sessionIds =
+                  pageRows.stream().map(Participant::getSessionId).collect(Collectors.toSet());
+              return Mono.zip(
+                      sessionRepository.findAllById(sessionIds).collectMap(Session::getId),
+                      participantRepository.countConnected(sessionIds),
+                      participantRepository.countByUserIdAndJoinedAtNotNull(userId))
+                  .map(
+                      page ->
+                          SessionService.historyPage(
+                              pageRows, hasMore, page.getT1(), page.getT2(), page.getT3()));
+            });
+  }
+
+  /**
+   * Take a seat in the time slot's session, creating the session on the first join. When the seat
+   * is refused, the session is read once to report why.
+   */
+  private Mono<Session> reserveSeat(String timeSlotId, boolean recordingConsent) {
+    Instant now = Instant.now();
+    return sessionRepository
+        .reserveSeat(timeSlotId, now, maxParticipants, recordingConsent)
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    sessionRepository
+                        .findByTimeSlotId(timeSlotId)
+                        .flatMap(session -> refused(session, now))
+                        .switchIfEmpty(
+                            Mono.defer(
+                                () -> createAndReserve(timeSlotId, now, recordingConsent)))));
+  }
+
+  /** The first join of a slot whose session was not prepared creates it. */
+  private Mono<Session> createAndReserve(String timeSlotId, Instant now, boolean recordingConsent) {
+    return timeSlotRepository
+        .findById(timeSlotId)
+        .switchIfEmpty(Mono.error(() -> ResourceNotFoundException.timeSlotNotFound(timeSlotId)))
+        .flatMap(slot -> sessionRepository.createIfAbsent(sessionPreparer.newSession(slot)))
+        .doOnNext(
+            created -> sessionExpiryScheduler.schedule(created.getId(), created.getEndTime()))
+        .flatMap(
+            created ->
+                sessionRepository
+                    .reserveSeat(timeSlotId, now, maxParticipants, recordingConsent)
+                    .switchIfEmpty(
+                        Mono.defer(
+                            () ->
+                                sessionRepository
+                                    .findByTimeSlotId(timeSlotId)
+                                    .defaultIfEmpty(created)
+                                    .flatMap(session -> refused(session, now)))));
+  }
+
+  private static Mono<Session> refused(Session session, Instant now) {
+    return Mono.error(SessionService.refusal(session, now));
+  }
+
+  private Mono<String> currentSessionId(String userId) {
+    return presence(userId).map(PresenceCache.Presence::sessionId);
+  }
+
+  /** See {@link PresenceCache#find}: a miss is loaded without blocking and cached. */
+  private Mono<PresenceCache.Presence> presence(String userId) {
+    PresenceCache.Presence cached = presenceCache.cached(userId);
+    return (cached != null ? Mono.just(cached) : livePresence(userId))
+        .filter(presence -> presence != PresenceCache.Presence.ABSENT)
+        .switchIfEmpty(Mono.error(SessionException::noActiveSession));
+  }
+
+  private Mono<PresenceCache.Presence> livePresence(String userId) {
+    return participantRepository
+        .findByUserIdAndStatusNot(userId, Participant.Status.disconnected)
+        .map(participant -> presenceCache.loaded(userId, participant))
+        .switchIfEmpty(Mono.fromSupplier(() -> presenceCache.loaded(userId, null)));
+  }
+
+  /**
+   * See {@link SessionSnapshots#current}: served from the cache within the max age, then
+   * revalidated by version and rebuilt only if it moved.
+   */
+  private Mono<SessionSnapshots.Snapshot> snapshot(String sessionId) {
+    SessionSnapshots.Snapshot fresh = sessionSnapshots.fresh(sessionId);
+    if (fresh != null) {
+      return Mono.just(fresh);
+    }
+    return sessionRepository
+        .findVersion(sessionId)
+        .flatMap(version -> Mono.justOrEmpty(sessionSnapshots.confirm(sessionId, version)))
+        .switchIfEmpty(
+            Mono.defer(() -> sessionRepository.findById(sessionId).flatMap(this::publish)))
+        .switchIfEmpty(Mono.error(() -> ResourceNotFoundException.sessionNotFound(sessionId)));
+  }
+
+  private Mono<SessionSnapshots.Snapshot> publish(Session session) {
+    return participantRepository
+        .findBySessionIdAndStatusNot(session.getId(), Participant.Status.disconnected)
+        .collectList()
+        .map(participants -> sessionSnapshots.install(session, participants));
+  }
+
+  private record Seated(Session session, Participant participant) {}
+
+  /** A leave's writes: whether there was anyone to disconnect, and the session after the seat. */
+  private record Left(boolean wasIn, Session released) {}
+}
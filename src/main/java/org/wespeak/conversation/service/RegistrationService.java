@@ -26,6 +26,7 @@ public class RegistrationService {
   private final RegistrationRepository registrationRepository;
   private final TimeSlotRepository timeSlotRepository;
   private final TimeSlotService timeSlotService;
+  private final TimetableIndex timetableIndex;
 
   @Value("${app.conversation.max-active-registrations:3}")
   private int maxActiveRegistrations;
@@ -62,11 +63,8 @@ public class RegistrationService {
       throw RegistrationException.maxRegistrations(maxActiveRegistrations);
     }
 
-    // Check slot capacity
-    long registeredCount =
-        registrationRepository.countByTimeSlotIdAndStatus(
-            timeSlotId, Registration.Status.registered);
-    if (registeredCount >= slot.getMaxParticipants()) {
+    // Take a seat atomically; concurrent registrations cannot overfill the slot
+    if (!timeSlotRepository.takeSeat(timeSlotId, slot.getMaxParticipants())) {
       throw RegistrationException.slotFull();
     }
 
@@ -78,7 +76,13 @@ public class RegistrationService {
             .status(Registration.Status.registered)
             .build();
 
-    registration = registrationRepository.save(registration);
+    try {
+      registration = registrationRepository.save(registration);
+    } catch (RuntimeException e) {
+      timeSlotRepository.releaseSeats(timeSlotId, 1);
+      throw e;
+    }
+    timetableIndex.seatsChanged(timeSlotId, 1);
     log.info("User {} registered for time slot {}", userId, timeSlotId);
 
     return toRegistrationDto(registration);
@@ -109,6 +113,8 @@ public class RegistrationService {
     registration.setStatus(Registration.Status.cancelled);
     registration.setCancelledAt(Instant.now());
     registrationRepository.save(registration);
+    timeSlotRepository.releaseSeats(timeSlotId, 1);
+    timetableIndex.seatsChanged(timeSlotId, -1);
 
     log.info("User {} cancelled registration for time slot {}", userId, timeSlotId);
   }
@@ -150,17 +156,34 @@ public class RegistrationService {
             });
   }
 
-  /** Mark registration as no-show. */
-  public void markNoShow(String timeSlotId, String userId) {
-    registrationRepository
-        .findByTimeSlotIdAndUserId(timeSlotId, userId)
-        .ifPresent(
-            reg -> {
-              if (reg.getStatus() == Registration.Status.registered) {
-                reg.setStatus(Registration.Status.noshow);
-                registrationRepository.save(reg);
-              }
-            });
+  /**
+   * Move a registration to attended if it is still registered, in one conditional write. Returns
+   * false if the user is not registered for the slot (or has already used the registration).
+   */
+  public boolean claimAttendance(String timeSlotId, String userId) {
+    return registrationRepository.transition(
+        timeSlotId, userId, Registration.Status.registered, Registration.Status.attended);
+  }
+
+  /** Undo {@link #claimAttendance} when the join it was part of fails. */
+  public void releaseAttendance(String timeSlotId, String userId) {
+    registrationRepository.transition(
+        timeSlotId, userId, Registration.Status.attended, Registration.Status.registered);
+  }
+
+  /**
+   * Mark everyone still registered for a slot as a no-show, in one update, and give their seats
+   * back. Returns how many were marked.
+   */
+  public long markNoShows(String timeSlotId) {
+    long marked =
+        registrationRepository.transitionAll(
+            timeSlotId, Registration.Status.registered, Registration.Status.noshow);
+    if (marked > 0) {
+      timeSlotRepository.releaseSeats(timeSlotId, marked);
+      timetableIndex.seatsChanged(timeSlotId, -marked);
+    }
+    return marked;
   }
 
   private RegistrationDto toRegistrationDto(Registration registration) {
@@ -171,6 +194,10 @@ public class RegistrationService {
       log.warn("Could not fetch time slot for registration {}", registration.getId());
     }
 
+    return toRegistrationDto(registration, timeSlotDto);
+  }
+
+  static RegistrationDto toRegistrationDto(Registration registration, TimeSlotDto timeSlotDto) {
     return RegistrationDto.builder()
         .id(registration.getId())
         .timeSlotId(registration.getTimeSlotId())
@@ -0,0 +1,138 @@
+package org.wespeak.conversation.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.repository.ParticipantRepository;
+
+/**
+ * In-process roster of each live room. A room is loaded from Mongo the first time it is needed and
+ * then kept current by {@link SessionService} and the signaling handler, so building a signaling
+ * {@code room-state} costs no database calls.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomRosterService {
+
+  private final ParticipantRepository participantRepository;
+  private final MediaStateBuffer mediaStateBuffer;
+
+  // Map sessionId -> (userId -> entry)
+  private final Map<String, Map<String, RosterEntry>> rooms = new ConcurrentHashMap<>();
+
+  /** Get the roster of a session, loading it once from Mongo if needed. */
+  public Map<String, RosterEntry> getRoom(String sessionId) {
+    return rooms.computeIfAbsent(sessionId, this::load);
+  }
+
+  /** Load a room from participants fetched by the caller, unless it is already loaded. */
+  public void prime(String sessionId, List<Participant> participants) {
+    rooms.computeIfAbsent(sessionId, id -> toRoom(participants));
+  }
+
+  /**
+   * Find a participant in a session's roster. Only this node's writes reach a loaded room, so a
+   * miss is checked against Mongo before it is believed: the participant may have joined through
+   * another node. A participant found there is added to the roster.
+   */
+  public Optional<RosterEntry> find(String sessionId, String userId) {
+    Map<String, RosterEntry> room = getRoom(sessionId);
+    RosterEntry entry = room.get(userId);
+    if (entry != null) {
+      return Optional.of(entry);
+    }
+    return participantRepository
+        .findBySessionIdAndUserId(sessionId, userId)
+        .map(
+            participant -> {
+              mediaStateBuffer.apply(participant);
+              RosterEntry loaded = RosterEntry.of(participant);
+              RosterEntry raced = room.putIfAbsent(userId, loaded);
+              return raced != null ? raced : loaded;
+            });
+  }
+
+  /** Record a participant that was created or updated. Rooms not yet loaded are left alone. */
+  public void upsert(Participant participant) {
+    rooms.computeIfPresent(
+        participant.getSessionId(),
+        (id, room) -> {
+          room.put(participant.getUserId(), RosterEntry.of(participant));
+          return room;
+        });
+  }
+
+  /** Record a camera/microphone change. */
+  public void updateMediaState(
+      String sessionId, String userId, boolean cameraEnabled, boolean micEnabled) {
+    rooms.computeIfPresent(
+        sessionId,
+        (id, room) -> {
+          room.computeIfPresent(userId, (u, entry) -> entry.withMedia(cameraEnabled, micEnabled));
+          return room;
+        });
+  }
+
+  /** Record that a participant left or lost their connection. */
+  public void markDisconnected(String sessionId, String userId) {
+    rooms.computeIfPresent(
+        sessionId,
+        (id, room) -> {
+          room.computeIfPresent(
+              userId, (u, entry) -> entry.withStatus(Participant.Status.disconnected));
+          return room;
+        });
+  }
+
+  /** Drop a room once its session has ended. */
+  public void evict(String sessionId) {
+    rooms.remove(sessionId);
+  }
+
+  private Map<String, RosterEntry> load(String sessionId) {
+    Map<String, RosterEntry> room = toRoom(participantRepository.findBySessionId(sessionId));
+    log.debug("Loaded roster for session {} with {} participants", sessionId, room.size());
+    return room;
+  }
+
+  private Map<String, RosterEntry> toRoom(List<Participant> participants) {
+    return participants.stream()
+        .peek(mediaStateBuffer::apply)
+        .collect(
+            Collectors.toMap(
+                Participant::getUserId, RosterEntry::of, (a, b) -> b, ConcurrentHashMap::new));
+  }
+
+  /** Immutable view of a participant as seen by signaling. */
+  public record RosterEntry(
+      String userId,
+      String displayName,
+      boolean cameraEnabled,
+      boolean micEnabled,
+      Participant.Status status) {
+
+    static RosterEntry of(Participant participant) {
+      return new RosterEntry(
+          participant.getUserId(),
+          participant.getDisplayName() != null ? participant.getDisplayName() : "",
+          Boolean.TRUE.equals(participant.getCameraEnabled()),
+          Boolean.TRUE.equals(participant.getMicEnabled()),
+          participant.getStatus());
+    }
+
+    RosterEntry withMedia(boolean cameraEnabled, boolean micEnabled) {
+      return new RosterEntry(userId, displayName, cameraEnabled, micEnabled, status);
+    }
+
+    RosterEntry withStatus(Participant.Status status) {
+      return new RosterEntry(userId, displayName, cameraEnabled, micEnabled, status);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package org.wespeak.conversation.service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.wespeak.conversation.entity.SchedulerLease;
+import org.wespeak.conversation.repository.SchedulerLeaseRepository;
+
+/** Elects one node per scheduled job through fenced lease documents in Mongo. */
+@Slf4j
+@Service
+public class SchedulerLeases {
+
+  private final SchedulerLeaseRepository leaseRepository;
+  private final String owner;
+  private final Duration ttl;
+  private final Clock clock;
+
+  // Leases this node believes it holds, by job
+  private final Map<String, SchedulerLease> held = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SchedulerLeases(
+      SchedulerLeaseRepository leaseRepository,
+      @Value("${app.scheduling.lease.owner:}") String owner,
+      @Value("${app.scheduling.lease.ttl-ms:120000}") long ttlMillis) {
+    this(
+        leaseRepository,
+        StringUtils.hasText(owner) ? owner : UUID.randomUUID().toString(),
+        Duration.ofMillis(ttlMillis),
+        Clock.systemUTC());
+  }
+
+  SchedulerLeases(
+      SchedulerLeaseRepository leaseRepository, String owner, Duration ttl, Clock clock) {
+    this.leaseRepository = leaseRepository;
+    this.owner = owner;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  /** Renew or take this node's lease on a job; whether this node should run it now. */
+  public boolean holds(String job) {
+    Instant now = clock.instant();
+    Instant expiresAt = now.plus(ttl);
+
+    SchedulerLease current = held.get(job);
+    Optional<SchedulerLease> lease =
+        current != null
+            ? leaseRepository.renew(job, owner, current.getToken(), now, expiresAt)
+            : Optional.empty();
+    if (lease.isEmpty()) {
+      lease = leaseRepository.acquire(job, owner, now, expiresAt);
+    }
+
+    if (lease.isEmpty()) {
+      if (held.remove(job) != null) {
+        log.info("Node {} lost the lease on {}", owner, job);
+      }
+      return false;
+    }
+    if (current == null || current.getToken() != lease.get().getToken()) {
+      log.info("Node {} took the lease on {} with token {}", owner, job, lease.get().getToken());
+    }
+    held.put(job, lease.get());
+    return true;
+  }
+
+  /** Hand back every lease this node holds, so a replacement can take over without waiting. */
+  @PreDestroy
+  public void releaseAll() {
+    Instant now = clock.instant();
+    held.forEach((job, lease) -> leaseRepository.release(job, owner, lease.getToken(), now));
+    held.clear();
+  }
+}
@@ -0,0 +1,107 @@
+package org.wespeak.conversation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/**
+ * Repairs the denormalized {@link TimeSlot#getRegisteredCount() seat counts} of listed slots. The
+ * counts are kept by increments next to each registration write, so a crash between the two or
+ * slots that predate the counter leave them off.
+ *
+ * <p>Each run reads the slots of the catalog window and counts their seats in one aggregation. A
+ * registration caught between its two writes looks drifted too, and repairing it would leave the
+ * count off by one once its increment lands, so a count is only rewritten when the previous run
+ * found the same drift: same stored count, same seats. It is then written only if it has not moved
+ * since it was read. Leader-only (see {@link SchedulerLeases}); repairs are exported as {@code
+ * timeslot.seats.repaired}.
+ */
+@Slf4j
+@Service
+public class SeatCountReconciler {
+
+  static final String JOB = "seat-count-reconcile";
+
+  private final TimeSlotRepository timeSlotRepository;
+  private final RegistrationRepository registrationRepository;
+  private final SchedulerLeases schedulerLeases;
+  private final Duration lookBack;
+  private final Duration lookAhead;
+  private final Counter repaired;
+
+  /** Drift seen by the previous run, repaired if this run sees it unchanged. */
+  private Map<String, Drift> suspected = Map.of();
+
+  public SeatCountReconciler(
+      TimeSlotRepository timeSlotRepository,
+      RegistrationRepository registrationRepository,
+      SchedulerLeases schedulerLeases,
+      MeterRegistry meterRegistry,
+      @Value("${app.conversation.seat-count.look-back-hours:24}") long lookBackHours,
+      @Value("${app.conversation.seat-count.look-ahead-days:8}") long lookAheadDays) {
+    this.timeSlotRepository = timeSlotRepository;
+    this.registrationRepository = registrationRepository;
+    this.schedulerLeases = schedulerLeases;
+    this.lookBack = Duration.ofHours(lookBackHours);
+    this.lookAhead = Duration.ofDays(lookAheadDays);
+    this.repaired =
+        Counter.builder("timeslot.seats.repaired")
+            .description("Time slot seat counts found drifted and rewritten")
+            .register(meterRegistry);
+  }
+
+  /** Recount the seats of slots in the catalog window and fix the ones that drifted. */
+  @Scheduled(fixedDelayString = "${app.conversation.seat-count.reconcile-interval-ms:60000}")
+  public void reconcile() {
+    if (!schedulerLeases.holds(JOB)) {
+      return;
+    }
+    Instant now = Instant.now();
+    List<TimeSlot> slots =
+        timeSlotRepository.findByStartTimeBetweenAndIsActive(
+            now.minus(lookBack), now.plus(lookAhead), true);
+    if (slots.isEmpty()) {
+      return;
+    }
+
+    // Read the stored counts before counting, so a registration in between shows up as a change
+    Map<String, Integer> stored = new HashMap<>();
+    slots.forEach(slot -> stored.put(slot.getId(), slot.getRegisteredCount()));
+    Map<String, Integer> actual = registrationRepository.countSeatsTaken(stored.keySet());
+
+    Map<String, Drift> drifted = new HashMap<>();
+    Map<String, Integer> confirmed = new HashMap<>();
+    stored.forEach(
+        (timeSlotId, count) -> {
+          int seats = actual.getOrDefault(timeSlotId, 0);
+          if (count == null || count != seats) {
+            Drift drift = new Drift(count, seats);
+            drifted.put(timeSlotId, drift);
+            if (drift.equals(suspected.get(timeSlotId))) {
+              confirmed.put(timeSlotId, seats);
+            }
+          }
+        });
+    suspected = drifted;
+    if (confirmed.isEmpty()) {
+      return;
+    }
+
+    int fixed = timeSlotRepository.repairSeatCounts(stored, confirmed);
+    repaired.increment(fixed);
+    log.info("Repaired seat counts of {} of {} drifted time slots", fixed, confirmed.size());
+  }
+
+  private record Drift(Integer stored, int seats) {}
+}
@@ -0,0 +1,432 @@
+package org.wespeak.conversation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+
+/** Starts and ends live sessions, one actor per session processing its commands in order. */
+@Slf4j
+@Service
+public class SessionActors {
+
+  private final SessionRepository sessionRepository;
+  private final ParticipantRepository participantRepository;
+  private final RegistrationService registrationService;
+  private final ConversationEventPublisher eventPublisher;
+  private final RoomRosterService roomRosterService;
+  private final MediaStateBuffer mediaStateBuffer;
+  private final PresenceCache presenceCache;
+  private final Executor executor;
+  private final Executor finalizer;
+
+  private final Map<String, SessionActor> actors = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> endedListeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<String>> disconnectedListeners = new CopyOnWriteArrayList<>();
+
+  @Value("${app.conversation.min-participants:2}")
+  private int minParticipants;
+
+  @Value("${app.conversation.actor-idle-timeout-ms:600000}")
+  private long idleTimeoutMs;
+
+  @Autowired
+  public SessionActors(
+      SessionRepository sessionRepository,
+      ParticipantRepository participantRepository,
+      RegistrationService registrationService,
+      ConversationEventPublisher eventPublisher,
+      RoomRosterService roomRosterService,
+      MediaStateBuffer mediaStateBuffer,
+      PresenceCache presenceCache,
+      MeterRegistry meterRegistry,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${app.conversation.finalize-parallelism:8}") int finalizeParallelism) {
+    this(
+        sessionRepository,
+        participantRepository,
+        registrationService,
+        eventPublisher,
+        roomRosterService,
+        mediaStateBuffer,
+        presenceCache,
+        meterRegistry,
+        virtualThreads
+            ? Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("session-actor-", 0).factory())
+            : Executors.newCachedThreadPool(
+                Thread.ofPlatform().name("session-actor-", 0).daemon(true).factory()),
+        Executors.newFixedThreadPool(
+            finalizeParallelism,
+            virtualThreads
+                ? Thread.ofVirtual().name("session-finalizer-", 0).factory()
+                : Thread.ofPlatform().name("session-finalizer-", 0).daemon(true).factory()));
+  }
+
+  SessionActors(
+      SessionRepository sessionRepository,
+      ParticipantRepository participantRepository,
+      RegistrationService registrationService,
+      ConversationEventPublisher eventPublisher,
+      RoomRosterService roomRosterService,
+      MediaStateBuffer mediaStateBuffer,
+      PresenceCache presenceCache,
+      MeterRegistry meterRegistry,
+      Executor executor,
+      Executor finalizer) {
+    this.sessionRepository = sessionRepository;
+    this.participantRepository = participantRepository;
+    this.registrationService = registrationService;
+    this.eventPublisher = eventPublisher;
+    this.roomRosterService = roomRosterService;
+    this.mediaStateBuffer = mediaStateBuffer;
+    this.presenceCache = presenceCache;
+    this.executor = executor;
+    this.finalizer = finalizer;
+
+    Gauge.builder("sessions.actors.live", actors, Map::size)
+        .description("Live sessions with an actor on this node")
+        .register(meterRegistry);
+  }
+
+  /** Register a callback run with the session id whenever an actor ends a session. */
+  public void onEnded(Consumer<String> listener) {
+    endedListeners.add(listener);
+  }
+
+  /** Register a callback run with the session id once an ended session's room is disconnected. */
+  public void onDisconnected(Consumer<String> listener) {
+    disconnectedListeners.add(listener);
+  }
+
+  /** A participant took a seat in {@code seated}; completes once the actor has processed it. */
+  public CompletableFuture<Session> joined(Session seated, Participant participant) {
+    return tell(seated.getId(), new Joined(seated, participant));
+  }
+
+  /** A participant left; {@code released} is the session after their seat, if any, was freed. */
+  public void left(String sessionId, String userId, Instant leftAt, Session released) {
+    if (released != null && released.getStatus() == Session.Status.ended) {
+      return;
+    }
+    tell(sessionId, new Left(userId, leftAt, released));
+  }
+
+  /** Set up the actor of a session about to open from state the caller already fetched. */
+  public void prepare(Session session, List<Participant> participants) {
+    if (session.getStatus() == Session.Status.ended) {
+      return;
+    }
+    tell(session.getId(), new Prepare(session, participants));
+  }
+
+  /** The session is past its end time; end it whoever is still connected. */
+  public void expire(String sessionId) {
+    tell(sessionId, new Expire());
+  }
+
+  /** Another node ended the session; drop its actor here. */
+  public void evict(String sessionId) {
+    SessionActor actor = actors.get(sessionId);
+    if (actor != null) {
+      actor.retire(0);
+    }
+  }
+
+  /** Drop actors that have had nothing to do for the idle timeout. */
+  @Scheduled(fixedDelayString = "${app.conversation.actor-idle-sweep-ms:60000}")
+  public void evictIdle() {
+    long now = System.nanoTime();
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    actors
+        .values()
+        .forEach(
+            actor -> {
+              if (actor.isIdleFor(now, timeoutNanos)) {
+                actor.retire(timeoutNanos);
+              }
+            });
+  }
+
+  int liveActors() {
+    return actors.size();
+  }
+
+  /** Queue a command on the session's actor, or on its successor if that actor has retired. */
+  private CompletableFuture<Session> tell(String sessionId, Command command) {
+    CompletableFuture<Session> result;
+    do {
+      result = actors.computeIfAbsent(sessionId, SessionActor::new).tell(command);
+    } while (result == null);
+    return result;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (executor instanceof ExecutorService executorService) {
+      executorService.shutdown();
+    }
+    if (finalizer instanceof ExecutorService finalizerService) {
+      finalizerService.shutdown();
+    }
+  }
+
+  /** Disconnect whoever is left, mark no-shows and announce the end. */
+  private void finalizeEnded(Session ended) {
+    String sessionId = ended.getId();
+    try {
+      mediaStateBuffer.flushSession(sessionId);
+      participantRepository.disconnectAll(sessionId, ended.getEndedAt());
+      disconnectedListeners.forEach(listener -> listener.accept(sessionId));
+      long noShows = registrationService.markNoShows(ended.getTimeSlotId());
+
+      roomRosterService.evict(sessionId);
+      List<Participant> participants = participantRepository.findBySessionId(sessionId);
+      participants.forEach(p -> presenceCache.invalidate(p.getUserId()));
+      eventPublisher.publishSessionEnded(ended, participants);
+      endedListeners.forEach(listener -> listener.accept(sessionId));
+      log.info("Session {} ended, {} no-shows", sessionId, noShows);
+    } catch (RuntimeException e) {
+      log.error("Failed to finalize ended session {}", sessionId, e);
+    }
+  }
+
+  private sealed interface Command permits Prepare, Joined, Left, Expire, Retire {}
+
+  private record Prepare(Session session, List<Participant> participants) implements Command {}
+
+  private record Joined(Session seated, Participant participant) implements Command {}
+
+  private record Left(String userId, Instant leftAt, Session released) implements Command {}
+
+  private record Expire() implements Command {}
+
+  /** Stop owning the session, if nothing was told for {@code idleNanos}. */
+  private record Retire(long idleNanos) implements Command {}
+
+  private record Envelope(Command command, CompletableFuture<Session> result) {}
+
+  /** One live session; its fields are only touched while processing a command. */
+  private final class SessionActor {
+
+    private final String sessionId;
+    private final Queue<Envelope> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long lastToldNanos = System.nanoTime();
+    private volatile boolean retired;
+
+    private Session session;
+    private Map<String, Participant> participants;
+
+    private SessionActor(String sessionId) {
+      this.sessionId = sessionId;
+    }
+
+    /** Null if the actor has retired; the caller then tells its successor. */
+    CompletableFuture<Session> tell(Command command) {
+      if (retired) {
+        return null;
+      }
+      if (!(command instanceof Retire)) {
+        lastToldNanos = System.nanoTime();
+      }
+      CompletableFuture<Session> result = new CompletableFuture<>();
+      mailbox.add(new Envelope(command, result));
+      schedule();
+      return result;
+    }
+
+    void retire(long idleNanos) {
+      tell(new Retire(idleNanos));
+    }
+
+    boolean isIdleFor(long now, long timeoutNanos) {
+      return !scheduled.get() && mailbox.isEmpty() && now - lastToldNanos >= timeoutNanos;
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      Envelope envelope;
+      while (!retired && (envelope = mailbox.poll()) != null) {
+        try {
+          envelope.result().complete(process(envelope.command()));
+        } catch (RuntimeException e) {
+          log.error("Session {} failed to process {}", sessionId, envelope.command(), e);
+          envelope.result().completeExceptionally(e);
+        }
+      }
+      if (retired) {
+        actors.remove(sessionId, this);
+        // Commands told before they could see the retirement go to the successor
+        while ((envelope = mailbox.poll()) != null) {
+          forward(envelope);
+        }
+      }
+      scheduled.set(false);
+      // A command told between the last poll and the reset would otherwise wait for the next one
+      if (!mailbox.isEmpty()) {
+        schedule();
+      }
+    }
+
+    private void forward(Envelope envelope) {
+      if (envelope.command() instanceof Retire) {
+        envelope.result().complete(session);
+        return;
+      }
+      SessionActors.this
+          .tell(sessionId, envelope.command())
+          .whenComplete(
+              (result, e) -> {
+                if (e != null) {
+                  envelope.result().completeExceptionally(e);
+                } else {
+                  envelope.result().complete(result);
+                }
+              });
+    }
+
+    private Session process(Command command) {
+      if (command instanceof Retire retire) {
+        retired = System.nanoTime() - lastToldNanos >= retire.idleNanos();
+        return session;
+      }
+      if (participants == null) {
+        load(command);
+      }
+      if (session == null || session.getStatus() == Session.Status.ended) {
+        // Gone or already ended, e.g. by another node; nothing is left for this actor to own
+        retired = true;
+        return session;
+      }
+      // Prepare needs nothing beyond the state loaded above
+      if (command instanceof Joined joined) {
+        onJoined(joined);
+      } else if (command instanceof Left left) {
+        onLeft(left);
+      } else if (command instanceof Expire) {
+        onExpire();
+      }
+      return session;
+    }
+
+    /** Build the actor's state once; later commands keep it current without reading Mongo. */
+    private void load(Command command) {
+      List<Participant> loaded;
+      if (command instanceof Prepare prepare) {
+        session = prepare.session();
+        loaded = prepare.participants();
+      } else {
+        session =
+            command instanceof Joined joined
+                ? joined.seated()
+                : sessionRepository.findById(sessionId).orElse(null);
+        loaded = participantRepository.findBySessionId(sessionId);
+      }
+      participants = new HashMap<>();
+      for (Participant participant : loaded) {
+        participants.put(participant.getUserId(), participant);
+      }
+    }
+
+    private void onJoined(Joined joined) {
+      Participant participant = joined.participant();
+      participants.put(participant.getUserId(), participant);
+
+      Session seated = joined.seated();
+      if (session.getStatus() != Session.Status.waiting
+          || seated.getConnectedCount() < minParticipants) {
+        return;
+      }
+
+      // The update re-checks the count in Mongo, so only one node ever activates a session
+      sessionRepository
+          .activate(sessionId, minParticipants, Instant.now())
+          .ifPresent(
+              activated -> {
+                session = activated;
+                eventPublisher.publishSessionStarted(activated, connectedParticipants(activated));
+                log.info(
+                    "Session {} activated with {} participants",
+                    sessionId,
+                    activated.getConnectedCount());
+              });
+    }
+
+    private void onLeft(Left left) {
+      Participant participant = participants.get(left.userId());
+      if (participant != null) {
+        participant.setStatus(Participant.Status.disconnected);
+        participant.setLeftAt(left.leftAt());
+      }
+
+      Session released = left.released();
+      if (released != null
+          && released.getConnectedCount() == 0
+          && released.getStatus() == Session.Status.active) {
+        end(sessionRepository.endIfEmpty(sessionId, Instant.now()).orElse(null));
+      }
+    }
+
+    private void onExpire() {
+      Session ended = sessionRepository.end(sessionId, Instant.now()).orElse(null);
+      if (ended == null) {
+        // Already ended, e.g. by another node; nothing is left for this actor to own
+        retired = true;
+        return;
+      }
+      end(ended);
+    }
+
+    /** Wind down a session this actor has just ended in Mongo; null if it was not ended. */
+    private void end(Session ended) {
+      if (ended == null) {
+        return;
+      }
+      session = ended;
+      retired = true;
+      finalizer.execute(() -> finalizeEnded(ended));
+    }
+
+    /** Participants connected now, re-read when the roster disagrees with the count in Mongo. */
+    private List<Participant> connectedParticipants(Session current) {
+      List<Participant> connected =
+          participants.values().stream()
+              .filter(p -> p.getStatus() == Participant.Status.connected)
+              .toList();
+      if (connected.size() == current.getConnectedCount()) {
+        return connected;
+      }
+      return participantRepository.findBySessionIdAndStatusNot(
+          sessionId, Participant.Status.disconnected);
+    }
+  }
+}
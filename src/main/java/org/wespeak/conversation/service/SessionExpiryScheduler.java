@@ -0,0 +1,184 @@
+package org.wespeak.conversation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/** Ends each session at its {@code endTime} from a queue of its upcoming deadlines. */
+@Slf4j
+@Service
+public class SessionExpiryScheduler {
+
+  static final String JOB = "session-expiry-sweep";
+
+  private static final Set<Session.Status> LIVE =
+      EnumSet.of(Session.Status.waiting, Session.Status.active);
+
+  private final SessionRepository sessionRepository;
+  private final TimeSlotRepository timeSlotRepository;
+  private final SessionActors sessionActors;
+  private final SchedulerLeases schedulerLeases;
+  private final ScheduledExecutorService timer;
+  private final Duration horizon;
+
+  private final Map<String, ScheduledFuture<?>> deadlines = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SessionExpiryScheduler(
+      SessionRepository sessionRepository,
+      TimeSlotRepository timeSlotRepository,
+      SessionActors sessionActors,
+      SchedulerLeases schedulerLeases,
+      MeterRegistry meterRegistry,
+      @Value("${app.conversation.expiry.sweep-interval-ms:60000}") long sweepIntervalMillis) {
+    this(
+        sessionRepository,
+        timeSlotRepository,
+        sessionActors,
+        schedulerLeases,
+        meterRegistry,
+        sweepIntervalMillis,
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-expiry").daemon(true).factory()));
+  }
+
+  SessionExpiryScheduler(
+      SessionRepository sessionRepository,
+      TimeSlotRepository timeSlotRepository,
+      SessionActors sessionActors,
+      SchedulerLeases schedulerLeases,
+      MeterRegistry meterRegistry,
+      long sweepIntervalMillis,
+      ScheduledExecutorService timer) {
+    this.sessionRepository = sessionRepository;
+    this.timeSlotRepository = timeSlotRepository;
+    this.sessionActors = sessionActors;
+    this.schedulerLeases = schedulerLeases;
+    this.timer = timer;
+    this.horizon = Duration.ofMillis(sweepIntervalMillis * 2);
+
+    sessionActors.onEnded(this::cancel);
+    Gauge.builder("sessions.expiry.pending", deadlines, Map::size)
+        .description("Session deadlines waiting in the expiry queue")
+        .register(meterRegistry);
+  }
+
+  /** Queue a session's deadline if it falls within the horizon; the sweep picks up later ones. */
+  public void schedule(String sessionId, Instant endTime) {
+    if (endTime == null) {
+      return;
+    }
+    long delayMillis = Duration.between(Instant.now(), endTime).toMillis();
+    if (delayMillis > horizon.toMillis()) {
+      return;
+    }
+    deadlines.computeIfAbsent(
+        sessionId,
+        id -> timer.schedule(() -> fire(id), Math.max(delayMillis, 0), TimeUnit.MILLISECONDS));
+  }
+
+  /** Drop a deadline, e.g. because the session ended early. */
+  public void cancel(String sessionId) {
+    ScheduledFuture<?> deadline = deadlines.remove(sessionId);
+    if (deadline != null) {
+      deadline.cancel(false);
+    }
+  }
+
+  int pending() {
+    return deadlines.size();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!schedulerLeases.holds(JOB)) {
+      return;
+    }
+    backfillEndTimes();
+    sweepDue();
+  }
+
+  /** Expire overdue sessions and queue those due within the horizon. */
+  @Scheduled(
+      fixedDelayString = "${app.conversation.expiry.sweep-interval-ms:60000}",
+      initialDelayString = "${app.conversation.expiry.sweep-interval-ms:60000}")
+  public void sweep() {
+    if (schedulerLeases.holds(JOB)) {
+      sweepDue();
+    }
+  }
+
+  private void sweepDue() {
+    Instant now = Instant.now();
+    List<Session> due =
+        sessionRepository.findByStatusInAndEndTimeBeforeOrderByEndTimeAsc(LIVE, now.plus(horizon));
+
+    int overdue = 0;
+    for (Session session : due) {
+      if (session.getEndTime().isAfter(now)) {
+        schedule(session.getId(), session.getEndTime());
+      } else if (!deadlines.containsKey(session.getId())) {
+        sessionActors.expire(session.getId());
+        overdue++;
+      }
+    }
+    if (overdue > 0) {
+      log.info("Expiry sweep ended {} overdue sessions", overdue);
+    }
+  }
+
+  /** Give live sessions created before sessions carried an end time one, from their slot. */
+  private void backfillEndTimes() {
+    List<Session> missing = sessionRepository.findByStatusInAndEndTimeIsNull(LIVE);
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    Map<String, TimeSlot> slots =
+        timeSlotRepository
+            .findAllById(missing.stream().map(Session::getTimeSlotId).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(TimeSlot::getId, Function.identity()));
+    for (Session session : missing) {
+      TimeSlot slot = slots.get(session.getTimeSlotId());
+      if (slot != null) {
+        sessionRepository.setEndTime(session.getId(), slot.getEndTime());
+      }
+    }
+    log.info("Backfilled end time of {} sessions", missing.size());
+  }
+
+  private void fire(String sessionId) {
+    deadlines.remove(sessionId);
+    sessionActors.expire(sessionId);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    timer.shutdownNow();
+  }
+}
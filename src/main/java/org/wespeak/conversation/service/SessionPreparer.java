@@ -0,0 +1,147 @@
+package org.wespeak.conversation.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/**
+ * Creates sessions for time slots ahead of their start and warms their rooms and actors on every
+ * node. Only the lease holder (see {@link SchedulerLeases}) writes the sessions in bulk.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SessionPreparer {
+
+  static final String JOB = "session-prepare";
+
+  private final TimeSlotRepository timeSlotRepository;
+  private final SessionRepository sessionRepository;
+  private final ParticipantRepository participantRepository;
+  private final RoomRosterService roomRosterService;
+  private final SessionActors sessionActors;
+  private final SessionExpiryScheduler sessionExpiryScheduler;
+  private final SchedulerLeases schedulerLeases;
+
+  // Slots this node has prepared -> their start time, forgotten once they start
+  private final Map<String, Instant> prepared = new ConcurrentHashMap<>();
+
+  @Value("${app.conversation.session-lead-minutes:5}")
+  private int leadMinutes;
+
+  @Value("${app.conversation.grace-period-minutes:5}")
+  private int gracePeriodMinutes;
+
+  /** Create the session for a time slot unless it already exists. */
+  public Session createSession(TimeSlot slot) {
+    Session session = sessionRepository.createIfAbsent(newSession(slot));
+    sessionExpiryScheduler.schedule(session.getId(), session.getEndTime());
+    log.debug("Session {} ready for time slot {}", session.getId(), slot.getId());
+    return session;
+  }
+
+  /** Open the sessions of slots starting within the lead time and warm their state. */
+  @Scheduled(fixedDelayString = "${app.conversation.session-prepare-interval-ms:15000}")
+  public void prepareUpcomingSessions() {
+    Instant now = Instant.now();
+    prepared.values().removeIf(start -> start.isBefore(now));
+
+    List<TimeSlot> slots =
+        timeSlotRepository
+            .findByStartTimeBetweenAndIsActive(now, now.plus(leadMinutes, ChronoUnit.MINUTES), true)
+            .stream()
+            .filter(slot -> !prepared.containsKey(slot.getId()))
+            .toList();
+    if (slots.isEmpty()) {
+      return;
+    }
+
+    if (schedulerLeases.holds(JOB)) {
+      sessionRepository.createAllIfAbsent(slots.stream().map(this::newSession).toList());
+    }
+    // Other nodes warm what the lease holder has created; missing slots are retried next run
+    List<Session> sessions =
+        sessionRepository.findByTimeSlotIdIn(slots.stream().map(TimeSlot::getId).toList());
+    if (sessions.isEmpty()) {
+      return;
+    }
+
+    // Rooms may already have participants if users joined before this run
+    Map<String, List<Participant>> participants =
+        participantRepository.findBySessionIdIn(sessions.stream().map(Session::getId).toList())
+            .stream()
+            .collect(Collectors.groupingBy(Participant::getSessionId));
+    for (Session session : sessions) {
+      List<Participant> roster = participants.getOrDefault(session.getId(), List.of());
+      roomRosterService.prime(session.getId(), roster);
+      sessionActors.prepare(session, roster);
+      sessionExpiryScheduler.schedule(session.getId(), session.getEndTime());
+    }
+
+    Map<String, Instant> starts =
+        slots.stream().collect(Collectors.toMap(TimeSlot::getId, TimeSlot::getStartTime));
+    sessions.forEach(s -> prepared.put(s.getTimeSlotId(), starts.get(s.getTimeSlotId())));
+    log.info("Prepared {} sessions starting within {} minutes", sessions.size(), leadMinutes);
+  }
+
+  /** Give live sessions created before sessions carried a join deadline one, from their slot. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillJoinDeadlines() {
+    if (!schedulerLeases.holds(JOB)) {
+      return;
+    }
+    List<Session> missing =
+        sessionRepository.findByStatusInAndJoinDeadlineIsNull(
+            List.of(Session.Status.waiting, Session.Status.active));
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    Map<String, TimeSlot> slots =
+        timeSlotRepository
+            .findAllById(missing.stream().map(Session::getTimeSlotId).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(TimeSlot::getId, Function.identity()));
+    for (Session session : missing) {
+      TimeSlot slot = slots.get(session.getTimeSlotId());
+      if (slot != null) {
+        sessionRepository.setJoinDeadline(session.getId(), joinDeadline(slot));
+      }
+    }
+    log.info("Backfilled join deadline of {} sessions", missing.size());
+  }
+
+  /** The session to open for a slot; also used by the reactive join path. */
+  Session newSession(TimeSlot slot) {
+    return Session.builder()
+        .timeSlotId(slot.getId())
+        .targetLanguageCode(slot.getTargetLanguageCode())
+        .level(slot.getLevel())
+        .status(Session.Status.waiting)
+        .recordingEnabled(false)
+        .joinDeadline(joinDeadline(slot))
+        .endTime(slot.getEndTime())
+        .build();
+  }
+
+  private Instant joinDeadline(TimeSlot slot) {
+    return slot.getStartTime().plus(gracePeriodMinutes, ChronoUnit.MINUTES);
+  }
+}
@@ -1,16 +1,18 @@
 package org.wespeak.conversation.service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.wespeak.conversation.dto.*;
 import org.wespeak.conversation.entity.*;
@@ -27,113 +29,119 @@ public class SessionService {
   private final ParticipantRepository participantRepository;
   private final TimeSlotRepository timeSlotRepository;
   private final RegistrationService registrationService;
-  private final ConversationEventPublisher eventPublisher;
-
-  @Value("${app.conversation.grace-period-minutes:5}")
-  private int gracePeriodMinutes;
+  private final RoomRosterService roomRosterService;
+  private final MediaStateBuffer mediaStateBuffer;
+  private final SessionActors sessionActors;
+  private final SessionPreparer sessionPreparer;
+  private final PresenceCache presenceCache;
+  private final SessionSnapshots sessionSnapshots;
 
   @Value("${app.conversation.max-participants:8}")
   private int maxParticipants;
 
-  @Value("${app.conversation.min-participants:2}")
-  private int minParticipants;
+  @Value("${app.conversation.snapshot.long-poll-timeout-ms:25000}")
+  private long longPollTimeoutMillis;
 
-  /** Join a session. */
+  /** Join a session through conditional writes, undoing each step if a later one fails. */
   public SessionDto joinSession(String userId, JoinSessionRequest request) {
     String timeSlotId = request.getTimeSlotId();
+    boolean recordingConsent = Boolean.TRUE.equals(request.getRecordingConsent());
 
-    // Check if user is registered
-    if (!registrationService.isUserRegistered(timeSlotId, userId)) {
+    // Claiming the registration also keeps two joins of the same user from both passing
+    if (!registrationService.claimAttendance(timeSlotId, userId)) {
       throw SessionException.notRegistered();
     }
 
-    // Check if user is already in another active session
-    Optional<Participant> existingParticipant =
-        participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected);
-    if (existingParticipant.isPresent()) {
-      throw SessionException.alreadyInSession();
-    }
-
-    // Get or create session for this time slot
-    Session session = getOrCreateSession(timeSlotId);
-
-    // Check join window
-    TimeSlot slot = timeSlotRepository.findById(timeSlotId).orElseThrow();
-    Instant joinDeadline = slot.getStartTime().plus(gracePeriodMinutes, ChronoUnit.MINUTES);
-    if (Instant.now().isAfter(joinDeadline)) {
-      throw SessionException.joinWindowClosed();
-    }
-
-    // Check session status
-    if (session.getStatus() == Session.Status.ended) {
-      throw SessionException.sessionEnded();
-    }
-
-    // Check capacity
-    long activeParticipants =
-        participantRepository.countBySessionIdAndStatus(
-            session.getId(), Participant.Status.connected);
-    if (activeParticipants >= maxParticipants) {
-      throw SessionException.sessionFull();
-    }
-
-    // Create or update participant
-    Participant participant =
-        participantRepository
-            .findBySessionIdAndUserId(session.getId(), userId)
-            .orElseGet(
-                () ->
-                    Participant.builder()
-                        .sessionId(session.getId())
-                        .userId(userId)
-                        .displayName(
-                            request.getDisplayName() != null ? request.getDisplayName() : "User")
-                        .build());
-
-    participant.setStatus(Participant.Status.connected);
-    participant.setJoinedAt(Instant.now());
-    participant.setRecordingConsent(request.getRecordingConsent());
-    participantRepository.save(participant);
-
-    // Update recording status if this participant consented
-    if (request.getRecordingConsent()) {
-      session.setRecordingEnabled(true);
-      sessionRepository.save(session);
+    Session session;
+    Participant participant;
+    try {
+      session = reserveSeat(timeSlotId, recordingConsent);
+      try {
+        participant =
+            participantRepository.upsertConnected(
+                session.getId(),
+                userId,
+                request.getDisplayName() != null ? request.getDisplayName() : "User",
+                recordingConsent,
+                Instant.now());
+      } catch (DuplicateKeyException e) {
+        // Connected to this or another session already
+        sessionRepository.releaseSeat(session.getId());
+        throw SessionException.alreadyInSession();
+      } catch (RuntimeException e) {
+        sessionRepository.releaseSeat(session.getId());
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      registrationService.releaseAttendance(timeSlotId, userId);
+      throw e;
     }
+    roomRosterService.upsert(participant);
+    presenceCache.joined(participant);
 
-    // Check if session should become active
-    activateSessionIfReady(session);
-
-    // Mark registration as attended
-    registrationService.markAttended(timeSlotId, userId);
+    // The session's actor decides whether this join starts it; the response does not wait for it
+    actorJoined(session, participant);
 
     log.info("User {} joined session {}", userId, session.getId());
-    return toSessionDto(session);
+    return sessionSnapshots.publish(session).session();
   }
 
-  /** Get current session for a user. */
-  public SessionDto getCurrentSession(String userId) {
-    Participant participant =
-        participantRepository
-            .findByUserIdAndStatusNot(userId, Participant.Status.disconnected)
-            .orElseThrow(SessionException::noActiveSession);
+  /** Hand a join to the session's actor, marking the snapshot changed if it activated. */
+  void actorJoined(Session seated, Participant participant) {
+    sessionActors
+        .joined(seated, participant)
+        .whenComplete(
+            (processed, e) -> {
+              if (e != null) {
+                log.warn(
+                    "Session {} actor failed on the join of {}: {}",
+                    seated.getId(),
+                    participant.getUserId(),
+                    e.toString());
+              } else if (processed != null && processed.getStatus() != seated.getStatus()) {
+                sessionSnapshots.changed(seated.getId());
+              }
+            });
+  }
 
-    Session session =
-        sessionRepository
-            .findById(participant.getSessionId())
-            .orElseThrow(
-                () -> ResourceNotFoundException.sessionNotFound(participant.getSessionId()));
+  /** Get current session for a user, as a snapshot shared with the other participants. */
+  public SessionSnapshots.Snapshot getCurrentSession(String userId) {
+    return sessionSnapshots.current(currentSessionId(userId));
+  }
 
-    return toSessionDto(session);
+  /**
+   * Wait until the user's current session is past {@code sinceVersion}. Completes with the
+   * snapshot as it is at the long-poll timeout if nothing changed by then.
+   */
+  public CompletableFuture<SessionSnapshots.Snapshot> awaitCurrentSession(
+      String userId, long sinceVersion) {
+    return sessionSnapshots.awaitChange(
+        currentSessionId(userId), sinceVersion, Duration.ofMillis(longPollTimeoutMillis));
   }
 
-  /** Update media state (camera/mic). */
+  private String currentSessionId(String userId) {
+    return presenceCache
+        .find(userId)
+        .map(PresenceCache.Presence::sessionId)
+        .orElseThrow(SessionException::noActiveSession);
+  }
+
+  /** Update media state (camera/mic). Written to Mongo in the background. */
   public ParticipantDto updateMediaState(String userId, MediaStateRequest request) {
-    Participant participant =
-        participantRepository
-            .findByUserIdAndStatusNot(userId, Participant.Status.disconnected)
-            .orElseThrow(SessionException::noActiveSession);
+    return applyMediaState(
+        presenceCache
+            .find(userId)
+            .map(PresenceCache.Presence::toParticipant)
+            .orElseThrow(SessionException::noActiveSession),
+        request);
+  }
 
+  /** Apply a media update to the user's live participant; in memory only. */
+  ParticipantDto applyMediaState(Participant participant, MediaStateRequest request) {
+    String userId = participant.getUserId();
+
+    // Start from the latest buffered state so a partial update keeps the other flag
+    mediaStateBuffer.apply(participant);
     if (request.getCameraEnabled() != null) {
       participant.setCameraEnabled(request.getCameraEnabled());
     }
@@ -141,52 +149,120 @@ public class SessionService {
       participant.setMicEnabled(request.getMicEnabled());
     }
 
-    participant = participantRepository.save(participant);
+    mediaStateBuffer.record(
+        participant.getSessionId(),
+        userId,
+        participant.getCameraEnabled(),
+        participant.getMicEnabled());
+    roomRosterService.updateMediaState(
+        participant.getSessionId(),
+        userId,
+        participant.getCameraEnabled(),
+        participant.getMicEnabled());
+    presenceCache.updateMediaState(
+        userId, participant.getCameraEnabled(), participant.getMicEnabled());
     log.debug(
         "User {} updated media state: camera={}, mic={}",
         userId,
         participant.getCameraEnabled(),
         participant.getMicEnabled());
 
-    return toParticipantDto(participant);
+    return sessionSnapshots.toParticipantDto(participant);
   }
 
   /** Leave the current session. */
   public void leaveSession(String userId) {
-    Participant participant =
-        participantRepository
-            .findByUserIdAndStatusNot(userId, Participant.Status.disconnected)
+    String sessionId =
+        presenceCache
+            .find(userId)
+            .map(PresenceCache.Presence::sessionId)
             .orElseThrow(SessionException::noActiveSession);
 
-    participant.setStatus(Participant.Status.disconnected);
-    participant.setLeftAt(Instant.now());
-    participantRepository.save(participant);
+    disconnect(sessionId, userId);
+    log.info("User {} left session {}", userId, sessionId);
+  }
 
-    // Check if session should end
-    Session session = sessionRepository.findById(participant.getSessionId()).orElse(null);
-    if (session != null) {
-      checkAndEndSession(session);
-    }
+  /**
+   * Disconnect a participant who left or lost their signaling connection, and let the session's
+   * actor decide whether the session ends.
+   */
+  public void disconnect(String sessionId, String userId) {
+    Instant leftAt = Instant.now();
+    Optional<Participant> previous =
+        participantRepository.markDisconnected(sessionId, userId, leftAt);
+
+    // Only the write that disconnects a connected participant gives the seat back
+    Session released =
+        previous
+            .filter(p -> p.getStatus() == Participant.Status.connected)
+            .flatMap(p -> sessionRepository.releaseSeat(sessionId))
+            .orElse(null);
+    disconnected(sessionId, userId, leftAt, previous.isPresent(), released);
+  }
 
-    log.info("User {} left session {}", userId, participant.getSessionId());
+  /**
+   * Bookkeeping after a participant's disconnect was written: {@code wasIn} tells whether there
+   * was a participant to disconnect, {@code released} is the session after giving back their seat.
+   */
+  void disconnected(
+      String sessionId, String userId, Instant leftAt, boolean wasIn, Session released) {
+    mediaStateBuffer.flush(sessionId, userId);
+    roomRosterService.markDisconnected(sessionId, userId);
+    presenceCache.invalidate(userId);
+
+    if (wasIn) {
+      sessionSnapshots.changed(sessionId);
+      sessionActors.left(sessionId, userId, leftAt, released);
+    }
   }
 
-  /** Get session history for a user. */
-  public SessionHistoryResponse getSessionHistory(String userId, int page, int size) {
-    Page<Participant> participantPage =
-        participantRepository.findByUserIdOrderByJoinedAtDesc(userId, PageRequest.of(page, size));
+  /** Get session history for a user, newest first, after {@code cursor} or else by {@code page}. */
+  public SessionHistoryResponse getSessionHistory(
+      String userId, String cursor, int page, int size) {
+    List<Participant> rows;
+    if (cursor != null) {
+      HistoryCursor after = HistoryCursor.decode(cursor);
+      rows = participantRepository.findHistory(userId, after.joinedAt(), after.id(), 0, size + 1);
+    } else {
+      rows = participantRepository.findHistory(userId, null, null, page * size, size + 1);
+    }
+
+    // One extra row tells whether there is a next page
+    boolean hasMore = rows.size() > size;
+    if (hasMore) {
+      rows = rows.subList(0, size);
+    }
 
+    Set<String> sessionIds =
+        rows.stream().map(Participant::getSessionId).collect(Collectors.toSet());
+    Map<String, Session> sessions = new HashMap<>();
+    sessionRepository.findAllById(sessionIds).forEach(s -> sessions.put(s.getId(), s));
+
+    return historyPage(
+        rows,
+        hasMore,
+        sessions,
+        participantRepository.countConnected(sessionIds),
+        participantRepository.countByUserIdAndJoinedAtNotNull(userId));
+  }
+
+  /**
+   * A history page from its rows, their sessions, the participants connected to each session and
+   * the user's history size.
+   */
+  static SessionHistoryResponse historyPage(
+      List<Participant> rows,
+      boolean hasMore,
+      Map<String, Session> sessions,
+      Map<String, Integer> connectedCounts,
+      long total) {
     List<SessionHistoryResponse.SessionHistoryItem> items =
-        participantPage.getContent().stream()
+        rows.stream()
             .map(
                 p -> {
-                  Session session = sessionRepository.findById(p.getSessionId()).orElse(null);
+                  Session session = sessions.get(p.getSessionId());
                   int participantCount =
-                      session != null
-                          ? (int)
-                              participantRepository.countBySessionIdAndStatus(
-                                  session.getId(), Participant.Status.connected)
-                          : 0;
+                      session != null ? connectedCounts.getOrDefault(session.getId(), 0) : 0;
                   return SessionHistoryResponse.SessionHistoryItem.builder()
                       .sessionId(p.getSessionId())
                       .targetLanguageCode(session != null ? session.getTargetLanguageCode() : null)
@@ -203,160 +279,49 @@ public class SessionService {
 
     return SessionHistoryResponse.builder()
         .sessions(items)
-        .total(participantPage.getTotalElements())
-        .hasMore(participantPage.hasNext())
+        .total(total)
+        .hasMore(hasMore)
+        .nextCursor(hasMore ? HistoryCursor.after(rows.get(rows.size() - 1)).encode() : null)
         .build();
   }
 
-  /** Scheduled job to create sessions for upcoming time slots. Runs every minute. */
-  @Scheduled(fixedRate = 60000)
-  public void createSessionsForUpcomingSlots() {
+  /**
+   * Take a seat in the time slot's session, creating the session on the first join. When the seat
+   * is refused, the session is read once to report why.
+   */
+  private Session reserveSeat(String timeSlotId, boolean recordingConsent) {
     Instant now = Instant.now();
-    Instant threshold = now.plus(1, ChronoUnit.MINUTES);
-
-    List<TimeSlot> upcomingSlots =
-        timeSlotRepository.findByStartTimeBetweenAndIsActive(now, threshold, true);
-
-    for (TimeSlot slot : upcomingSlots) {
-      if (sessionRepository.findByTimeSlotId(slot.getId()).isEmpty()) {
-        createSessionForTimeSlot(slot);
-      }
+    Optional<Session> reserved =
+        sessionRepository.reserveSeat(timeSlotId, now, maxParticipants, recordingConsent);
+    if (reserved.isPresent()) {
+      return reserved.get();
     }
-  }
-
-  /** Scheduled job to end sessions that have passed their end time. Runs every minute. */
-  @Scheduled(fixedRate = 60000)
-  public void endExpiredSessions() {
-    List<Session> activeSessions =
-        sessionRepository
-            .findByStatusOrderByCreatedAtDesc(Session.Status.active, PageRequest.of(0, 100))
-            .getContent();
 
-    Instant now = Instant.now();
-    for (Session session : activeSessions) {
-      TimeSlot slot = timeSlotRepository.findById(session.getTimeSlotId()).orElse(null);
-      if (slot != null && now.isAfter(slot.getEndTime())) {
-        endSession(session);
+    Session session = sessionRepository.findByTimeSlotId(timeSlotId).orElse(null);
+    if (session == null) {
+      TimeSlot slot =
+          timeSlotRepository
+              .findById(timeSlotId)
+              .orElseThrow(() -> ResourceNotFoundException.timeSlotNotFound(timeSlotId));
+      session = sessionPreparer.createSession(slot);
+      reserved = sessionRepository.reserveSeat(timeSlotId, now, maxParticipants, recordingConsent);
+      if (reserved.isPresent()) {
+        return reserved.get();
       }
+      session = sessionRepository.findByTimeSlotId(timeSlotId).orElse(session);
     }
-  }
-
-  private Session getOrCreateSession(String timeSlotId) {
-    return sessionRepository
-        .findByTimeSlotIdAndStatusIn(timeSlotId, Session.Status.waiting, Session.Status.active)
-        .orElseGet(
-            () -> {
-              TimeSlot slot = timeSlotRepository.findById(timeSlotId).orElseThrow();
-              return createSessionForTimeSlot(slot);
-            });
-  }
-
-  private Session createSessionForTimeSlot(TimeSlot slot) {
-    Session session =
-        Session.builder()
-            .timeSlotId(slot.getId())
-            .targetLanguageCode(slot.getTargetLanguageCode())
-            .level(slot.getLevel())
-            .status(Session.Status.waiting)
-            .recordingEnabled(false)
-            .build();
-
-    session = sessionRepository.save(session);
-    log.info("Created session {} for time slot {}", session.getId(), slot.getId());
-    return session;
-  }
-
-  private void activateSessionIfReady(Session session) {
-    long connectedCount =
-        participantRepository.countBySessionIdAndStatus(
-            session.getId(), Participant.Status.connected);
-
-    if (connectedCount >= minParticipants && session.getStatus() == Session.Status.waiting) {
-      session.setStatus(Session.Status.active);
-      session.setStartedAt(Instant.now());
-      sessionRepository.save(session);
-
-      // Publish session started event
-      List<Participant> participants =
-          participantRepository.findBySessionIdAndStatusNot(
-              session.getId(), Participant.Status.disconnected);
-      eventPublisher.publishSessionStarted(session, participants);
-
-      log.info("Session {} activated with {} participants", session.getId(), connectedCount);
-    }
-  }
 
-  private void checkAndEndSession(Session session) {
-    long connectedCount =
-        participantRepository.countBySessionIdAndStatus(
-            session.getId(), Participant.Status.connected);
-
-    if (connectedCount == 0 && session.getStatus() == Session.Status.active) {
-      endSession(session);
-    }
+    throw refusal(session, now);
   }
 
-  private void endSession(Session session) {
-    session.setStatus(Session.Status.ended);
-    session.setEndedAt(Instant.now());
-    sessionRepository.save(session);
-
-    // Disconnect all remaining participants
-    List<Participant> participants = participantRepository.findBySessionId(session.getId());
-    for (Participant p : participants) {
-      if (p.getStatus() != Participant.Status.disconnected) {
-        p.setStatus(Participant.Status.disconnected);
-        p.setLeftAt(Instant.now());
-        participantRepository.save(p);
-      }
+  /** Why a seat in {@code session} was refused at {@code now}. */
+  static SessionException refusal(Session session, Instant now) {
+    if (session.getStatus() == Session.Status.ended) {
+      return SessionException.sessionEnded();
     }
-
-    // Mark no-shows
-    TimeSlot slot = timeSlotRepository.findById(session.getTimeSlotId()).orElse(null);
-    if (slot != null) {
-      List<Registration> registrations = registrationService.getRegisteredUsers(slot.getId());
-      for (Registration reg : registrations) {
-        if (reg.getStatus() == Registration.Status.registered) {
-          registrationService.markNoShow(slot.getId(), reg.getUserId());
-        }
-      }
+    if (session.getJoinDeadline() != null && !now.isBefore(session.getJoinDeadline())) {
+      return SessionException.joinWindowClosed();
     }
-
-    // Publish session ended event
-    eventPublisher.publishSessionEnded(session, participants);
-
-    log.info("Session {} ended", session.getId());
-  }
-
-  private SessionDto toSessionDto(Session session) {
-    List<Participant> participants =
-        participantRepository.findBySessionIdAndStatusNot(
-            session.getId(), Participant.Status.disconnected);
-
-    return SessionDto.builder()
-        .id(session.getId())
-        .timeSlotId(session.getTimeSlotId())
-        .targetLanguageCode(session.getTargetLanguageCode())
-        .level(session.getLevel())
-        .status(session.getStatus())
-        .startedAt(session.getStartedAt())
-        .endedAt(session.getEndedAt())
-        .recordingEnabled(session.getRecordingEnabled())
-        .participants(
-            participants.stream().map(this::toParticipantDto).collect(Collectors.toList()))
-        .build();
-  }
-
-  private ParticipantDto toParticipantDto(Participant participant) {
-    return ParticipantDto.builder()
-        .id(participant.getId())
-        .userId(participant.getUserId())
-        .displayName(participant.getDisplayName())
-        .status(participant.getStatus())
-        .cameraEnabled(participant.getCameraEnabled())
-        .micEnabled(participant.getMicEnabled())
-        .recordingConsent(participant.getRecordingConsent())
-        .joinedAt(participant.getJoinedAt())
-        .build();
+    return SessionException.sessionFull();
   }
 }
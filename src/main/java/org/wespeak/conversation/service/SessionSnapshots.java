@@ -0,0 +1,248 @@
+package org.wespeak.conversation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.dto.ParticipantDto;
+import org.wespeak.conversation.dto.SessionDto;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.exception.ResourceNotFoundException;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+
+/** Cached, versioned views of live sessions as clients see them, shared until they change. */
+@Slf4j
+@Service
+public class SessionSnapshots {
+
+  private final SessionRepository sessionRepository;
+  private final ParticipantRepository participantRepository;
+  private final MediaStateBuffer mediaStateBuffer;
+  private final Duration maxAge;
+  private final Cache<String, Snapshot> snapshots;
+
+  // Parked long-poll requests by session
+  private final Map<String, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+
+  public SessionSnapshots(
+      SessionRepository sessionRepository,
+      ParticipantRepository participantRepository,
+      MediaStateBuffer mediaStateBuffer,
+      SessionActors sessionActors,
+      @Value("${app.conversation.snapshot.max-age-ms:1000}") long maxAgeMillis) {
+    this.sessionRepository = sessionRepository;
+    this.participantRepository = participantRepository;
+    this.mediaStateBuffer = mediaStateBuffer;
+    this.maxAge = Duration.ofMillis(maxAgeMillis);
+    this.snapshots = Caffeine.newBuilder().expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+    mediaStateBuffer.onFlushed(this::changed);
+    // Disconnecting the room leaves the session's version alone, so it would not show otherwise
+    sessionActors.onDisconnected(this::changed);
+  }
+
+  /** The current snapshot of a session, rebuilt only if its version has moved. */
+  public Snapshot current(String sessionId) {
+    Snapshot snapshot = snapshots.asMap().compute(sessionId, this::revalidate);
+    if (snapshot == null) {
+      throw ResourceNotFoundException.sessionNotFound(sessionId);
+    }
+    return snapshot;
+  }
+
+  /** Cache the snapshot of a session this node has just changed, waking requests waiting on it. */
+  public Snapshot publish(Session session) {
+    return install(
+        session,
+        participantRepository.findBySessionIdAndStatusNot(
+            session.getId(), Participant.Status.disconnected));
+  }
+
+  /** {@link #publish} with the session's live participants already fetched by the caller. */
+  Snapshot install(Session session, List<Participant> participants) {
+    Snapshot snapshot = build(session, participants, Instant.now());
+    snapshots
+        .asMap()
+        .merge(
+            session.getId(),
+            snapshot,
+            (cached, fresh) -> cached.version() > fresh.version() ? cached : fresh);
+    wake(session.getId());
+    return snapshot;
+  }
+
+  /** A session changed on this node; its next read rebuilds the snapshot whatever the version. */
+  public void changed(String sessionId) {
+    snapshots.asMap().computeIfPresent(sessionId, (id, snapshot) -> snapshot.stale());
+    wake(sessionId);
+  }
+
+  /** Complete once the session is past {@code sinceVersion}, or as it is after {@code timeout}. */
+  public CompletableFuture<Snapshot> awaitChange(
+      String sessionId, long sinceVersion, Duration timeout) {
+    return awaitChange(sessionId, sinceVersion, timeout, current(sessionId));
+  }
+
+  /** {@link #awaitChange} from a snapshot the caller has just read. */
+  CompletableFuture<Snapshot> awaitChange(
+      String sessionId, long sinceVersion, Duration timeout, Snapshot snapshot) {
+    if (snapshot.version() > sinceVersion) {
+      return CompletableFuture.completedFuture(snapshot);
+    }
+
+    CompletableFuture<Snapshot> changed = new CompletableFuture<>();
+    waiters
+        .computeIfAbsent(sessionId, id -> new ConcurrentLinkedQueue<>())
+        .add(new Waiter(sinceVersion, changed));
+    // Answer from the cache on timeout: the delayed-completion thread must not block on Mongo
+    return changed
+        .completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+        .thenApply(result -> result != null ? result : cachedOr(sessionId, snapshot));
+  }
+
+  /** Map a participant for responses, with its latest buffered media state. */
+  public ParticipantDto toParticipantDto(Participant participant) {
+    mediaStateBuffer.apply(participant);
+    return ParticipantDto.builder()
+        .id(participant.getId())
+        .userId(participant.getUserId())
+        .displayName(participant.getDisplayName())
+        .status(participant.getStatus())
+        .cameraEnabled(participant.getCameraEnabled())
+        .micEnabled(participant.getMicEnabled())
+        .recordingConsent(participant.getRecordingConsent())
+        .joinedAt(participant.getJoinedAt())
+        .build();
+  }
+
+  /** Pick up changes made on other nodes for sessions that have parked requests. */
+  @Scheduled(fixedDelayString = "${app.conversation.snapshot.max-age-ms:1000}")
+  public void checkWaitedSessions() {
+    waiters.keySet().forEach(this::wake);
+  }
+
+  private void wake(String sessionId) {
+    Queue<Waiter> parked = waiters.get(sessionId);
+    if (parked == null) {
+      return;
+    }
+    parked.removeIf(waiter -> waiter.result().isDone());
+    if (parked.isEmpty()) {
+      waiters.remove(sessionId, parked);
+      return;
+    }
+
+    Snapshot snapshot;
+    try {
+      snapshot = current(sessionId);
+    } catch (ResourceNotFoundException e) {
+      parked.forEach(waiter -> waiter.result().complete(null));
+      waiters.remove(sessionId, parked);
+      return;
+    }
+    parked.removeIf(
+        waiter -> waiter.sinceVersion() < snapshot.version() && waiter.result().complete(snapshot));
+  }
+
+  /** The cached snapshot if it is within the max age, else null. */
+  Snapshot fresh(String sessionId) {
+    Snapshot cached = snapshots.getIfPresent(sessionId);
+    return cached != null && cached.checkedAt().plus(maxAge).isAfter(Instant.now())
+        ? cached
+        : null;
+  }
+
+  /** The cached snapshot, marked checked, if the session is still at {@code version}; else null. */
+  Snapshot confirm(String sessionId, long version) {
+    Snapshot cached = snapshots.getIfPresent(sessionId);
+    if (cached == null || !cached.settled() || cached.version() != version) {
+      return null;
+    }
+    Snapshot checked = cached.checked(Instant.now());
+    snapshots.asMap().replace(sessionId, cached, checked);
+    return checked;
+  }
+
+  private Snapshot cachedOr(String sessionId, Snapshot fallback) {
+    Snapshot cached = snapshots.getIfPresent(sessionId);
+    return cached != null ? cached : fallback;
+  }
+
+  private Snapshot revalidate(String sessionId, Snapshot cached) {
+    Instant now = Instant.now();
+    if (cached != null && cached.checkedAt().plus(maxAge).isAfter(now)) {
+      return cached;
+    }
+    if (cached != null
+        && cached.settled()
+        && sessionRepository.findVersion(sessionId).orElse(-1L) == cached.version()) {
+      return cached.checked(now);
+    }
+    return sessionRepository
+        .findById(sessionId)
+        .map(
+            session ->
+                build(
+                    session,
+                    participantRepository.findBySessionIdAndStatusNot(
+                        sessionId, Participant.Status.disconnected),
+                    now))
+        .orElse(null);
+  }
+
+  private Snapshot build(Session session, List<Participant> participants, Instant now) {
+    SessionDto dto =
+        SessionDto.builder()
+            .id(session.getId())
+            .version(session.getVersion())
+            .timeSlotId(session.getTimeSlotId())
+            .targetLanguageCode(session.getTargetLanguageCode())
+            .level(session.getLevel())
+            .status(session.getStatus())
+            .startedAt(session.getStartedAt())
+            .endedAt(session.getEndedAt())
+            .recordingEnabled(session.getRecordingEnabled())
+            .participants(participants.stream().map(this::toParticipantDto).toList())
+            .build();
+    // A seat is counted before its participant is written, and a leave disconnects first
+    long connected =
+        participants.stream().filter(p -> p.getStatus() == Participant.Status.connected).count();
+    boolean settled =
+        session.getConnectedCount() == null || connected >= session.getConnectedCount();
+    log.debug("Built snapshot of session {} at version {}", session.getId(), dto.getVersion());
+    return new Snapshot(
+        session.getVersion() != null ? session.getVersion() : 0L, dto, now, settled);
+  }
+
+  /** A session as clients see it at one version; the DTO must not be modified once shared. */
+  public record Snapshot(long version, SessionDto session, Instant checkedAt, boolean settled) {
+
+    /** Entity tag of this version, for conditional requests. */
+    public String etag() {
+      return "\"" + session.getId() + "-" + version + "\"";
+    }
+
+    Snapshot checked(Instant now) {
+      return new Snapshot(version, session, now, settled);
+    }
+
+    Snapshot stale() {
+      return new Snapshot(version, session, Instant.EPOCH, false);
+    }
+  }
+
+  private record Waiter(long sinceVersion, CompletableFuture<Snapshot> result) {}
+}
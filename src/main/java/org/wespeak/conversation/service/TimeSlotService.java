@@ -1,21 +1,25 @@
 package org.wespeak.conversation.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.wespeak.conversation.dto.*;
-import org.wespeak.conversation.entity.Registration;
 import org.wespeak.conversation.entity.TimeSlot;
 import org.wespeak.conversation.exception.ResourceNotFoundException;
-import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.exception.TimeSlotException;
 import org.wespeak.conversation.repository.TimeSlotRepository;
 
 @Slf4j
@@ -23,53 +27,126 @@ import org.wespeak.conversation.repository.TimeSlotRepository;
 @RequiredArgsConstructor
 public class TimeSlotService {
 
+  static final String RECURRING_SLOTS_JOB = "recurring-slot-generation";
+
+  static final int MAX_PAGE_SIZE = 100;
+
+  // Occurrences written per bulk upsert during recurring generation
+  static final int GENERATION_BATCH_SIZE = 1000;
+
+  private static final List<TimeSlot.Recurrence> RECURRENCES =
+      List.of(TimeSlot.Recurrence.daily, TimeSlot.Recurrence.weekly);
+
   private final TimeSlotRepository timeSlotRepository;
-  private final RegistrationRepository registrationRepository;
+  private final SchedulerLeases schedulerLeases;
+  private final TimetableIndex timetableIndex;
 
   @Value("${app.conversation.max-participants:8}")
   private int defaultMaxParticipants;
 
-  /** List time slots with filters. */
+  /**
+   * List active time slots with filters, one page at a time. Pages are keyset-paginated on {@code
+   * (startTime, id)}: {@code cursor} is the {@code nextCursor} of the previous page, or null for
+   * the first; {@code page} is only used when there is no cursor, for clients that still page by
+   * number. The total is only counted when asked for.
+   */
   public TimeSlotsResponse findTimeSlots(
-      String language, TimeSlot.Level level, Instant fromDate, Instant toDate, int page, int size) {
+      String language,
+      TimeSlot.Level level,
+      Instant fromDate,
+      Instant toDate,
+      String cursor,
+      int page,
+      int size,
+      boolean includeTotal) {
 
     // Default date range: now to 7 days ahead
-    if (fromDate == null) fromDate = Instant.now();
-    if (toDate == null) toDate = fromDate.plus(7, ChronoUnit.DAYS);
-
-    List<TimeSlot> slots;
-    if (language != null && level != null) {
-      slots =
-          timeSlotRepository
-              .findByTargetLanguageCodeAndLevelAndIsActiveAndStartTimeBetweenOrderByStartTime(
-                  language, level, true, fromDate, toDate);
-    } else if (language != null) {
-      slots =
-          timeSlotRepository.findByTargetLanguageCodeAndIsActiveAndStartTimeBetweenOrderByStartTime(
-              language, true, fromDate, toDate);
-    } else {
-      Page<TimeSlot> pageResult =
-          timeSlotRepository.findByIsActiveAndStartTimeBetweenOrderByStartTime(
-              true, fromDate, toDate, PageRequest.of(page, size));
-      slots = pageResult.getContent();
-    }
+    Instant from = fromDate != null ? fromDate : Instant.now();
+    Instant to = toDate != null ? toDate : from.plus(7, ChronoUnit.DAYS);
+    int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
 
-    List<TimeSlotDto> dtos = slots.stream().map(this::toTimeSlotDto).collect(Collectors.toList());
+    Cursor after = Cursor.decode(cursor);
+    Instant afterStartTime = after != null ? after.startTime() : null;
+    String afterId = after != null ? after.id() : null;
+    int skip = after != null ? 0 : Math.max(0, page) * limit;
+    // One extra slot tells whether there is a next page; the timetable index answers if it can
+    List<TimeSlot> slots =
+        timetableIndex
+            .page(language, level, from, to, afterStartTime, afterId, skip, limit + 1)
+            .orElseGet(
+                () ->
+                    timeSlotRepository.findActivePage(
+                        language, level, from, to, afterStartTime, afterId, skip, limit + 1));
+    boolean hasMore = slots.size() > limit;
+    if (hasMore) {
+      slots = slots.subList(0, limit);
+    }
 
+    TimeSlot last = slots.isEmpty() ? null : slots.get(slots.size() - 1);
     return TimeSlotsResponse.builder()
-        .timeslots(dtos)
-        .total((long) dtos.size())
-        .hasMore(false)
+        .timeslots(slots.stream().map(this::toTimeSlotDto).collect(Collectors.toList()))
+        .total(
+            includeTotal
+                ? timetableIndex
+                    .count(language, level, from, to)
+                    .orElseGet(() -> timeSlotRepository.countActive(language, level, from, to))
+                : null)
+        .hasMore(hasMore)
+        .nextCursor(hasMore ? new Cursor(last.getStartTime(), last.getId()).encode() : null)
         .build();
   }
 
+  /**
+   * Entity tag of a {@link #findTimeSlots} page, from the timetable index's versions so that a
+   * conditional request that matches runs no page query. Null if the index does not cover the
+   * window, in which case the page is served untagged.
+   */
+  public String catalogTag(
+      String language,
+      TimeSlot.Level level,
+      Instant fromDate,
+      Instant toDate,
+      String cursor,
+      int page,
+      int size,
+      boolean includeTotal) {
+    Instant from = fromDate != null ? fromDate : Instant.now();
+    Instant to = toDate != null ? toDate : from.plus(7, ChronoUnit.DAYS);
+    return timetableIndex
+        .version(language, level, from, to)
+        .map(
+            version ->
+                new CatalogTag()
+                    .add(language)
+                    .add(level)
+                    .add(fromDate)
+                    .add(toDate)
+                    .add(cursor)
+                    .add(cursor != null ? 0 : page)
+                    .add(size)
+                    .add(includeTotal)
+                    .add(version)
+                    .etag())
+        .orElse(null);
+  }
+
   /** Get a time slot by ID. */
   public TimeSlotDto findById(String id) {
+    return toTimeSlotDto(findEntry(id).slot());
+  }
+
+  /** A time slot by ID with its entity tag, for conditional requests. */
+  public CatalogEntry findEntry(String id) {
     TimeSlot slot =
         timeSlotRepository
             .findById(id)
             .orElseThrow(() -> ResourceNotFoundException.timeSlotNotFound(id));
-    return toTimeSlotDto(slot);
+    return new CatalogEntry(slot, new CatalogTag().add(slot).etag());
+  }
+
+  /** Build the response for a slot from {@link #findEntry}. */
+  public TimeSlotDto toResponse(CatalogEntry entry) {
+    return toTimeSlotDto(entry.slot());
   }
 
   /** Create a new time slot. */
@@ -92,6 +169,7 @@ public class TimeSlotService {
             .build();
 
     slot = timeSlotRepository.save(slot);
+    timetableIndex.put(slot);
     log.info(
         "Created time slot: {} for {} {} at {}",
         slot.getId(),
@@ -121,7 +199,11 @@ public class TimeSlotService {
     if (request.getMaxParticipants() != null) slot.setMaxParticipants(request.getMaxParticipants());
     if (request.getRecurrence() != null) slot.setRecurrence(request.getRecurrence());
 
-    slot = timeSlotRepository.save(slot);
+    slot =
+        timeSlotRepository
+            .updateDetails(slot)
+            .orElseThrow(() -> ResourceNotFoundException.timeSlotNotFound(id));
+    timetableIndex.put(slot);
     log.info("Updated time slot: {}", slot.getId());
     return toTimeSlotDto(slot);
   }
@@ -134,77 +216,85 @@ public class TimeSlotService {
             .orElseThrow(() -> ResourceNotFoundException.timeSlotNotFound(id));
 
     slot.setIsActive(false);
-    timeSlotRepository.save(slot);
+    slot =
+        timeSlotRepository
+            .updateDetails(slot)
+            .orElseThrow(() -> ResourceNotFoundException.timeSlotNotFound(id));
+    timetableIndex.put(slot);
     log.info("Deactivated time slot: {}", id);
   }
 
-  /** Scheduled job to generate recurring time slots. Runs daily at midnight. */
+  /**
+   * Scheduled job to generate recurring time slots. Runs daily at midnight, on one node. Templates
+   * are streamed from a cursor and their occurrences written in bounded unordered bulk upserts, so
+   * memory stays constant however many templates there are.
+   */
   @Scheduled(cron = "0 0 0 * * *")
   public void generateRecurringSlots() {
+    if (!schedulerLeases.holds(RECURRING_SLOTS_JOB)) {
+      return;
+    }
     log.info("Starting recurring time slot generation...");
 
     Instant now = Instant.now();
     Instant endDate = now.plus(7, ChronoUnit.DAYS);
 
-    // Find all recurring slots
-    List<TimeSlot> recurringSlots =
-        timeSlotRepository.findAll().stream()
-            .filter(s -> s.getIsActive() && s.getRecurrence() != TimeSlot.Recurrence.once)
-            .collect(Collectors.toList());
-
+    List<TimeSlot> batch = new ArrayList<>(GENERATION_BATCH_SIZE);
+    int templates = 0;
     int generated = 0;
-    for (TimeSlot template : recurringSlots) {
-      generated += generateSlotsFromTemplate(template, now, endDate);
+    try (Stream<TimeSlot> recurringSlots =
+        timeSlotRepository.findByIsActiveAndRecurrenceIn(true, RECURRENCES)) {
+      for (Iterator<TimeSlot> it = recurringSlots.iterator(); it.hasNext(); ) {
+        TimeSlot template = it.next();
+        templates++;
+        for (Instant start = firstOccurrenceAfter(template, now);
+            start.isBefore(endDate);
+            start = start.plus(period(template))) {
+          batch.add(occurrence(template, start));
+          if (batch.size() == GENERATION_BATCH_SIZE) {
+            generated += timeSlotRepository.createAllIfAbsent(batch);
+            batch.clear();
+          }
+        }
+      }
     }
+    generated += timeSlotRepository.createAllIfAbsent(batch);
 
-    log.info("Generated {} recurring time slots", generated);
+    log.info("Generated {} recurring time slots from {} templates", generated, templates);
   }
 
-  private int generateSlotsFromTemplate(TimeSlot template, Instant from, Instant to) {
-    int count = 0;
-    Instant nextTime = template.getStartTime();
-
-    while (nextTime.isBefore(to)) {
-      if (nextTime.isAfter(from)) {
-        // Check if slot already exists
-        boolean exists =
-            timeSlotRepository.existsByTargetLanguageCodeAndLevelAndStartTime(
-                template.getTargetLanguageCode(), template.getLevel(), nextTime);
-
-        if (!exists) {
-          TimeSlot newSlot =
-              TimeSlot.builder()
-                  .targetLanguageCode(template.getTargetLanguageCode())
-                  .level(template.getLevel())
-                  .startTime(nextTime)
-                  .durationMinutes(template.getDurationMinutes())
-                  .maxParticipants(template.getMaxParticipants())
-                  .minParticipants(template.getMinParticipants())
-                  .recurrence(TimeSlot.Recurrence.once)
-                  .isActive(true)
-                  .build();
-          timeSlotRepository.save(newSlot);
-          count++;
-        }
-      }
-
-      // Calculate next occurrence
-      nextTime =
-          switch (template.getRecurrence()) {
-            case daily -> nextTime.plus(1, ChronoUnit.DAYS);
-            case weekly -> nextTime.plus(7, ChronoUnit.DAYS);
-            default -> to; // Stop loop
-          };
+  /** The template's first occurrence strictly after {@code from}, skipping whole periods. */
+  private static Instant firstOccurrenceAfter(TimeSlot template, Instant from) {
+    Instant start = template.getStartTime();
+    if (start.isAfter(from)) {
+      return start;
     }
+    Duration period = period(template);
+    return start.plus(period.multipliedBy(Duration.between(start, from).dividedBy(period) + 1));
+  }
+
+  private static Duration period(TimeSlot template) {
+    return template.getRecurrence() == TimeSlot.Recurrence.weekly
+        ? Duration.ofDays(7)
+        : Duration.ofDays(1);
+  }
 
-    return count;
+  private static TimeSlot occurrence(TimeSlot template, Instant start) {
+    return TimeSlot.builder()
+        .targetLanguageCode(template.getTargetLanguageCode())
+        .level(template.getLevel())
+        .startTime(start)
+        .durationMinutes(template.getDurationMinutes())
+        .maxParticipants(template.getMaxParticipants())
+        .minParticipants(template.getMinParticipants())
+        .recurrence(TimeSlot.Recurrence.once)
+        .isActive(true)
+        .build();
   }
 
-  private TimeSlotDto toTimeSlotDto(TimeSlot slot) {
-    long registeredCount =
-        registrationRepository.countByTimeSlotIdAndStatus(
-            slot.getId(), Registration.Status.registered);
-    int available = slot.getMaxParticipants() - (int) registeredCount;
+  TimeSlotDto toTimeSlotDto(TimeSlot slot) {
+    int registeredCount = slot.getRegisteredCount() != null ? slot.getRegisteredCount() : 0;
+    int available = slot.getMaxParticipants() - registeredCount;
     boolean isAvailable = available > 0 && slot.getStartTime().isAfter(Instant.now());
 
     return TimeSlotDto.builder()
@@ -215,9 +305,71 @@ public class TimeSlotService {
         .endTime(slot.getEndTime())
         .durationMinutes(slot.getDurationMinutes())
         .maxParticipants(slot.getMaxParticipants())
-        .registeredCount((int) registeredCount)
+        .registeredCount(registeredCount)
         .availableSpots(Math.max(0, available))
         .isAvailable(isAvailable)
         .build();
   }
+
+  /** A single slot before mapping, with its tag. */
+  public record CatalogEntry(TimeSlot slot, String etag) {}
+
+  /**
+   * Strong entity tag over a 64-bit FNV-1a hash of the values added; a slot adds its listed fields
+   * and whether it has started.
+   */
+  private static final class CatalogTag {
+
+    private final Instant now = Instant.now();
+    private long hash = 0xcbf29ce484222325L;
+
+    CatalogTag add(TimeSlot slot) {
+      return add(slot.getId())
+          .add(slot.getTargetLanguageCode())
+          .add(slot.getLevel())
+          .add(slot.getStartTime())
+          .add(slot.getDurationMinutes())
+          .add(slot.getMaxParticipants())
+          .add(slot.getRegisteredCount())
+          .add(slot.getStartTime().isAfter(now));
+    }
+
+    CatalogTag add(Object value) {
+      String text = String.valueOf(value);
+      for (int i = 0; i < text.length(); i++) {
+        hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+      }
+      // Field separator, so adjacent values cannot run into each other
+      hash = (hash ^ 0x1f) * 0x100000001b3L;
+      return this;
+    }
+
+    String etag() {
+      return "\"" + Long.toHexString(hash) + "\"";
+    }
+  }
+
+  /** Position after the last slot of a page, shipped to clients as an opaque token. */
+  record Cursor(Instant startTime, String id) {
+
+    String encode() {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString((startTime + "," + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String token) {
+      if (token == null || token.isBlank()) {
+        return null;
+      }
+      try {
+        String[] parts =
+            new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                .split(",", 2);
+        return new Cursor(Instant.parse(parts[0]), parts[1]);
+      } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+        throw TimeSlotException.invalidCursor();
+      }
+    }
+  }
 }
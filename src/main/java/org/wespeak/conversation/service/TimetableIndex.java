@@ -0,0 +1,416 @@
+package org.wespeak.conversation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/**
+ * In-process copy of the catalog: the active slots of the next few days, with their seat counts,
+ * in skip lists ordered by {@code (startTime, id)} and partitioned by language and by language and
+ * level. Catalog pages within its window are answered from memory in the same keyset order as
+ * {@link TimeSlotRepository#findActivePage}.
+ *
+ * <p>Slot and registration writes made on this node update it in place. Each node reloads it from
+ * Mongo on every refresh, which is how it picks up writes made elsewhere, so listings can lag other
+ * nodes by up to the refresh interval; slots written here during a reload are read again once it
+ * is swapped in, so the reload cannot roll them back. Registration itself
+ * always checks capacity in Mongo. Until the first load, and for windows it does not cover, callers
+ * fall back to Mongo.
+ *
+ * <p>Each (language, level, day) partition has a version, bumped whenever one of its listings
+ * changes here or a refresh finds it changed elsewhere, so catalog tags cost no page query.
+ */
+@Slf4j
+@Service
+public class TimetableIndex {
+
+  private final TimeSlotRepository timeSlotRepository;
+  private final Duration horizon;
+
+  // Tags built from another node's counters must never match this node's
+  private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+  private final Map<Partition, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  private volatile Timetable timetable;
+  // Slots written here while a reload runs, read again once it is swapped in; guarded by this
+  private final Set<String> raced = new HashSet<>();
+  private boolean reloading;
+
+  public TimetableIndex(
+      TimeSlotRepository timeSlotRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.conversation.timetable.horizon-days:8}") long horizonDays) {
+    this.timeSlotRepository = timeSlotRepository;
+    this.horizon = Duration.ofDays(horizonDays);
+    Gauge.builder("timetable.slots", this, TimetableIndex::size)
+        .description("Slots held in the in-memory catalog index")
+        .register(meterRegistry);
+  }
+
+  /** Reload the window from now to the horizon from Mongo and swap it in. */
+  @Scheduled(fixedDelayString = "${app.conversation.timetable.refresh-interval-ms:30000}")
+  public void refresh() {
+    synchronized (this) {
+      reloading = true;
+      raced.clear();
+    }
+    Instant now = Instant.now();
+    Timetable loaded = new Timetable(now, now.plus(horizon));
+    timeSlotRepository
+        .findByStartTimeBetweenAndIsActive(loaded.from, loaded.until, true)
+        .forEach(loaded::put);
+    Timetable previous = timetable;
+    if (previous != null) {
+      bumpDifferences(previous, loaded);
+    }
+    List<String> reread;
+    synchronized (this) {
+      loaded.onChange = this::bump;
+      timetable = loaded;
+      reloading = false;
+      reread = List.copyOf(raced);
+    }
+    // The load may have read these before the write; Mongo has them as written now
+    if (!reread.isEmpty()) {
+      timeSlotRepository.findAllById(reread).forEach(loaded::put);
+    }
+    versions.keySet().removeIf(partition -> partition.day() < day(now) - 1);
+    log.debug("Loaded {} slots into the timetable index", loaded.listings.size());
+  }
+
+  /**
+   * The page {@link TimeSlotRepository#findActivePage} would return, or empty if the index is not
+   * loaded or does not cover the window.
+   */
+  public Optional<List<TimeSlot>> page(
+      String language,
+      TimeSlot.Level level,
+      Instant from,
+      Instant to,
+      Instant afterStartTime,
+      String afterId,
+      int skip,
+      int limit) {
+    Timetable current = covering(from, to);
+    if (current == null) {
+      return Optional.empty();
+    }
+    Position after = afterStartTime != null ? new Position(afterStartTime, afterId) : null;
+    List<TimeSlot> page = new ArrayList<>(limit);
+    int skipped = 0;
+    for (Listing listing : current.range(language, level, from, to, after)) {
+      if (page.size() == limit) {
+        break;
+      }
+      if (skipped < skip) {
+        skipped++;
+      } else {
+        page.add(listing.toTimeSlot());
+      }
+    }
+    return Optional.of(page);
+  }
+
+  /** How many slots match the filters in the window, or empty if the index cannot tell. */
+  public OptionalLong count(String language, TimeSlot.Level level, Instant from, Instant to) {
+    Timetable current = covering(from, to);
+    if (current == null) {
+      return OptionalLong.empty();
+    }
+    long count = 0;
+    for (Listing ignored : current.range(language, level, from, to, null)) {
+      count++;
+    }
+    return OptionalLong.of(count);
+  }
+
+  /**
+   * A version of everything a catalog page over the window shows, or empty if the index does not
+   * cover it. Besides the partition versions it moves when a slot in the window starts or a slot
+   * enters the window's end.
+   */
+  public Optional<String> version(String language, TimeSlot.Level level, Instant from, Instant to) {
+    Timetable current = covering(from, to);
+    if (current == null) {
+      return Optional.empty();
+    }
+    long firstDay = day(from);
+    long lastDay = day(to);
+    long sum = 0;
+    for (Map.Entry<Partition, AtomicLong> entry : versions.entrySet()) {
+      if (entry.getKey().covers(language, level, firstDay, lastDay)) {
+        sum += entry.getValue().get();
+      }
+    }
+    Instant now = Instant.now();
+    Instant nextStart = current.next(language, level, now.isAfter(from) ? now : from);
+    Instant nextEntering = current.next(language, level, to.minusNanos(1));
+    return Optional.of(epoch + "-" + sum + "-" + nextStart + "-" + nextEntering);
+  }
+
+  /** A slot was created or changed on this node; inactive or out-of-window slots are dropped. */
+  public void put(TimeSlot slot) {
+    Timetable current = current(slot.getId());
+    if (current != null) {
+      current.put(slot);
+    }
+  }
+
+  /** Seats of a slot were taken ({@code delta > 0}) or given back on this node. */
+  public void seatsChanged(String timeSlotId, long delta) {
+    Timetable current = current(timeSlotId);
+    if (current != null) {
+      current.seatsChanged(timeSlotId, delta);
+    }
+  }
+
+  int size() {
+    Timetable current = timetable;
+    return current != null ? current.listings.size() : 0;
+  }
+
+  /** The live timetable, remembering the slot for a re-read if a reload is running. */
+  private synchronized Timetable current(String timeSlotId) {
+    if (reloading) {
+      raced.add(timeSlotId);
+    }
+    return timetable;
+  }
+
+  private void bump(Listing listing) {
+    versions
+        .computeIfAbsent(
+            new Partition(listing.language(), listing.level(), day(listing.startTime())),
+            key -> new AtomicLong())
+        .incrementAndGet();
+  }
+
+  /** Bump the partitions of listings a reload found changed, added or gone. */
+  private void bumpDifferences(Timetable previous, Timetable loaded) {
+    previous.listings.forEach(
+        (id, listing) -> {
+          if (!listing.equals(loaded.listings.get(id))) {
+            bump(listing);
+          }
+        });
+    loaded.listings.forEach(
+        (id, listing) -> {
+          if (!listing.equals(previous.listings.get(id))) {
+            bump(listing);
+          }
+        });
+  }
+
+  private static long day(Instant instant) {
+    return instant.atOffset(ZoneOffset.UTC).toLocalDate().toEpochDay();
+  }
+
+  private Timetable covering(Instant from, Instant to) {
+    Timetable current = timetable;
+    return current != null && !from.isBefore(current.from) && !to.isAfter(current.until)
+        ? current
+        : null;
+  }
+
+  /** One loaded window. Writers are serialized; readers iterate the skip lists without locks. */
+  private static final class Timetable {
+
+    private final Instant from;
+    private final Instant until;
+    private final NavigableMap<Position, Listing> all = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableMap<Position, Listing>> byLanguage =
+        new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Position, Listing>> byLanguageAndLevel =
+        new ConcurrentHashMap<>();
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+    // Told about every listing added or removed once the timetable is live
+    private volatile Consumer<Listing> onChange = listing -> {};
+
+    private Timetable(Instant from, Instant until) {
+      this.from = from;
+      this.until = until;
+    }
+
+    synchronized void put(TimeSlot slot) {
+      remove(slot.getId());
+      if (Boolean.TRUE.equals(slot.getIsActive())
+          && slot.getStartTime().isAfter(from)
+          && slot.getStartTime().isBefore(until)) {
+        add(Listing.of(slot));
+      }
+    }
+
+    synchronized void seatsChanged(String timeSlotId, long delta) {
+      Listing listing = listings.get(timeSlotId);
+      if (listing != null) {
+        add(listing.withRegisteredCount((int) Math.max(0, listing.registeredCount() + delta)));
+      }
+    }
+
+    /** Start of the first listing matching the filters that starts after {@code after}. */
+    Instant next(String language, TimeSlot.Level level, Instant after) {
+      Iterator<Listing> first = range(language, level, after, until, null).iterator();
+      return first.hasNext() ? first.next().startTime() : null;
+    }
+
+    /** Listings after {@code after} (or the window start) and before {@code to}, in order. */
+    Iterable<Listing> range(
+        String language, TimeSlot.Level level, Instant from, Instant to, Position after) {
+      NavigableMap<Position, Listing> partition =
+          language == null
+              ? all
+              : level == null
+                  ? byLanguage.get(language)
+                  : byLanguageAndLevel.get(partition(language, level));
+      if (partition == null) {
+        return List.of();
+      }
+      NavigableMap<Position, Listing> tail =
+          after != null && after.startTime().isAfter(from)
+              ? partition.tailMap(after, false)
+              : partition.tailMap(new Position(from, ""), false);
+      return () ->
+          tail.values().stream()
+              .takeWhile(listing -> listing.startTime().isBefore(to))
+              .filter(listing -> listing.startTime().isAfter(from))
+              .filter(listing -> language != null || level == null || listing.level() == level)
+              .iterator();
+    }
+
+    private void add(Listing listing) {
+      Position position = listing.position();
+      listings.put(listing.id(), listing);
+      onChange.accept(listing);
+      all.put(position, listing);
+      byLanguage
+          .computeIfAbsent(listing.language(), key -> new ConcurrentSkipListMap<>())
+          .put(position, listing);
+      byLanguageAndLevel
+          .computeIfAbsent(
+              partition(listing.language(), listing.level()), key -> new ConcurrentSkipListMap<>())
+          .put(position, listing);
+    }
+
+    private void remove(String timeSlotId) {
+      Listing listing = listings.remove(timeSlotId);
+      if (listing == null) {
+        return;
+      }
+      onChange.accept(listing);
+      Position position = listing.position();
+      all.remove(position);
+      removeFrom(byLanguage.get(listing.language()), position);
+      removeFrom(byLanguageAndLevel.get(partition(listing.language(), listing.level())), position);
+    }
+
+    private static void removeFrom(NavigableMap<Position, Listing> partition, Position position) {
+      if (partition != null) {
+        partition.remove(position);
+      }
+    }
+
+    private static String partition(String language, TimeSlot.Level level) {
+      return language + "/" + level;
+    }
+  }
+
+  /** Slots of one language and level starting on one UTC day. */
+  private record Partition(String language, TimeSlot.Level level, long day) {
+
+    boolean covers(String language, TimeSlot.Level level, long firstDay, long lastDay) {
+      return (language == null || language.equals(this.language))
+          && (level == null || level == this.level)
+          && day >= firstDay
+          && day <= lastDay;
+    }
+  }
+
+  /** Keyset position, ordered like the catalog indexes: by start time, then id. */
+  record Position(Instant startTime, String id) implements Comparable<Position> {
+
+    private static final Comparator<Position> ORDER =
+        Comparator.comparing(Position::startTime).thenComparing(Position::id);
+
+    @Override
+    public int compareTo(Position other) {
+      return ORDER.compare(this, other);
+    }
+  }
+
+  /** The fields of a slot the catalog shows, frozen at the time it was indexed. */
+  private record Listing(
+      String id,
+      String language,
+      TimeSlot.Level level,
+      Instant startTime,
+      Integer durationMinutes,
+      Integer maxParticipants,
+      Integer minParticipants,
+      int registeredCount) {
+
+    static Listing of(TimeSlot slot) {
+      return new Listing(
+          slot.getId(),
+          slot.getTargetLanguageCode(),
+          slot.getLevel(),
+          slot.getStartTime(),
+          slot.getDurationMinutes(),
+          slot.getMaxParticipants(),
+          slot.getMinParticipants(),
+          slot.getRegisteredCount() != null ? slot.getRegisteredCount() : 0);
+    }
+
+    Position position() {
+      return new Position(startTime, id);
+    }
+
+    Listing withRegisteredCount(int count) {
+      return new Listing(
+          id,
+          language,
+          level,
+          startTime,
+          durationMinutes,
+          maxParticipants,
+          minParticipants,
+          count);
+    }
+
+    TimeSlot toTimeSlot() {
+      return TimeSlot.builder()
+          .id(id)
+          .targetLanguageCode(language)
+          .level(level)
+          .startTime(startTime)
+          .durationMinutes(durationMinutes)
+          .maxParticipants(maxParticipants)
+          .minParticipants(minParticipants)
+          .registeredCount(registeredCount)
+          .isActive(true)
+          .build();
+    }
+  }
+}
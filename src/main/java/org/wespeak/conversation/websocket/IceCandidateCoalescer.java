@@ -0,0 +1,145 @@
+package org.wespeak.conversation.websocket;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.wespeak.conversation.websocket.OutboundFrame.RelayedData;
+
+/**
+ * Coalesces trickled ICE candidates per recipient. The first candidate for a connection opens a
+ * batch; every candidate arriving within the window joins it, and the whole batch goes out as one
+ * {@code ice-candidates} frame when the window closes. Only connections that announced the {@link
+ * #CAPABILITY} in their {@code join} are batched.
+ *
+ * <p>An offer or answer for a connection goes out through {@link #flushThenSend}, which sends the
+ * pending batch first. Both it and the window timer take the batch and queue it under the
+ * connection's {@link SignalingConnection#outboundLock() outbound lock}, so a window closing at the
+ * same moment cannot queue its candidates after the description they belong to.
+ */
+@Slf4j
+@Component
+public class IceCandidateCoalescer {
+
+  public static final String CAPABILITY = "ice-candidates";
+
+  private final long windowMillis;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+  private final DistributionSummary batchSize;
+
+  @Autowired
+  public IceCandidateCoalescer(
+      MeterRegistry meterRegistry,
+      @Value("${app.signaling.ice-coalescing.window-ms:15}") long windowMillis) {
+    this(
+        meterRegistry,
+        windowMillis,
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("signaling-ice-coalescer").daemon(true).factory()));
+  }
+
+  IceCandidateCoalescer(
+      MeterRegistry meterRegistry, long windowMillis, ScheduledExecutorService scheduler) {
+    this.windowMillis = windowMillis;
+    this.scheduler = scheduler;
+    this.batchSize =
+        DistributionSummary.builder("signaling.ice.batch.size")
+            .description("ICE candidates carried per coalesced frame")
+            .register(meterRegistry);
+  }
+
+  /** Coalescing is off when the window is zero. */
+  public boolean isEnabled() {
+    return windowMillis > 0;
+  }
+
+  /** Whether candidates for this connection should go through {@link #add}. */
+  public boolean accepts(SignalingConnection target) {
+    return isEnabled() && target.isIceBatching();
+  }
+
+  /** Add a candidate to the target's open batch, opening one if there is none. */
+  public void add(SignalingConnection target, String fromUserId, RawValue data) {
+    batches.compute(
+        target.getId(),
+        (id, batch) -> {
+          if (batch == null) {
+            Batch opened = new Batch(target);
+            scheduler.schedule(() -> flush(opened), windowMillis, TimeUnit.MILLISECONDS);
+            batch = opened;
+          }
+          batch.candidates.add(new RelayedData(fromUserId, data));
+          return batch;
+        });
+  }
+
+  /** Send the target's pending batch, if it has one, and then {@code frame}. */
+  public void flushThenSend(SignalingConnection target, OutboundFrame frame) throws IOException {
+    ReentrantLock lock = target.outboundLock();
+    lock.lock();
+    try {
+      Batch batch = batches.remove(target.getId());
+      if (batch != null) {
+        send(batch);
+      }
+      target.send(frame);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Drop the pending batch of a connection that went away. */
+  public void discard(SignalingConnection target) {
+    batches.remove(target.getId());
+  }
+
+  private void flush(Batch batch) {
+    ReentrantLock lock = batch.target.outboundLock();
+    lock.lock();
+    try {
+      // A no-op when the batch was already flushed ahead of an offer/answer
+      if (batches.remove(batch.target.getId(), batch)) {
+        send(batch);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void send(Batch batch) {
+    if (!batch.target.isOpen()) return;
+    batchSize.record(batch.candidates.size());
+    try {
+      batch.target.send(OutboundFrame.iceCandidates(batch.candidates));
+    } catch (IOException e) {
+      log.error("Error sending ICE candidates to {}", batch.target.getId(), e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private static final class Batch {
+    private final SignalingConnection target;
+    private final List<RelayedData> candidates = new ArrayList<>();
+
+    private Batch(SignalingConnection target) {
+      this.target = target;
+    }
+  }
+}
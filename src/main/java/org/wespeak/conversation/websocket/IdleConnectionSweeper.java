@@ -0,0 +1,182 @@
+package org.wespeak.conversation.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.PingMessage;
+
+/**
+ * Heartbeats and idle eviction for signaling sockets, driven by a hashed timing wheel.
+ *
+ * <p>Every connection sits in exactly one wheel bucket, the one for the tick at which it next
+ * needs attention. A tick only visits its own bucket: connections heard from recently are moved
+ * to the bucket of their next check, quiet ones are pinged, and ones silent for the idle timeout
+ * are handed to the eviction listener on the evictor executor, so closing them and recording the
+ * disconnect never holds up the wheel. Receiving a frame just stamps the connection, so traffic
+ * costs nothing and there is no timer per connection. Closed connections are dropped when their
+ * bucket comes up.
+ *
+ * <p>Pings are WebSocket ping frames, which browsers answer without application code; clients can
+ * also send a {@code ping} message of their own (e.g. when a proxy swallows control frames).
+ */
+@Slf4j
+@Component
+public class IdleConnectionSweeper {
+
+  private final long heartbeatNanos;
+  private final long idleTimeoutNanos;
+  private final long tickNanos;
+  private final LongSupplier nanoTime;
+  private final Set<SignalingConnection>[] wheel;
+  private final AtomicLong currentTick = new AtomicLong();
+  private final ScheduledExecutorService scheduler;
+  private final Executor evictor;
+  private final Counter evicted;
+
+  private volatile Consumer<SignalingConnection> idleListener = connection -> {};
+
+  @Autowired
+  public IdleConnectionSweeper(
+      MeterRegistry meterRegistry,
+      @Value("${app.signaling.heartbeat.interval-ms:15000}") long heartbeatMillis,
+      @Value("${app.signaling.heartbeat.idle-timeout-ms:45000}") long idleTimeoutMillis,
+      @Value("${app.signaling.heartbeat.tick-ms:1000}") long tickMillis,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this(
+        meterRegistry,
+        heartbeatMillis,
+        idleTimeoutMillis,
+        tickMillis,
+        System::nanoTime,
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("signaling-idle-sweeper").daemon(true).factory()),
+        virtualThreads
+            ? Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("signaling-idle-evictor-", 0).factory())
+            : Executors.newCachedThreadPool(
+                Thread.ofPlatform().name("signaling-idle-evictor-", 0).daemon(true).factory()));
+    scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @SuppressWarnings("unchecked")
+  IdleConnectionSweeper(
+      MeterRegistry meterRegistry,
+      long heartbeatMillis,
+      long idleTimeoutMillis,
+      long tickMillis,
+      LongSupplier nanoTime,
+      ScheduledExecutorService scheduler,
+      Executor evictor) {
+    if (heartbeatMillis >= idleTimeoutMillis || tickMillis > heartbeatMillis) {
+      throw new IllegalArgumentException(
+          "Expected tick <= heartbeat interval < idle timeout, got "
+              + tickMillis
+              + "/"
+              + heartbeatMillis
+              + "/"
+              + idleTimeoutMillis
+              + " ms");
+    }
+    this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.nanoTime = nanoTime;
+    this.scheduler = scheduler;
+    this.evictor = evictor;
+
+    // One revolution covers the longest delay ever scheduled, so buckets need no round counts
+    int size = (int) (idleTimeoutMillis / tickMillis) + 2;
+    this.wheel = new Set[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = ConcurrentHashMap.newKeySet();
+    }
+
+    this.evicted =
+        Counter.builder("signaling.idle.evicted")
+            .description("Signaling sockets closed after missing heartbeats")
+            .register(meterRegistry);
+  }
+
+  /** Receive connections that stayed silent for the idle timeout. */
+  public void onIdle(Consumer<SignalingConnection> listener) {
+    this.idleListener = listener;
+  }
+
+  /** Start watching a newly opened connection. */
+  public void register(SignalingConnection connection) {
+    connection.markSeen(nanoTime.getAsLong());
+    schedule(connection, heartbeatNanos);
+  }
+
+  /** Record that something arrived on a connection. */
+  public void touch(SignalingConnection connection) {
+    connection.markSeen(nanoTime.getAsLong());
+  }
+
+  /** Advance the wheel by one tick and handle the connections due on it. */
+  void tick() {
+    long tick = currentTick.incrementAndGet();
+    long now = nanoTime.getAsLong();
+    Iterator<SignalingConnection> due = wheel[(int) (tick % wheel.length)].iterator();
+
+    while (due.hasNext()) {
+      SignalingConnection connection = due.next();
+      due.remove();
+      try {
+        check(connection, now);
+      } catch (RuntimeException e) {
+        log.error("Error checking WebSocket {} for idleness", connection.getId(), e);
+      }
+    }
+  }
+
+  private void check(SignalingConnection connection, long now) {
+    if (!connection.isOpen()) return;
+
+    long idle = now - connection.getLastSeenNanos();
+    if (idle >= idleTimeoutNanos) {
+      log.info(
+          "Evicting WebSocket {} after {} ms of silence", connection.getId(), idle / 1_000_000);
+      evicted.increment();
+      evictor.execute(() -> evict(connection));
+    } else if (idle >= heartbeatNanos) {
+      connection.send(new PingMessage(), "ping");
+      schedule(connection, idleTimeoutNanos - idle);
+    } else {
+      schedule(connection, heartbeatNanos - idle);
+    }
+  }
+
+  private void evict(SignalingConnection connection) {
+    try {
+      idleListener.accept(connection);
+    } catch (RuntimeException e) {
+      log.error("Error evicting idle WebSocket {}", connection.getId(), e);
+    }
+  }
+
+  private void schedule(SignalingConnection connection, long delayNanos) {
+    long ticks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+    long slot = currentTick.get() + Math.min(ticks, wheel.length - 1);
+    wheel[(int) (slot % wheel.length)].add(connection);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+}
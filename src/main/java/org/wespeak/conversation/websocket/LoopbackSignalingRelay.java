@@ -0,0 +1,65 @@
+package org.wespeak.conversation.websocket;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process relay. Relays attached to the same {@link Bus} behave like nodes of one cluster and
+ * deliver to each other synchronously on the publishing thread, which makes multi-node behaviour
+ * testable without infrastructure. A relay on its own bus is the single-node default: it has no
+ * peers, so publishing is a no-op.
+ */
+@Slf4j
+public class LoopbackSignalingRelay implements SignalingRelay {
+
+  private final String nodeId;
+  private final Bus bus;
+  private final List<Consumer<RelayEnvelope>> listeners = new CopyOnWriteArrayList<>();
+
+  public LoopbackSignalingRelay() {
+    this(UUID.randomUUID().toString(), new Bus());
+  }
+
+  public LoopbackSignalingRelay(String nodeId, Bus bus) {
+    this.nodeId = nodeId;
+    this.bus = bus;
+    bus.members.add(this);
+  }
+
+  @Override
+  public String nodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public void publish(RelayEnvelope envelope) {
+    for (LoopbackSignalingRelay member : bus.members) {
+      if (member != this) {
+        member.deliver(envelope);
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<RelayEnvelope> listener) {
+    listeners.add(listener);
+  }
+
+  private void deliver(RelayEnvelope envelope) {
+    for (Consumer<RelayEnvelope> listener : listeners) {
+      try {
+        listener.accept(envelope);
+      } catch (RuntimeException e) {
+        log.error("Error delivering relayed {} on node {}", envelope.type(), nodeId, e);
+      }
+    }
+  }
+
+  /** The set of relays that see each other's envelopes. */
+  public static final class Bus {
+    private final List<LoopbackSignalingRelay> members = new CopyOnWriteArrayList<>();
+  }
+}
@@ -0,0 +1,219 @@
+package org.wespeak.conversation.websocket;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * Relay over a shared Mongo collection. Each node inserts the envelopes it publishes and tails the
+ * collection with a change stream filtered to other nodes' inserts. Documents expire through a TTL
+ * index, so the collection only ever holds the last few seconds of traffic.
+ *
+ * <p>Publishing only queues the envelope: a writer thread drains the bounded outbox into ordered
+ * {@code insertMany} batches, so handler and actor threads never wait on Mongo. When the outbox is
+ * full, or a batch fails, envelopes are dropped like any other best-effort delivery.
+ *
+ * <p>Change streams need a replica set (a single-node one is enough). The watch loop resumes from
+ * the last seen event after a transient error.
+ */
+@Slf4j
+public class MongoSignalingRelay implements SignalingRelay, AutoCloseable {
+
+  static final String COLLECTION = "signaling_relay";
+
+  // Most envelopes written in one insertMany
+  private static final int MAX_BATCH = 500;
+
+  private final MongoTemplate mongoTemplate;
+  private final String nodeId;
+  private final Duration retention;
+  private final List<Consumer<RelayEnvelope>> listeners = new CopyOnWriteArrayList<>();
+  private final BlockingQueue<Document> outbox;
+
+  // A lock rather than synchronized: start() does blocking I/O and must not pin a virtual thread
+  private final ReentrantLock lifecycleLock = new ReentrantLock();
+  private volatile boolean running;
+  private Thread watcher;
+  private Thread writer;
+
+  public MongoSignalingRelay(
+      MongoTemplate mongoTemplate, String nodeId, Duration retention, int outboxCapacity) {
+    this.mongoTemplate = mongoTemplate;
+    this.nodeId = nodeId;
+    this.retention = retention;
+    this.outbox = new ArrayBlockingQueue<>(outboxCapacity);
+  }
+
+  @Override
+  public String nodeId() {
+    return nodeId;
+  }
+
+  /** Create the TTL index, start writing the outbox and tailing the collection. */
+  public void start() {
+    lifecycleLock.lock();
+    try {
+      if (running) return;
+      mongoTemplate
+          .indexOps(COLLECTION)
+          .createIndex(new Index().on("createdAt", Sort.Direction.ASC).expire(retention));
+      running = true;
+      writer =
+          Thread.ofPlatform()
+              .name("signaling-relay-writer-" + nodeId)
+              .daemon(true)
+              .start(this::write);
+      watcher =
+          Thread.ofPlatform()
+              .name("signaling-relay-" + nodeId)
+              .daemon(true)
+              .start(this::watch);
+      log.info("Signaling relay started on node {}", nodeId);
+    } finally {
+      lifecycleLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    lifecycleLock.lock();
+    try {
+      running = false;
+      if (watcher != null) {
+        watcher.join(TimeUnit.SECONDS.toMillis(5));
+        watcher = null;
+      }
+      if (writer != null) {
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        writer = null;
+      }
+    } finally {
+      lifecycleLock.unlock();
+    }
+  }
+
+  @Override
+  public void publish(RelayEnvelope envelope) {
+    Document document =
+        new Document("origin", envelope.originNodeId())
+            .append("sessionId", envelope.sessionId())
+            .append("targetUserId", envelope.targetUserId())
+            .append("excludeUserId", envelope.excludeUserId())
+            .append("type", envelope.type())
+            .append("payload", envelope.payload())
+            .append("sentAtMicros", envelope.sentAtMicros())
+            .append("createdAt", new Date());
+    if (!outbox.offer(document)) {
+      log.warn("Signaling relay outbox full on node {}, dropping {}", nodeId, envelope.type());
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<RelayEnvelope> listener) {
+    listeners.add(listener);
+  }
+
+  /** Drain the outbox in order until closed, then flush what is left. */
+  private void write() {
+    List<Document> batch = new ArrayList<>(MAX_BATCH);
+    while (running || !outbox.isEmpty()) {
+      try {
+        Document first = outbox.poll(500, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+        outbox.drainTo(batch, MAX_BATCH - 1);
+        collection().insertMany(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (MongoException e) {
+        log.warn("Signaling relay dropped {} envelopes on node {}", batch.size(), nodeId, e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void watch() {
+    List<Bson> pipeline =
+        List.of(
+            Aggregates.match(
+                Filters.and(
+                    Filters.eq("operationType", "insert"),
+                    Filters.ne("fullDocument.origin", nodeId))));
+    BsonDocument resumeToken = null;
+
+    while (running) {
+      var stream = collection().watch(pipeline).maxAwaitTime(500, TimeUnit.MILLISECONDS);
+      if (resumeToken != null) {
+        stream = stream.resumeAfter(resumeToken);
+      }
+      try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+        while (running) {
+          ChangeStreamDocument<Document> change = cursor.tryNext();
+          if (change == null) continue;
+          resumeToken = change.getResumeToken();
+          deliver(toEnvelope(change.getFullDocument()));
+        }
+      } catch (MongoException e) {
+        if (!running) break;
+        log.warn("Signaling relay change stream failed on node {}, resuming", nodeId, e);
+        pause();
+      }
+    }
+  }
+
+  private void deliver(RelayEnvelope envelope) {
+    for (Consumer<RelayEnvelope> listener : listeners) {
+      try {
+        listener.accept(envelope);
+      } catch (RuntimeException e) {
+        log.error("Error delivering relayed {} on node {}", envelope.type(), nodeId, e);
+      }
+    }
+  }
+
+  private static RelayEnvelope toEnvelope(Document document) {
+    return new RelayEnvelope(
+        document.getString("origin"),
+        document.getString("sessionId"),
+        document.getString("targetUserId"),
+        document.getString("excludeUserId"),
+        document.getString("type"),
+        document.getString("payload"),
+        document.getLong("sentAtMicros"));
+  }
+
+  private MongoCollection<Document> collection() {
+    return mongoTemplate.getCollection(COLLECTION);
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package org.wespeak.conversation.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.wespeak.conversation.websocket.SignalingMessages.Outbound;
+
+/**
+ * A message on its way to one or more connections. Each wire format is encoded at most once, so a
+ * room broadcast costs one encoding per format in use rather than one per recipient. Encoded frames
+ * are immutable and shared between recipients.
+ */
+public abstract class OutboundFrame {
+
+  private final String type;
+  private volatile WebSocketMessage<?> text;
+  private volatile WebSocketMessage<?> binary;
+
+  private OutboundFrame(String type) {
+    this.type = type;
+  }
+
+  /** A typed server message. */
+  public static OutboundFrame of(Outbound message) {
+    return new MessageFrame(message);
+  }
+
+  /**
+   * An offer/answer/candidate relayed from {@code fromUserId}. The received {@code data} span is
+   * copied into the outgoing frame as-is, without being parsed into a tree.
+   */
+  public static OutboundFrame relay(String type, String fromUserId, RawValue data) {
+    return new RelayFrame(type, fromUserId, data);
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  /** The frame encoded for a codec, encoding it on first use. */
+  public WebSocketMessage<?> encodedFor(SignalingCodec codec) throws IOException {
+    if (codec.isBinary()) {
+      WebSocketMessage<?> encoded = binary;
+      if (encoded == null) {
+        encoded = encode(codec);
+        binary = encoded;
+      }
+      return encoded;
+    }
+    WebSocketMessage<?> encoded = text;
+    if (encoded == null) {
+      encoded = encode(codec);
+      text = encoded;
+    }
+    return encoded;
+  }
+
+  protected abstract WebSocketMessage<?> encode(SignalingCodec codec) throws IOException;
+
+  private static final class MessageFrame extends OutboundFrame {
+
+    private final Outbound message;
+
+    private MessageFrame(Outbound message) {
+      super(message.type());
+      this.message = message;
+    }
+
+    @Override
+    protected WebSocketMessage<?> encode(SignalingCodec codec) throws IOException {
+      return codec.encode(message);
+    }
+  }
+
+  /**
+   * Candidates relayed to one recipient over a coalescing window, as a single {@code
+   * ice-candidates} frame. Each candidate's {@code data} is carried over like in {@link #relay}.
+   */
+  public static OutboundFrame iceCandidates(List<RelayedData> candidates) {
+    return new CandidatesFrame(candidates);
+  }
+
+  /**
+   * A complete frame received from another node, as JSON. JSON recipients get the text as-is;
+   * others get it streamed into their format.
+   */
+  public static OutboundFrame forwarded(String type, RawValue frame) {
+    return new ForwardedFrame(type, frame);
+  }
+
+  /** Relayed {@code data} together with the user it came from. */
+  public record RelayedData(String fromUserId, RawValue data) {}
+
+  /** A frame written field by field with a generator of the target format. */
+  private abstract static class StreamedFrame extends OutboundFrame {
+
+    private StreamedFrame(String type) {
+      super(type);
+    }
+
+    protected abstract int sizeHint();
+
+    protected abstract void write(JsonGenerator generator, SignalingCodec codec)
+        throws IOException;
+
+    @Override
+    protected WebSocketMessage<?> encode(SignalingCodec codec) throws IOException {
+      if (codec.isBinary()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint());
+        try (JsonGenerator generator = codec.getMapper().getFactory().createGenerator(out)) {
+          write(generator, codec);
+        }
+        return new BinaryMessage(out.toByteArray());
+      }
+
+      StringWriter out = new StringWriter(sizeHint());
+      try (JsonGenerator generator = codec.getMapper().getFactory().createGenerator(out)) {
+        write(generator, codec);
+      }
+      return new TextMessage(out.toString());
+    }
+
+    protected static void writeData(JsonGenerator generator, SignalingCodec codec, RawValue data)
+        throws IOException {
+      generator.writeFieldName("data");
+      if (!codec.isBinary() && data.isText()) {
+        // Same format: splice the original characters straight in
+        generator.writeRawValue(data.text(), data.start(), data.length());
+      } else {
+        // Different format: stream tokens across without building a tree
+        try (JsonParser parser = data.openParser()) {
+          parser.nextToken();
+          generator.copyCurrentStructure(parser);
+        }
+      }
+    }
+  }
+
+  private static final class RelayFrame extends StreamedFrame {
+
+    private final String fromUserId;
+    private final RawValue data;
+
+    private RelayFrame(String type, String fromUserId, RawValue data) {
+      super(type);
+      this.fromUserId = fromUserId;
+      this.data = data;
+    }
+
+    @Override
+    protected int sizeHint() {
+      return data.length() + 64;
+    }
+
+    @Override
+    protected void write(JsonGenerator generator, SignalingCodec codec) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("type", getType());
+      generator.writeStringField("fromUserId", fromUserId);
+      writeData(generator, codec, data);
+      generator.writeEndObject();
+    }
+  }
+
+  private static final class ForwardedFrame extends StreamedFrame {
+
+    private final RawValue frame;
+
+    private ForwardedFrame(String type, RawValue frame) {
+      super(type);
+      this.frame = frame;
+    }
+
+    @Override
+    protected WebSocketMessage<?> encode(SignalingCodec codec) throws IOException {
+      if (!codec.isBinary() && frame.isText() && frame.length() == frame.text().length()) {
+        return new TextMessage(frame.text());
+      }
+      return super.encode(codec);
+    }
+
+    @Override
+    protected int sizeHint() {
+      return frame.length();
+    }
+
+    @Override
+    protected void write(JsonGenerator generator, SignalingCodec codec) throws IOException {
+      try (JsonParser parser = frame.openParser()) {
+        parser.nextToken();
+        generator.copyCurrentStructure(parser);
+      }
+    }
+  }
+
+  private static final class CandidatesFrame extends StreamedFrame {
+
+    private final List<RelayedData> candidates;
+
+    private CandidatesFrame(List<RelayedData> candidates) {
+      super("ice-candidates");
+      this.candidates = candidates;
+    }
+
+    @Override
+    protected int sizeHint() {
+      int size = 32;
+      for (RelayedData candidate : candidates) {
+        size += candidate.data().length() + 64;
+      }
+      return size;
+    }
+
+    @Override
+    protected void write(JsonGenerator generator, SignalingCodec codec) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("type", getType());
+      generator.writeArrayFieldStart("candidates");
+      for (RelayedData candidate : candidates) {
+        generator.writeStartObject();
+        generator.writeStringField("fromUserId", candidate.fromUserId());
+        writeData(generator, codec, candidate.data());
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+}
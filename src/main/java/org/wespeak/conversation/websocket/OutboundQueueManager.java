@@ -0,0 +1,123 @@
+package org.wespeak.conversation.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Creates {@link SignalingConnection}s and owns the executor that drains their outbound queues.
+ *
+ * <p>On platform threads the executor is a fixed pool: when every thread is busy, drains wait in
+ * its queue, which holds at most one drain per connection, and a drain that has written a batch
+ * goes back to the end of it so that busy clients take turns. In virtual-thread mode each drain
+ * runs on its own virtual thread; the queue lock is a {@link
+ * java.util.concurrent.locks.ReentrantLock}, so a drain blocked on a socket write never pins its
+ * carrier.
+ */
+@Component
+public class OutboundQueueManager {
+
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final Executor executor;
+
+  private final AtomicInteger openConnections = new AtomicInteger();
+  private final AtomicLong queuedFrames = new AtomicLong();
+  private final DistributionSummary queueDepth;
+  private final Counter droppedFrames;
+  private final Counter slowConsumersClosed;
+
+  @Autowired
+  public OutboundQueueManager(
+      MeterRegistry meterRegistry,
+      @Value("${app.signaling.outbound.queue-capacity:256}") int capacity,
+      @Value("${app.signaling.outbound.overflow-policy:DROP_OLDEST_MEDIA_STATE}")
+          OverflowPolicy overflowPolicy,
+      @Value("${app.signaling.outbound.drain-threads:32}") int drainThreads,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this(
+        meterRegistry,
+        capacity,
+        overflowPolicy,
+        virtualThreads
+            ? Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("signaling-outbound-", 0).factory())
+            : Executors.newFixedThreadPool(
+                drainThreads,
+                Thread.ofPlatform().name("signaling-outbound-", 0).daemon(true).factory()));
+  }
+
+  OutboundQueueManager(
+      MeterRegistry meterRegistry, int capacity, OverflowPolicy overflowPolicy, Executor executor) {
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.executor = executor;
+
+    Gauge.builder("signaling.outbound.connections", openConnections, AtomicInteger::get)
+        .description("Open signaling connections with an outbound queue")
+        .register(meterRegistry);
+    Gauge.builder("signaling.outbound.queued", queuedFrames, AtomicLong::get)
+        .description("Frames waiting in outbound queues across all connections")
+        .register(meterRegistry);
+    this.queueDepth =
+        DistributionSummary.builder("signaling.outbound.queue.depth")
+            .description("Per-connection queue depth observed on enqueue")
+            .register(meterRegistry);
+    this.droppedFrames =
+        Counter.builder("signaling.outbound.dropped")
+            .description("Media-state frames dropped on queue overflow")
+            .register(meterRegistry);
+    this.slowConsumersClosed =
+        Counter.builder("signaling.outbound.slow_consumers_closed")
+            .description("Connections closed because their outbound queue overflowed")
+            .register(meterRegistry);
+  }
+
+  /** Wrap a freshly opened socket that speaks the given wire format. */
+  public SignalingConnection open(WebSocketSession session, SignalingCodec codec) {
+    openConnections.incrementAndGet();
+    return new SignalingConnection(session, codec, capacity, overflowPolicy, executor, this);
+  }
+
+  /** Forget a socket that has closed. */
+  public void release(SignalingConnection connection) {
+    openConnections.decrementAndGet();
+    connection.close(CloseStatus.NORMAL);
+  }
+
+  void onEnqueued(int depth) {
+    queuedFrames.incrementAndGet();
+    queueDepth.record(depth);
+  }
+
+  void onDequeued(int count) {
+    queuedFrames.addAndGet(-count);
+  }
+
+  void onDropped() {
+    droppedFrames.increment();
+  }
+
+  void onSlowConsumerClosed() {
+    slowConsumersClosed.increment();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (executor instanceof ExecutorService executorService) {
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package org.wespeak.conversation.websocket;
+
+/** What a signaling connection does when its outbound queue is full. */
+public enum OverflowPolicy {
+  /** Drop the oldest queued media-state frame; close the socket if there is none to drop. */
+  DROP_OLDEST_MEDIA_STATE,
+
+  /** Close the socket as soon as its queue overflows. */
+  CLOSE_SLOW_CONSUMER
+}
@@ -0,0 +1,35 @@
+package org.wespeak.conversation.websocket;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+
+/**
+ * A value inside a received frame, kept as a span of the original payload instead of a parsed
+ * tree. Text frames are addressed in chars, binary frames in bytes.
+ */
+public record RawValue(SignalingCodec codec, String text, byte[] bytes, int start, int end) {
+
+  static RawValue ofText(SignalingCodec codec, String text, int start, int end) {
+    return new RawValue(codec, text, null, start, end);
+  }
+
+  static RawValue ofBytes(SignalingCodec codec, byte[] bytes, int start, int end) {
+    return new RawValue(codec, null, bytes, start, end);
+  }
+
+  public boolean isText() {
+    return text != null;
+  }
+
+  public int length() {
+    return end - start;
+  }
+
+  /** A parser positioned before the value, for transcoding it into another format. */
+  JsonParser openParser() throws IOException {
+    if (isText()) {
+      return codec.getMapper().getFactory().createParser(text.substring(start, end));
+    }
+    return codec.getMapper().getFactory().createParser(bytes, start, length());
+  }
+}
@@ -0,0 +1,27 @@
+package org.wespeak.conversation.websocket;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A signaling frame on its way to another node. The frame travels as its JSON encoding and is
+ * converted for the recipients' wire format on arrival. A {@code null} target means the frame is
+ * for every participant of the session except {@code excludeUserId}.
+ */
+public record RelayEnvelope(
+    String originNodeId,
+    String sessionId,
+    String targetUserId,
+    String excludeUserId,
+    String type,
+    String payload,
+    long sentAtMicros) {
+
+  public boolean isBroadcast() {
+    return targetUserId == null;
+  }
+
+  static long nowMicros() {
+    return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+  }
+}
@@ -0,0 +1,191 @@
+package org.wespeak.conversation.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.wespeak.conversation.websocket.SignalingMessages.MediaStateChanged;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantJoined;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantLeft;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantState;
+import org.wespeak.conversation.websocket.SignalingMessages.SessionEnded;
+
+/**
+ * The signaling handler's view of the other nodes. Frames for users that are not connected here,
+ * and room broadcasts, are published through the {@link SignalingRelay}; frames arriving from other
+ * nodes are handed to the local listener.
+ *
+ * <p>Join/leave broadcasts double as cluster-wide presence: every node remembers which participants
+ * of a session are connected elsewhere, so a {@code room-state} lists the whole room. They, and the
+ * end of a session, are always published; any other frame is published only while another node has
+ * members of its session, so rooms that live on one node cost the relay nothing. Media changes
+ * skipped that way are caught up by the {@link #onRemoteJoin} listener.
+ */
+@Slf4j
+@Component
+public class SignalingCluster {
+
+  private final SignalingRelay relay;
+  private final SignalingCodec json;
+  private final Timer relayLatency;
+
+  // Map sessionId -> (userId -> state) of participants connected to other nodes
+  private final Map<String, Map<String, ParticipantState>> remoteMembers =
+      new ConcurrentHashMap<>();
+
+  private final List<BiConsumer<String, String>> remoteJoinListeners =
+      new CopyOnWriteArrayList<>();
+
+  public SignalingCluster(
+      SignalingRelay relay, SignalingCodecs signalingCodecs, MeterRegistry meterRegistry) {
+    this.relay = relay;
+    this.json = signalingCodecs.json();
+    this.relayLatency =
+        Timer.builder("signaling.relay.latency")
+            .description("Time from publishing a frame on one node to receiving it on another")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+  }
+
+  public String nodeId() {
+    return relay.nodeId();
+  }
+
+  /** Send a frame to a user connected to another node. */
+  public void sendToUser(String sessionId, String targetUserId, OutboundFrame frame)
+      throws IOException {
+    if (!remoteMembers.containsKey(sessionId)) {
+      // Nobody in the session is connected elsewhere
+      return;
+    }
+    relay.publish(envelope(sessionId, targetUserId, null, frame));
+  }
+
+  /** Send a room broadcast to the participants connected to other nodes. */
+  public void broadcast(String sessionId, String excludeUserId, OutboundFrame frame)
+      throws IOException {
+    if (!isPresence(frame.getType()) && !remoteMembers.containsKey(sessionId)) {
+      return;
+    }
+    relay.publish(envelope(sessionId, null, excludeUserId, frame));
+  }
+
+  /** Participants of a session that are connected to other nodes. */
+  public Collection<ParticipantState> remoteMembers(String sessionId) {
+    Map<String, ParticipantState> members = remoteMembers.get(sessionId);
+    return members != null ? List.copyOf(members.values()) : List.of();
+  }
+
+  /** Forget a session's remote participants once it has ended. */
+  public void forget(String sessionId) {
+    remoteMembers.remove(sessionId);
+  }
+
+  /**
+   * Register a callback run with the session and user id whenever a participant joins on another
+   * node.
+   */
+  public void onRemoteJoin(BiConsumer<String, String> listener) {
+    remoteJoinListeners.add(listener);
+  }
+
+  /** Receive frames published by other nodes. */
+  public void subscribe(Consumer<RelayEnvelope> listener) {
+    relay.subscribe(
+        envelope -> {
+          relayLatency.record(
+              Duration.ofNanos(
+                  TimeUnit.MICROSECONDS.toNanos(
+                      Math.max(0, RelayEnvelope.nowMicros() - envelope.sentAtMicros()))));
+          trackPresence(envelope);
+          listener.accept(envelope);
+        });
+  }
+
+  private RelayEnvelope envelope(
+      String sessionId, String targetUserId, String excludeUserId, OutboundFrame frame)
+      throws IOException {
+    String payload = (String) frame.encodedFor(json).getPayload();
+    return new RelayEnvelope(
+        relay.nodeId(),
+        sessionId,
+        targetUserId,
+        excludeUserId,
+        frame.getType(),
+        payload,
+        RelayEnvelope.nowMicros());
+  }
+
+  /** Frames other nodes need to know who is connected where; never skipped. */
+  private static boolean isPresence(String type) {
+    return ParticipantJoined.TYPE.equals(type)
+        || ParticipantLeft.TYPE.equals(type)
+        || SessionEnded.TYPE.equals(type);
+  }
+
+  private void trackPresence(RelayEnvelope envelope) {
+    String type = envelope.type();
+    // Media changes also arrive addressed to one user, when they catch up a joiner
+    boolean tracked =
+        envelope.isBroadcast()
+            ? ParticipantJoined.TYPE.equals(type)
+                || ParticipantLeft.TYPE.equals(type)
+                || MediaStateChanged.TYPE.equals(type)
+            : MediaStateChanged.TYPE.equals(type);
+    if (!tracked) {
+      return;
+    }
+
+    JsonNode message;
+    try {
+      message = json.getMapper().readTree(envelope.payload());
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable {} from node {}", type, envelope.originNodeId());
+      return;
+    }
+    String userId = message.path("userId").asText();
+
+    if (ParticipantJoined.TYPE.equals(type)) {
+      remoteMembers
+          .computeIfAbsent(envelope.sessionId(), k -> new ConcurrentHashMap<>())
+          .put(
+              userId,
+              new ParticipantState(
+                  userId,
+                  message.path("displayName").asText(""),
+                  message.path("cameraEnabled").asBoolean(),
+                  message.path("micEnabled").asBoolean()));
+      remoteJoinListeners.forEach(listener -> listener.accept(envelope.sessionId(), userId));
+    } else if (ParticipantLeft.TYPE.equals(type)) {
+      remoteMembers.computeIfPresent(
+          envelope.sessionId(),
+          (id, members) -> {
+            members.remove(userId);
+            return members.isEmpty() ? null : members;
+          });
+    } else {
+      Map<String, ParticipantState> members = remoteMembers.get(envelope.sessionId());
+      if (members != null) {
+        members.computeIfPresent(
+            userId,
+            (u, state) ->
+                new ParticipantState(
+                    u,
+                    state.displayName(),
+                    message.path("cameraEnabled").asBoolean(),
+                    message.path("micEnabled").asBoolean()));
+      }
+    }
+  }
+}
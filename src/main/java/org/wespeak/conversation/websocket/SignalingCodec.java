@@ -0,0 +1,155 @@
+package org.wespeak.conversation.websocket;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.wespeak.conversation.websocket.SignalingMessages.Inbound;
+
+/**
+ * Wire format of a signaling connection. Both formats carry the same message types; they differ
+ * only in how frames are encoded (text JSON or binary CBOR).
+ */
+public final class SignalingCodec {
+
+  private final String subProtocol;
+  private final ObjectMapper mapper;
+  private final boolean binary;
+
+  SignalingCodec(String subProtocol, ObjectMapper mapper, boolean binary) {
+    this.subProtocol = subProtocol;
+    this.mapper = mapper;
+    this.binary = binary;
+  }
+
+  public String getSubProtocol() {
+    return subProtocol;
+  }
+
+  public ObjectMapper getMapper() {
+    return mapper;
+  }
+
+  public boolean isBinary() {
+    return binary;
+  }
+
+  /** Encode a message as a frame of this format. */
+  public WebSocketMessage<?> encode(Object message) throws IOException {
+    if (binary) {
+      return new BinaryMessage(mapper.writeValueAsBytes(message));
+    }
+    return new TextMessage(mapper.writeValueAsString(message));
+  }
+
+  /**
+   * Read a frame of this format with a streaming parser. Only the top-level fields the handler
+   * dispatches on are materialized; {@code data} is captured as a span of the payload.
+   */
+  public Inbound read(WebSocketMessage<?> message) throws IOException {
+    if (message instanceof TextMessage textMessage) {
+      String text = textMessage.getPayload();
+      try (JsonParser parser = mapper.getFactory().createParser(text)) {
+        return read(parser, text, null);
+      }
+    }
+    byte[] bytes = bytesOf((ByteBuffer) message.getPayload());
+    try (JsonParser parser = mapper.getFactory().createParser(bytes)) {
+      return read(parser, null, bytes);
+    }
+  }
+
+  private Inbound read(JsonParser parser, String text, byte[] bytes) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Signaling frame must be an object");
+    }
+
+    String type = null;
+    String sessionId = null;
+    String userId = null;
+    String targetUserId = null;
+    Boolean cameraEnabled = null;
+    Boolean micEnabled = null;
+    List<String> capabilities = List.of();
+    RawValue data = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "type" -> type = parser.getValueAsString();
+        case "sessionId" -> sessionId = parser.getValueAsString();
+        case "userId" -> userId = parser.getValueAsString();
+        case "targetUserId" -> targetUserId = parser.getValueAsString();
+        case "cameraEnabled" -> cameraEnabled = parser.getValueAsBoolean();
+        case "micEnabled" -> micEnabled = parser.getValueAsBoolean();
+        case "capabilities" -> capabilities = readStrings(parser);
+        case "data" -> data = capture(parser, text, bytes);
+        default -> parser.skipChildren();
+      }
+    }
+
+    return new Inbound(
+        type, sessionId, userId, targetUserId, cameraEnabled, micEnabled, capabilities, data);
+  }
+
+  private static List<String> readStrings(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return List.of();
+    }
+    List<String> values = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (parser.currentToken() == JsonToken.VALUE_STRING) {
+        values.add(parser.getText());
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return values;
+  }
+
+  private RawValue capture(JsonParser parser, String text, byte[] bytes) throws IOException {
+    int start = offset(parser.currentTokenLocation(), text != null);
+    if (parser.currentToken().isStructStart()) {
+      parser.skipChildren();
+    } else {
+      // Scalars are decoded lazily; consume the rest of the token so the location is past it
+      parser.finishToken();
+    }
+    int end = offset(parser.currentLocation(), text != null);
+
+    return text != null
+        ? RawValue.ofText(this, text, start, end)
+        : RawValue.ofBytes(this, bytes, start, end);
+  }
+
+  private static int offset(JsonLocation location, boolean chars) {
+    return (int) (chars ? location.getCharOffset() : location.getByteOffset());
+  }
+
+  private static byte[] bytesOf(ByteBuffer buffer) {
+    if (buffer.hasArray()
+        && buffer.arrayOffset() == 0
+        && buffer.position() == 0
+        && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return subProtocol;
+  }
+}
@@ -0,0 +1,48 @@
+package org.wespeak.conversation.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * The signaling wire formats and the WebSocket subprotocols that select them. Clients that offer
+ * no subprotocol (or only the JSON one) get text JSON, exactly as before.
+ */
+@Component
+public class SignalingCodecs {
+
+  public static final String JSON_PROTOCOL = "wespeak.signaling.v1.json";
+  public static final String CBOR_PROTOCOL = "wespeak.signaling.v1.cbor";
+
+  /** Subprotocols offered during the handshake, in order of server preference. */
+  public static final List<String> SUPPORTED_PROTOCOLS = List.of(CBOR_PROTOCOL, JSON_PROTOCOL);
+
+  private final SignalingCodec json;
+  private final SignalingCodec cbor;
+
+  public SignalingCodecs(ObjectMapper objectMapper) {
+    this.json = new SignalingCodec(JSON_PROTOCOL, objectMapper, false);
+    this.cbor = new SignalingCodec(CBOR_PROTOCOL, objectMapper.copyWith(new CBORFactory()), true);
+  }
+
+  public SignalingCodec json() {
+    return json;
+  }
+
+  public SignalingCodec cbor() {
+    return cbor;
+  }
+
+  /** Codec for outbound frames, chosen from the subprotocol accepted at handshake. */
+  public SignalingCodec forProtocol(String acceptedProtocol) {
+    return CBOR_PROTOCOL.equals(acceptedProtocol) ? cbor : json;
+  }
+
+  /** Codec able to read an inbound frame, based on its frame type. */
+  public SignalingCodec forMessage(WebSocketMessage<?> message) {
+    return message instanceof BinaryMessage ? cbor : json;
+  }
+}
@@ -0,0 +1,264 @@
+package org.wespeak.conversation.websocket;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * A signaling socket with its own bounded outbound queue. Callers enqueue frames and return
+ * immediately; a single drain task per connection writes them to the socket in order, so a slow
+ * client only ever blocks its own drain.
+ */
+@Slf4j
+public class SignalingConnection {
+
+  static final String MEDIA_STATE_TYPE = SignalingMessages.MediaStateChanged.TYPE;
+
+  /** Frames a drain writes before giving its thread to the next connection waiting for one. */
+  static final int DRAIN_BATCH = 32;
+
+  private final WebSocketSession session;
+  private final SignalingCodec codec;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final Executor executor;
+  private final OutboundQueueManager manager;
+
+  private final Deque<Frame> queue = new ArrayDeque<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private volatile boolean closed;
+  private volatile boolean iceBatching;
+  private volatile long lastSeenNanos;
+
+  SignalingConnection(
+      WebSocketSession session,
+      SignalingCodec codec,
+      int capacity,
+      OverflowPolicy overflowPolicy,
+      Executor executor,
+      OutboundQueueManager manager) {
+    this.session = session;
+    this.codec = codec;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.executor = executor;
+    this.manager = manager;
+  }
+
+  public WebSocketSession getSession() {
+    return session;
+  }
+
+  public String getId() {
+    return session.getId();
+  }
+
+  /** Wire format negotiated for this connection. */
+  public SignalingCodec getCodec() {
+    return codec;
+  }
+
+  public boolean isOpen() {
+    return !closed && session.isOpen();
+  }
+
+  /** Whether the client accepts relayed candidates coalesced into {@code ice-candidates} frames. */
+  public boolean isIceBatching() {
+    return iceBatching;
+  }
+
+  public void enableIceBatching() {
+    iceBatching = true;
+  }
+
+  /** {@link System#nanoTime()}-style timestamp of the last frame or pong received. */
+  public long getLastSeenNanos() {
+    return lastSeenNanos;
+  }
+
+  void markSeen(long nanos) {
+    lastSeenNanos = nanos;
+  }
+
+  /**
+   * The lock guarding the outbound queue. Holding it keeps the frames queued under it together, so
+   * callers that must order frames against each other queue them while holding it.
+   */
+  ReentrantLock outboundLock() {
+    return lock;
+  }
+
+  /** Number of frames waiting to be written. */
+  public int queueDepth() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Queue a frame for delivery. Returns false if the frame was not accepted, either because the
+   * connection is closed or because it overflowed and the overflow policy closed it.
+   */
+  public boolean send(WebSocketMessage<?> message, String type) {
+    if (!isOpen()) {
+      return false;
+    }
+
+    boolean overflow = false;
+    int depth;
+    lock.lock();
+    try {
+      if (queue.size() >= capacity && !dropOldestMediaState()) {
+        overflow = true;
+      } else {
+        queue.addLast(new Frame(message, type, null));
+      }
+      depth = queue.size();
+    } finally {
+      lock.unlock();
+    }
+
+    if (overflow) {
+      log.warn(
+          "Outbound queue full for WebSocket {} ({} frames), closing slow consumer",
+          session.getId(),
+          capacity);
+      manager.onSlowConsumerClosed();
+      close(CloseStatus.SESSION_NOT_RELIABLE);
+      return false;
+    }
+
+    manager.onEnqueued(depth);
+    scheduleDrain();
+    return true;
+  }
+
+  /** Queue a frame, encoded in this connection's wire format. */
+  public boolean send(OutboundFrame frame) throws IOException {
+    if (!isOpen()) {
+      return false;
+    }
+    return send(frame.encodedFor(codec), frame.getType());
+  }
+
+  /** Close the socket once every frame queued before this call has been written. */
+  public void closeAfterDrain(CloseStatus status) {
+    if (closed) {
+      return;
+    }
+    lock.lock();
+    try {
+      queue.addLast(new Frame(null, null, status));
+    } finally {
+      lock.unlock();
+    }
+    scheduleDrain();
+  }
+
+  /** Close the socket immediately, discarding anything still queued. */
+  public void close(CloseStatus status) {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    discardQueued();
+    try {
+      session.close(status);
+    } catch (IOException e) {
+      log.debug("Error closing WebSocket {}", session.getId(), e);
+    }
+  }
+
+  private boolean dropOldestMediaState() {
+    if (overflowPolicy != OverflowPolicy.DROP_OLDEST_MEDIA_STATE) {
+      return false;
+    }
+    Iterator<Frame> it = queue.iterator();
+    while (it.hasNext()) {
+      if (MEDIA_STATE_TYPE.equals(it.next().type())) {
+        it.remove();
+        manager.onDropped();
+        manager.onDequeued(1);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        draining.set(false);
+        log.warn("Outbound executor rejected drain for WebSocket {}", session.getId());
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      Frame frame;
+      for (int written = 0; written < DRAIN_BATCH && (frame = poll()) != null; written++) {
+        if (frame.closeStatus() != null) {
+          close(frame.closeStatus());
+          return;
+        }
+        manager.onDequeued(1);
+        if (!session.isOpen()) {
+          closed = true;
+          discardQueued();
+          return;
+        }
+        session.sendMessage(frame.message());
+      }
+    } catch (IOException | RuntimeException e) {
+      log.debug("Error writing to WebSocket {}", session.getId(), e);
+      close(CloseStatus.SERVER_ERROR);
+    } finally {
+      // Whatever is left goes behind the drains already waiting
+      draining.set(false);
+      if (!closed && queueDepth() > 0) {
+        scheduleDrain();
+      }
+    }
+  }
+
+  private Frame poll() {
+    lock.lock();
+    try {
+      return queue.pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void discardQueued() {
+    int discarded;
+    lock.lock();
+    try {
+      discarded = (int) queue.stream().filter(f -> f.message() != null).count();
+      queue.clear();
+    } finally {
+      lock.unlock();
+    }
+    if (discarded > 0) {
+      manager.onDequeued(discarded);
+    }
+  }
+
+  private record Frame(WebSocketMessage<?> message, String type, CloseStatus closeStatus) {}
+}
@@ -0,0 +1,90 @@
+package org.wespeak.conversation.websocket;
+
+import java.util.List;
+
+/**
+ * Typed signaling messages. Outbound messages carry their {@code type} as the first component so
+ * it is serialized first; relayed offers/answers/candidates are not modelled here because their
+ * {@code data} is spliced through untouched (see {@link OutboundFrame#relay}).
+ */
+public final class SignalingMessages {
+
+  private SignalingMessages() {}
+
+  /** A message sent by the server. */
+  public interface Outbound {
+    String type();
+  }
+
+  /** A message received from a client, read with a streaming parser. */
+  public record Inbound(
+      String type,
+      String sessionId,
+      String userId,
+      String targetUserId,
+      Boolean cameraEnabled,
+      Boolean micEnabled,
+      List<String> capabilities,
+      RawValue data) {}
+
+  public record ParticipantState(
+      String userId, String displayName, boolean cameraEnabled, boolean micEnabled) {}
+
+  public record RoomState(String type, List<ParticipantState> participants) implements Outbound {
+    public RoomState(List<ParticipantState> participants) {
+      this("room-state", participants);
+    }
+  }
+
+  public record ParticipantJoined(
+      String type, String userId, String displayName, boolean cameraEnabled, boolean micEnabled)
+      implements Outbound {
+    public static final String TYPE = "participant-joined";
+
+    public ParticipantJoined(ParticipantState state) {
+      this(
+          TYPE,
+          state.userId(),
+          state.displayName(),
+          state.cameraEnabled(),
+          state.micEnabled());
+    }
+  }
+
+  public record ParticipantLeft(String type, String userId) implements Outbound {
+    public static final String TYPE = "participant-left";
+
+    public ParticipantLeft(String userId) {
+      this(TYPE, userId);
+    }
+  }
+
+  public record MediaStateChanged(
+      String type, String userId, boolean cameraEnabled, boolean micEnabled) implements Outbound {
+    public static final String TYPE = "media-state-changed";
+
+    public MediaStateChanged(String userId, boolean cameraEnabled, boolean micEnabled) {
+      this(TYPE, userId, cameraEnabled, micEnabled);
+    }
+  }
+
+  public record SessionEnded(String type) implements Outbound {
+    public static final String TYPE = "session-ended";
+
+    public SessionEnded() {
+      this(TYPE);
+    }
+  }
+
+  public record Pong(String type) implements Outbound {
+    public Pong() {
+      this("pong");
+    }
+  }
+
+  public record ErrorMessage(String type, String message) implements Outbound {
+    public ErrorMessage(String message) {
+      this("error", message);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package org.wespeak.conversation.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries signaling frames between service instances, so the participants of one session can be
+ * connected to different nodes. Implementations deliver every envelope published on one node to
+ * the listeners of all other nodes, and never back to the node that published it.
+ *
+ * <p>Delivery is best effort: like a frame to a closed socket, an envelope for a user that is not
+ * connected anywhere is dropped.
+ */
+public interface SignalingRelay {
+
+  /** Identifier of this node, stamped on every envelope it publishes. */
+  String nodeId();
+
+  /** Hand an envelope to the other nodes. Must not block on remote delivery. */
+  void publish(RelayEnvelope envelope);
+
+  /** Register a listener for envelopes published by other nodes. */
+  void subscribe(Consumer<RelayEnvelope> listener);
+}
@@ -1,56 +1,124 @@
 package org.wespeak.conversation.websocket;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
-import org.wespeak.conversation.entity.Participant;
-import org.wespeak.conversation.repository.ParticipantRepository;
-import org.wespeak.conversation.repository.SessionRepository;
-
-/** WebSocket handler for WebRTC signaling. */
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.wespeak.conversation.service.MediaStateBuffer;
+import org.wespeak.conversation.service.RoomRosterService;
+import org.wespeak.conversation.service.RoomRosterService.RosterEntry;
+import org.wespeak.conversation.service.SessionActors;
+import org.wespeak.conversation.service.SessionService;
+import org.wespeak.conversation.websocket.SignalingMessages.ErrorMessage;
+import org.wespeak.conversation.websocket.SignalingMessages.Inbound;
+import org.wespeak.conversation.websocket.SignalingMessages.MediaStateChanged;
+import org.wespeak.conversation.websocket.SignalingMessages.Outbound;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantJoined;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantLeft;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantState;
+import org.wespeak.conversation.websocket.SignalingMessages.Pong;
+import org.wespeak.conversation.websocket.SignalingMessages.RoomState;
+import org.wespeak.conversation.websocket.SignalingMessages.SessionEnded;
+
+/**
+ * WebSocket handler for WebRTC signaling. Text frames carry JSON; binary frames carry the same
+ * messages as CBOR for clients that negotiated {@link SignalingCodecs#CBOR_PROTOCOL}.
+ *
+ * <p>Frames are read with a streaming parser into {@link Inbound}; the {@code data} of relayed
+ * offers, answers and ICE candidates is never parsed, only spliced into the outbound frame.
+ *
+ * <p>Participants of a session may be connected to different nodes. Frames for users that are not
+ * connected here, and every room broadcast, also go through the {@link SignalingCluster}. The end
+ * of a session is relayed too, so every node closes its sockets and drops its state for the room.
+ *
+ * <p>Sockets that stop answering heartbeats are closed by the {@link IdleConnectionSweeper} and
+ * cleaned up like any other closed socket.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class SignalingWebSocketHandler extends TextWebSocketHandler {
-
-  private final ObjectMapper objectMapper;
-  private final ParticipantRepository participantRepository;
-  private final SessionRepository sessionRepository;
-
-  // Map sessionId -> (userId -> WebSocketSession)
-  private final Map<String, Map<String, WebSocketSession>> sessionConnections =
+public class SignalingWebSocketHandler extends AbstractWebSocketHandler {
+
+  private final SignalingCodecs signalingCodecs;
+  private final OutboundQueueManager outboundQueueManager;
+  private final RoomRosterService roomRosterService;
+  private final IceCandidateCoalescer iceCandidateCoalescer;
+  private final MediaStateBuffer mediaStateBuffer;
+  private final SignalingCluster signalingCluster;
+  private final IdleConnectionSweeper idleConnectionSweeper;
+  private final SessionService sessionService;
+  private final SessionActors sessionActors;
+
+  // Map sessionId -> (userId -> connection)
+  private final Map<String, Map<String, SignalingConnection>> sessionConnections =
       new ConcurrentHashMap<>();
 
   // Map WebSocketSession id -> (sessionId, userId)
   private final Map<String, ConnectionInfo> connectionInfoMap = new ConcurrentHashMap<>();
 
+  // Map WebSocketSession id -> connection with its outbound queue
+  private final Map<String, SignalingConnection> connections = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void subscribe() {
+    signalingCluster.subscribe(this::deliverFromCluster);
+    signalingCluster.onRemoteJoin(this::sendMediaStates);
+    idleConnectionSweeper.onIdle(this::evictIdle);
+    sessionActors.onEnded(this::broadcastSessionEnded);
+  }
+
   @Override
   public void afterConnectionEstablished(WebSocketSession session) {
-    log.debug("WebSocket connection established: {}", session.getId());
-    // Connection will be registered when client sends 'join' message
+    SignalingCodec codec = signalingCodecs.forProtocol(session.getAcceptedProtocol());
+    SignalingConnection connection = outboundQueueManager.open(session, codec);
+    connections.put(session.getId(), connection);
+    idleConnectionSweeper.register(connection);
+    log.debug("WebSocket connection established: {} ({})", session.getId(), codec);
+    // Connection will be registered in its session when client sends 'join' message
   }
 
   @Override
-  protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+  protected void handleTextMessage(WebSocketSession session, TextMessage message)
+      throws IOException {
+    handleFrame(session, message);
+  }
+
+  @Override
+  protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message)
+      throws IOException {
+    handleFrame(session, message);
+  }
+
+  @Override
+  protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+    touch(session);
+  }
+
+  private void handleFrame(WebSocketSession session, WebSocketMessage<?> message)
+      throws IOException {
+    touch(session);
     try {
-      JsonNode json = objectMapper.readTree(message.getPayload());
-      String type = json.get("type").asText();
+      Inbound inbound = signalingCodecs.forMessage(message).read(message);
+      String type = required(inbound.type(), "type");
 
       switch (type) {
-        case "join" -> handleJoin(session, json);
-        case "offer" -> handleSignalingMessage(session, json, "offer");
-        case "answer" -> handleSignalingMessage(session, json, "answer");
-        case "ice-candidate" -> handleSignalingMessage(session, json, "ice-candidate");
-        case "media-state" -> handleMediaState(session, json);
+        case "join" -> handleJoin(session, inbound);
+        case "offer", "answer", "ice-candidate" -> handleSignalingMessage(session, inbound);
+        case "media-state" -> handleMediaState(session, inbound);
+        case "ping" -> handlePing(session);
         default -> log.warn("Unknown message type: {}", type);
       }
     } catch (Exception e) {
@@ -61,83 +129,95 @@ public class SignalingWebSocketHandler extends TextWebSocketHandler {
 
   @Override
   public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+    SignalingConnection connection = connections.remove(session.getId());
+    if (connection != null) {
+      iceCandidateCoalescer.discard(connection);
+      outboundQueueManager.release(connection);
+    }
+
     ConnectionInfo info = connectionInfoMap.remove(session.getId());
     if (info != null) {
-      Map<String, WebSocketSession> sessionSockets = sessionConnections.get(info.sessionId);
-      if (sessionSockets != null) {
-        sessionSockets.remove(info.userId);
-
-        // Notify other participants
-        broadcastToSession(
-            info.sessionId, info.userId, Map.of("type", "participant-left", "userId", info.userId));
+      // Drop the session's map with its last socket, so ended rooms do not accumulate
+      boolean wasMember = sessionConnections.containsKey(info.sessionId);
+      sessionConnections.computeIfPresent(
+          info.sessionId,
+          (id, sessionSockets) -> {
+            sessionSockets.remove(info.userId, connection);
+            return sessionSockets.isEmpty() ? null : sessionSockets;
+          });
+
+      // Notify other participants
+      if (wasMember) {
+        broadcastToSession(info.sessionId, info.userId, new ParticipantLeft(info.userId));
       }
 
       // Update participant status in database
-      updateParticipantDisconnected(info.sessionId, info.userId);
+      sessionService.disconnect(info.sessionId, info.userId);
     }
     log.debug("WebSocket connection closed: {}", session.getId());
   }
 
-  private void handleJoin(WebSocketSession session, JsonNode json) throws IOException {
-    String sessionId = json.get("sessionId").asText();
-    String userId = json.get("userId").asText();
+  private void handleJoin(WebSocketSession session, Inbound inbound) throws IOException {
+    String sessionId = required(inbound.sessionId(), "sessionId");
+    String userId = required(inbound.userId(), "userId");
 
-    // Verify participant is in this session
-    if (!participantRepository.existsBySessionIdAndUserId(sessionId, userId)) {
+    SignalingConnection connection = connections.get(session.getId());
+    if (connection == null) {
+      return;
+    }
+
+    // Verify participant is in this session (the roster, or Mongo if they joined elsewhere)
+    RosterEntry self = roomRosterService.find(sessionId, userId).orElse(null);
+    if (self == null) {
       sendError(session, "Not a participant of this session");
-      session.close();
+      connection.closeAfterDrain(CloseStatus.NORMAL);
       return;
     }
 
+    if (inbound.capabilities().contains(IceCandidateCoalescer.CAPABILITY)) {
+      connection.enableIceBatching();
+    }
+
     // Store connection info
     connectionInfoMap.put(session.getId(), new ConnectionInfo(sessionId, userId));
-    sessionConnections
-        .computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
-        .put(userId, session);
-
-    // Get current participants
-    Map<String, WebSocketSession> sessionSockets = sessionConnections.get(sessionId);
-    var participants =
-        sessionSockets.keySet().stream()
-            .filter(id -> !id.equals(userId))
-            .map(id -> participantRepository.findBySessionIdAndUserId(sessionId, id).orElse(null))
-            .filter(p -> p != null)
-            .map(
-                p ->
-                    Map.of(
-                        "userId", p.getUserId(),
-                        "displayName", p.getDisplayName() != null ? p.getDisplayName() : "",
-                        "cameraEnabled", p.getCameraEnabled(),
-                        "micEnabled", p.getMicEnabled()))
-            .toList();
+    sessionConnections.compute(
+        sessionId,
+        (id, sessionSockets) -> {
+          Map<String, SignalingConnection> sockets =
+              sessionSockets != null ? sessionSockets : new ConcurrentHashMap<>();
+          sockets.put(userId, connection);
+          return sockets;
+        });
+
+    // Get current participants from the roster
+    Map<String, RosterEntry> roster = roomRosterService.getRoom(sessionId);
+    Map<String, SignalingConnection> sessionSockets = sessionConnections.get(sessionId);
+    List<ParticipantState> participants =
+        new ArrayList<>(
+            sessionSockets.keySet().stream()
+                .filter(id -> !id.equals(userId))
+                .map(roster::get)
+                .filter(Objects::nonNull)
+                .map(this::toParticipantState)
+                .toList());
+
+    // Plus those connected to other nodes
+    for (ParticipantState remote : signalingCluster.remoteMembers(sessionId)) {
+      if (!remote.userId().equals(userId) && !sessionSockets.containsKey(remote.userId())) {
+        participants.add(remote);
+      }
+    }
 
     // Send existing participants to the new joiner
-    sendMessage(session, Map.of("type", "room-state", "participants", participants));
+    sendMessage(connection, new RoomState(participants));
 
     // Notify others that this participant joined
-    Participant participant =
-        participantRepository.findBySessionIdAndUserId(sessionId, userId).orElse(null);
-    if (participant != null) {
-      broadcastToSession(
-          sessionId,
-          userId,
-          Map.of(
-              "type",
-              "participant-joined",
-              "userId",
-              userId,
-              "displayName",
-              participant.getDisplayName() != null ? participant.getDisplayName() : "",
-              "cameraEnabled",
-              participant.getCameraEnabled(),
-              "micEnabled",
-              participant.getMicEnabled()));
-    }
+    broadcastToSession(sessionId, userId, new ParticipantJoined(toParticipantState(self)));
 
     log.info("User {} joined signaling for session {}", userId, sessionId);
   }
 
-  private void handleSignalingMessage(WebSocketSession session, JsonNode json, String type)
+  private void handleSignalingMessage(WebSocketSession session, Inbound inbound)
       throws IOException {
     ConnectionInfo info = connectionInfoMap.get(session.getId());
     if (info == null) {
@@ -145,64 +225,147 @@ public class SignalingWebSocketHandler extends TextWebSocketHandler {
       return;
     }
 
-    String targetUserId = json.get("targetUserId").asText();
-    Map<String, WebSocketSession> sessionSockets = sessionConnections.get(info.sessionId);
-
-    if (sessionSockets != null) {
-      WebSocketSession targetSession = sessionSockets.get(targetUserId);
-      if (targetSession != null && targetSession.isOpen()) {
-        Map<String, Object> outMessage =
-            Map.of("type", type, "fromUserId", info.userId, "data", json.get("data"));
-        sendMessage(targetSession, outMessage);
+    String targetUserId = required(inbound.targetUserId(), "targetUserId");
+    RawValue data = required(inbound.data(), "data");
+    Map<String, SignalingConnection> sessionSockets = sessionConnections.get(info.sessionId);
+    SignalingConnection target = sessionSockets != null ? sessionSockets.get(targetUserId) : null;
+
+    if (target == null) {
+      // Not connected here; the node holding the target's socket delivers it
+      signalingCluster.sendToUser(
+          info.sessionId, targetUserId, OutboundFrame.relay(inbound.type(), info.userId, data));
+    } else if (target.isOpen()) {
+      if (!iceCandidateCoalescer.accepts(target)) {
+        target.send(OutboundFrame.relay(inbound.type(), info.userId, data));
+      } else if ("ice-candidate".equals(inbound.type())) {
+        iceCandidateCoalescer.add(target, info.userId, data);
+      } else {
+        // Send candidates received before this offer/answer first, keeping their order
+        iceCandidateCoalescer.flushThenSend(
+            target, OutboundFrame.relay(inbound.type(), info.userId, data));
       }
     }
   }
 
-  private void handleMediaState(WebSocketSession session, JsonNode json) throws IOException {
+  private void handlePing(WebSocketSession session) throws IOException {
+    SignalingConnection connection = connections.get(session.getId());
+    if (connection != null) {
+      sendMessage(connection, new Pong());
+    }
+  }
+
+  private void handleMediaState(WebSocketSession session, Inbound inbound) throws IOException {
     ConnectionInfo info = connectionInfoMap.get(session.getId());
     if (info == null) {
       sendError(session, "Not joined to a session");
       return;
     }
 
-    boolean cameraEnabled = json.get("cameraEnabled").asBoolean();
-    boolean micEnabled = json.get("micEnabled").asBoolean();
+    boolean cameraEnabled = required(inbound.cameraEnabled(), "cameraEnabled");
+    boolean micEnabled = required(inbound.micEnabled(), "micEnabled");
 
-    // Update database
-    participantRepository
-        .findBySessionIdAndUserId(info.sessionId, info.userId)
-        .ifPresent(
-            p -> {
-              p.setCameraEnabled(cameraEnabled);
-              p.setMicEnabled(micEnabled);
-              participantRepository.save(p);
-            });
+    // Buffered and written to the database in bulk
+    mediaStateBuffer.record(info.sessionId, info.userId, cameraEnabled, micEnabled);
+    roomRosterService.updateMediaState(info.sessionId, info.userId, cameraEnabled, micEnabled);
 
     // Broadcast to others
     broadcastToSession(
         info.sessionId,
         info.userId,
-        Map.of(
-            "type",
-            "media-state-changed",
-            "userId",
-            info.userId,
-            "cameraEnabled",
-            cameraEnabled,
-            "micEnabled",
-            micEnabled));
+        new MediaStateChanged(info.userId, cameraEnabled, micEnabled));
   }
 
-  private void broadcastToSession(
-      String sessionId, String excludeUserId, Map<String, Object> message) {
-    Map<String, WebSocketSession> sessionSockets = sessionConnections.get(sessionId);
-    if (sessionSockets == null) return;
+  private void broadcastToSession(String sessionId, String excludeUserId, Outbound message) {
+    // Encoded at most once per wire format and shared by every recipient
+    OutboundFrame frame = OutboundFrame.of(message);
+    try {
+      signalingCluster.broadcast(sessionId, excludeUserId, frame);
+    } catch (IOException e) {
+      log.error("Error relaying {} for session {}", frame.getType(), sessionId, e);
+    }
+    deliverLocally(sessionId, excludeUserId, frame);
+  }
+
+  private void touch(WebSocketSession session) {
+    SignalingConnection connection = connections.get(session.getId());
+    if (connection != null) {
+      idleConnectionSweeper.touch(connection);
+    }
+  }
+
+  private void evictIdle(SignalingConnection connection) {
+    connection.close(CloseStatus.SESSION_NOT_RELIABLE);
+    // Clean up now rather than waiting for the container to notice the dead socket
+    afterConnectionClosed(connection.getSession(), CloseStatus.SESSION_NOT_RELIABLE);
+  }
+
+  private void deliverFromCluster(RelayEnvelope envelope) {
+    OutboundFrame frame =
+        OutboundFrame.forwarded(
+            envelope.type(),
+            RawValue.ofText(
+                signalingCodecs.json(), envelope.payload(), 0, envelope.payload().length()));
+
+    if (SessionEnded.TYPE.equals(envelope.type())) {
+      // Ended on another node, so the roster and actor here are stale as well
+      roomRosterService.evict(envelope.sessionId());
+      sessionActors.evict(envelope.sessionId());
+      closeSession(envelope.sessionId(), frame);
+      return;
+    }
+
+    if (envelope.isBroadcast()) {
+      deliverLocally(envelope.sessionId(), envelope.excludeUserId(), frame);
+      return;
+    }
+
+    Map<String, SignalingConnection> sessionSockets =
+        sessionConnections.get(envelope.sessionId());
+    SignalingConnection target =
+        sessionSockets != null ? sessionSockets.get(envelope.targetUserId()) : null;
+    if (target != null && target.isOpen()) {
+      try {
+        target.send(frame);
+      } catch (IOException e) {
+        log.error(
+            "Error delivering relayed {} to user {}", frame.getType(), envelope.targetUserId(), e);
+      }
+    }
+  }
+
+  /**
+   * Media changes are not relayed while no other node has members of the session, so a participant
+   * joining elsewhere is sent the current state of everyone connected here.
+   */
+  private void sendMediaStates(String sessionId, String joinedUserId) {
+    Map<String, SignalingConnection> sessionSockets = sessionConnections.get(sessionId);
+    if (sessionSockets == null || sessionSockets.isEmpty()) return;
+
+    Map<String, RosterEntry> roster = roomRosterService.getRoom(sessionId);
+    for (String userId : sessionSockets.keySet()) {
+      RosterEntry entry = roster.get(userId);
+      if (entry == null) continue;
+      try {
+        signalingCluster.sendToUser(
+            sessionId,
+            joinedUserId,
+            OutboundFrame.of(
+                new MediaStateChanged(userId, entry.cameraEnabled(), entry.micEnabled())));
+      } catch (IOException e) {
+        log.error("Error relaying media state of user {} to {}", userId, joinedUserId, e);
+      }
+    }
+  }
+
+  private void deliverLocally(String sessionId, String excludeUserId, OutboundFrame frame) {
+    Map<String, SignalingConnection> sessionSockets = sessionConnections.get(sessionId);
+    if (sessionSockets == null || sessionSockets.isEmpty()) return;
 
     sessionSockets.forEach(
-        (userId, ws) -> {
-          if (!userId.equals(excludeUserId) && ws.isOpen()) {
+        (userId, connection) -> {
+          if (!userId.equals(excludeUserId) && connection.isOpen()) {
             try {
-              sendMessage(ws, message);
+              connection.send(frame);
             } catch (IOException e) {
               log.error("Error broadcasting to user {}", userId, e);
             }
@@ -210,46 +373,58 @@ public class SignalingWebSocketHandler extends TextWebSocketHandler {
         });
   }
 
+  /** This node ended the session: tell the sockets here and the nodes holding the others. */
   public void broadcastSessionEnded(String sessionId) {
-    Map<String, WebSocketSession> sessionSockets = sessionConnections.get(sessionId);
+    OutboundFrame frame = OutboundFrame.of(new SessionEnded());
+    try {
+      signalingCluster.broadcast(sessionId, null, frame);
+    } catch (IOException e) {
+      log.error("Error relaying end of session {}", sessionId, e);
+    }
+    closeSession(sessionId, frame);
+  }
+
+  private void closeSession(String sessionId, OutboundFrame frame) {
+    signalingCluster.forget(sessionId);
+    Map<String, SignalingConnection> sessionSockets = sessionConnections.remove(sessionId);
     if (sessionSockets == null) return;
 
-    Map<String, Object> message = Map.of("type", "session-ended");
     sessionSockets.forEach(
-        (userId, ws) -> {
+        (userId, connection) -> {
           try {
-            if (ws.isOpen()) {
-              sendMessage(ws, message);
-              ws.close();
+            if (connection.isOpen()) {
+              connection.send(frame);
+              connection.closeAfterDrain(CloseStatus.NORMAL);
             }
           } catch (IOException e) {
             log.error("Error closing WebSocket for user {}", userId, e);
           }
         });
-
-    sessionConnections.remove(sessionId);
   }
 
-  private void sendMessage(WebSocketSession session, Map<String, Object> message)
-      throws IOException {
-    if (session.isOpen()) {
-      session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+  private void sendMessage(SignalingConnection connection, Outbound message) throws IOException {
+    if (connection.isOpen()) {
+      connection.send(OutboundFrame.of(message));
     }
   }
 
   private void sendError(WebSocketSession session, String error) throws IOException {
-    sendMessage(session, Map.of("type", "error", "message", error));
+    SignalingConnection connection = connections.get(session.getId());
+    if (connection != null) {
+      sendMessage(connection, new ErrorMessage(error));
+    }
+  }
+
+  private ParticipantState toParticipantState(RosterEntry entry) {
+    return new ParticipantState(
+        entry.userId(), entry.displayName(), entry.cameraEnabled(), entry.micEnabled());
   }
 
-  private void updateParticipantDisconnected(String sessionId, String userId) {
-    participantRepository
-        .findBySessionIdAndUserId(sessionId, userId)
-        .ifPresent(
-            p -> {
-              p.setStatus(Participant.Status.disconnected);
-              p.setLeftAt(java.time.Instant.now());
-              participantRepository.save(p);
-            });
+  private static <T> T required(T value, String field) {
+    if (value == null) {
+      throw new IllegalArgumentException("Missing field: " + field);
+    }
+    return value;
   }
 
   private record ConnectionInfo(String sessionId, String userId) {}
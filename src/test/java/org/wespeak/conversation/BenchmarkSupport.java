@@ -0,0 +1,50 @@
+package org.wespeak.conversation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Minimal timing/allocation harness for the {@code benchmark}-tagged tests (run with {@code
+ * ./gradlew benchmark}). Measures wall time and bytes allocated by the current thread.
+ */
+public final class BenchmarkSupport {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private BenchmarkSupport() {}
+
+  /** A single measured run: per-operation nanoseconds and allocated bytes. */
+  public record Result(double nanosPerOp, double bytesPerOp) {}
+
+  @FunctionalInterface
+  public interface Operation {
+    void run() throws Exception;
+  }
+
+  /** Warm up, then measure {@code iterations} invocations of {@code op}. */
+  public static Result measure(int warmup, int iterations, Operation op) throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      op.run();
+    }
+
+    long threadId = Thread.currentThread().threadId();
+    long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      op.run();
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+    return new Result((double) elapsed / iterations, (double) bytes / iterations);
+  }
+
+  /** The {@code p}-th percentile (0-100) of a set of samples. */
+  public static long percentile(long[] samples, double p) {
+    long[] sorted = samples.clone();
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+}
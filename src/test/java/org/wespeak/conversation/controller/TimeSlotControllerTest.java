@@ -0,0 +1,147 @@
+package org.wespeak.conversation.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wespeak.conversation.dto.TimeSlotDto;
+import org.wespeak.conversation.dto.TimeSlotsResponse;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+import org.wespeak.conversation.service.SchedulerLeases;
+import org.wespeak.conversation.service.TimeSlotService;
+import org.wespeak.conversation.service.TimetableIndex;
+
+@ExtendWith(MockitoExtension.class)
+class TimeSlotControllerTest {
+
+  private static final int CLIENTS = 50;
+  private static final int POLLS = 10;
+
+  @Mock private TimeSlotRepository timeSlotRepository;
+  @Mock private SchedulerLeases schedulerLeases;
+
+  private SimpleMeterRegistry meterRegistry;
+  private TimetableIndex timetableIndex;
+  private TimeSlotService timeSlotService;
+  private TimeSlotController controller;
+  private AtomicInteger registeredCount;
+  private Instant startTime;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    timetableIndex = spy(new TimetableIndex(timeSlotRepository, meterRegistry, 8));
+    timeSlotService = spy(new TimeSlotService(timeSlotRepository, schedulerLeases, timetableIndex));
+    controller = new TimeSlotController(timeSlotService, meterRegistry);
+    ReflectionTestUtils.setField(controller, "maxAgeSeconds", 5L);
+    ReflectionTestUtils.setField(controller, "staleWhileRevalidateSeconds", 30L);
+    registeredCount = new AtomicInteger(2);
+    startTime = Instant.now().plus(1, ChronoUnit.DAYS);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenAnswer(invocation -> List.of(slot()));
+    timetableIndex.refresh();
+  }
+
+  @Test
+  void getTimeSlots_shouldShortCircuitPollsUntilTheCatalogChanges() {
+    // Given - the index holds the slot as it is now
+    List<String> etags = new ArrayList<>();
+    for (int client = 0; client < CLIENTS; client++) {
+      etags.add(null);
+    }
+
+    // When - each client polls with the tag it last saw; one registration lands halfway
+    for (int poll = 0; poll < POLLS; poll++) {
+      if (poll == POLLS / 2) {
+        registeredCount.incrementAndGet();
+        timetableIndex.seatsChanged("slot-1", 1);
+      }
+      for (int client = 0; client < CLIENTS; client++) {
+        ResponseEntity<TimeSlotsResponse> response =
+            controller.getTimeSlots(
+                "fr", TimeSlot.Level.B1, null, null, null, 0, 20, false, etags.get(client));
+        if (response.getStatusCode() == HttpStatus.OK) {
+          assertEquals(
+              registeredCount.get(),
+              response.getBody().getTimeslots().get(0).getRegisteredCount());
+        }
+        assertNotNull(response.getHeaders().getCacheControl());
+        etags.set(client, response.getHeaders().getETag());
+      }
+    }
+
+    // Then - only the first poll and the one after the change are full responses
+    double notModified = count("not_modified");
+    double full = count("full");
+    System.out.printf(
+        "catalog polls: %.0f, short-circuited: %.0f (%.0f%%)%n",
+        notModified + full, notModified, 100 * notModified / (notModified + full));
+    assertEquals(2.0 * CLIENTS, full);
+    assertEquals((POLLS - 2.0) * CLIENTS, notModified);
+    verify(timetableIndex, times(2 * CLIENTS))
+        .page(any(), any(), any(), any(), any(), any(), anyInt(), anyInt());
+    verify(timeSlotRepository).findByStartTimeBetweenAndIsActive(any(), any(), eq(true));
+    verifyNoMoreInteractions(timeSlotRepository);
+  }
+
+  @Test
+  void getTimeSlots_shouldSendCachingHeaders() {
+    // When
+    ResponseEntity<TimeSlotsResponse> response =
+        controller.getTimeSlots(null, null, null, null, null, 0, 20, false, null);
+
+    // Then
+    HttpHeaders headers = response.getHeaders();
+    assertTrue(headers.getETag().startsWith("\""));
+    assertEquals("max-age=5, public, stale-while-revalidate=30", headers.getCacheControl());
+  }
+
+  @Test
+  void getTimeSlot_shouldAnswerNotModifiedWithoutBuildingTheResponse() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(slot()));
+    String etag = controller.getTimeSlot("slot-1", null).getHeaders().getETag();
+
+    // When
+    ResponseEntity<TimeSlotDto> revalidated = controller.getTimeSlot("slot-1", etag);
+
+    // Then
+    assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+    assertNull(revalidated.getBody());
+    verify(timeSlotService, times(1)).toResponse(any(TimeSlotService.CatalogEntry.class));
+  }
+
+  private double count(String result) {
+    return meterRegistry.get("catalog.responses").tag("result", result).counter().count();
+  }
+
+  private TimeSlot slot() {
+    return TimeSlot.builder()
+        .id("slot-1")
+        .targetLanguageCode("fr")
+        .level(TimeSlot.Level.B1)
+        .startTime(startTime)
+        .durationMinutes(30)
+        .maxParticipants(8)
+        .registeredCount(registeredCount.get())
+        .isActive(true)
+        .build();
+  }
+}
@@ -0,0 +1,266 @@
+package org.wespeak.conversation.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.wespeak.conversation.BenchmarkSupport;
+import org.wespeak.conversation.ConversationServiceApplication;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Registration;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+import org.wespeak.conversation.service.SessionSnapshots;
+
+/**
+ * The session herd over HTTP, against the same service started three times on one Mongo: the
+ * servlet stack on Tomcat's 200 platform request threads, the servlet stack with {@code
+ * spring.threads.virtual.enabled}, and the {@code reactive} profile on WebFlux with reactive
+ * repositories. While a crowd of clients is parked in {@code /sessions/current?sinceVersion=}
+ * long-polls, a burst of session and registration reads arrives; then the session changes and
+ * every parked poll must be answered. Reports burst p50/p99, the time to wake all parked polls, and
+ * failures. Run with {@code ./gradlew benchmark}; needs Docker.
+ */
+@Tag("benchmark")
+@EnabledIf("org.wespeak.conversation.ConversationServiceApplicationTests#isDockerAvailable")
+class WebStackLoadBenchmark {
+
+  private static final int PARKED_POLLS = 1000;
+  private static final int BURST = 2000;
+  private static final int SLOTS = 100;
+  private static final int REGISTRATIONS = 3;
+  // The user every request maps to with security disabled
+  private static final String USER_ID = "dev-user-001";
+
+  @Test
+  void servletVersusReactiveStacks() throws Exception {
+    try (MongoDBContainer mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"))) {
+      mongo.start();
+      String mongoUri = mongo.getReplicaSetUrl("conversation");
+
+      List<Herd> herds =
+          List.of(
+              run("platform", mongoUri, false, false),
+              run("virtual", mongoUri, true, false),
+              run("reactive", mongoUri, false, true));
+
+      System.out.printf(
+          "%-9s %8s %8s %10s %10s %8s %12s%n",
+          "mode", "burst", "failed", "p50 ms", "p99 ms", "parked", "wake-all ms");
+      for (Herd herd : herds) {
+        System.out.printf(
+            "%-9s %8d %8d %10.1f %10.1f %8d %12.1f%n",
+            herd.mode(),
+            herd.latenciesNanos().length,
+            herd.failed(),
+            BenchmarkSupport.percentile(herd.latenciesNanos(), 50) / 1e6,
+            BenchmarkSupport.percentile(herd.latenciesNanos(), 99) / 1e6,
+            herd.parked(),
+            herd.wakeAllNanos() / 1e6);
+      }
+
+      for (Herd herd : herds) {
+        assertEquals(0, herd.failed(), herd.mode());
+      }
+    }
+  }
+
+  private Herd run(String mode, String mongoUri, boolean virtualThreads, boolean reactive)
+      throws Exception {
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(ConversationServiceApplication.class)
+            .profiles(reactive ? new String[] {"test", "reactive"} : new String[] {"test"})
+            .properties(
+                "server.port=0",
+                "spring.data.mongodb.uri=" + mongoUri,
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "logging.level.org.wespeak=WARN")
+            .run()) {
+      String sessionId = seed(context);
+      String baseUrl =
+          "http://localhost:"
+              + context.getEnvironment().getProperty("local.server.port")
+              + "/api/v1/conversations";
+
+      try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+        HttpClient http =
+            HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clients)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Warm up the request path and the session's snapshot
+        for (int i = 0; i < 50; i++) {
+          assertEquals(200, get(http, baseUrl + "/sessions/current").statusCode());
+          assertEquals(200, get(http, baseUrl + "/registrations").statusCode());
+        }
+
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<HttpResponse<Void>>> polls = new ArrayList<>();
+        for (int i = 0; i < PARKED_POLLS; i++) {
+          polls.add(
+              http.sendAsync(
+                  request(baseUrl + "/sessions/current?sinceVersion=0"),
+                  HttpResponse.BodyHandlers.discarding()));
+        }
+
+        long[] latencies = burst(clients, http, baseUrl, failed);
+
+        long wakeStart = System.nanoTime();
+        Session touched =
+            context
+                .getBean(MongoTemplate.class)
+                .findAndModify(
+                    query(where("id").is(sessionId)),
+                    new Update().inc("version", 1),
+                    FindAndModifyOptions.options().returnNew(true),
+                    Session.class);
+        context.getBean(SessionSnapshots.class).publish(touched);
+        CompletableFuture.allOf(polls.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+        long wakeAll = System.nanoTime() - wakeStart;
+
+        for (CompletableFuture<HttpResponse<Void>> poll : polls) {
+          if (poll.join().statusCode() != 200) {
+            failed.incrementAndGet();
+          }
+        }
+        return new Herd(mode, latencies, failed.get(), polls.size(), wakeAll);
+      }
+    }
+  }
+
+  /** Every burst request starts at once; latency is measured from the burst's start. */
+  private long[] burst(
+      ExecutorService clients, HttpClient http, String baseUrl, AtomicInteger failed)
+      throws Exception {
+    long[] latencies = new long[BURST];
+    CountDownLatch go = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(BURST);
+
+    for (int i = 0; i < BURST; i++) {
+      int index = i;
+      String url = baseUrl + (index % 2 == 0 ? "/sessions/current" : "/registrations");
+      clients.execute(
+          () -> {
+            try {
+              go.await();
+              if (get(http, url).statusCode() != 200) {
+                failed.incrementAndGet();
+              }
+            } catch (Exception e) {
+              failed.incrementAndGet();
+            } finally {
+              latencies[index] = System.nanoTime();
+              done.countDown();
+            }
+          });
+    }
+
+    long start = System.nanoTime();
+    go.countDown();
+    assertTrue(done.await(5, TimeUnit.MINUTES));
+    for (int i = 0; i < BURST; i++) {
+      latencies[i] -= start;
+    }
+    return latencies;
+  }
+
+  /**
+   * Upcoming slots, a few of which the dev user is registered for, and one live session the dev
+   * user is connected to.
+   */
+  private String seed(ConfigurableApplicationContext context) {
+    TimeSlotRepository timeSlotRepository = context.getBean(TimeSlotRepository.class);
+    SessionRepository sessionRepository = context.getBean(SessionRepository.class);
+    ParticipantRepository participantRepository = context.getBean(ParticipantRepository.class);
+    RegistrationRepository registrationRepository = context.getBean(RegistrationRepository.class);
+    participantRepository.deleteAll();
+    sessionRepository.deleteAll();
+    registrationRepository.deleteAll();
+    timeSlotRepository.deleteAll();
+
+    Instant start = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+    List<TimeSlot> slots = new ArrayList<>();
+    for (int s = 0; s < SLOTS; s++) {
+      slots.add(
+          TimeSlot.builder()
+              .targetLanguageCode("en")
+              .level(TimeSlot.Level.B1)
+              .startTime(start.plus(s, ChronoUnit.HOURS))
+              .durationMinutes(30)
+              .build());
+    }
+    timeSlotRepository.saveAll(slots);
+    for (int r = 1; r <= REGISTRATIONS; r++) {
+      registrationRepository.save(
+          Registration.builder()
+              .timeSlotId(slots.get(r).getId())
+              .userId(USER_ID)
+              .status(Registration.Status.registered)
+              .build());
+    }
+
+    Session session =
+        sessionRepository.save(
+            Session.builder()
+                .timeSlotId(slots.get(0).getId())
+                .targetLanguageCode("en")
+                .level(TimeSlot.Level.B1)
+                .status(Session.Status.active)
+                .startedAt(Instant.now())
+                .recordingEnabled(false)
+                .build());
+    participantRepository.save(
+        Participant.builder()
+            .sessionId(session.getId())
+            .userId(USER_ID)
+            .displayName(USER_ID)
+            .status(Participant.Status.connected)
+            .cameraEnabled(true)
+            .micEnabled(true)
+            .joinedAt(Instant.now())
+            .build());
+    return session.getId();
+  }
+
+  private static HttpResponse<Void> get(HttpClient http, String url) throws Exception {
+    return http.send(request(url), HttpResponse.BodyHandlers.discarding());
+  }
+
+  private static HttpRequest request(String url) {
+    return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(1)).GET().build();
+  }
+
+  private record Herd(
+      String mode, long[] latenciesNanos, int failed, int parked, long wakeAllNanos) {}
+}
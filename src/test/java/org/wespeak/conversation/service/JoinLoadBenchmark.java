@@ -0,0 +1,170 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.wespeak.conversation.BenchmarkSupport;
+import org.wespeak.conversation.TestcontainersConfiguration;
+import org.wespeak.conversation.dto.JoinSessionRequest;
+import org.wespeak.conversation.entity.Registration;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/**
+ * Top-of-the-hour join storm: every registered user of many slots joins at the same instant.
+ * Compares a 200-thread platform pool (Tomcat's default request pool) with one virtual thread per
+ * request, reporting p50/p99 join latency measured from the storm's start and the peak number of
+ * joins in flight. Run with {@code ./gradlew benchmark}; needs Docker.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@EnabledIf("org.wespeak.conversation.ConversationServiceApplicationTests#isDockerAvailable")
+class JoinLoadBenchmark {
+
+  private static final int SLOTS = 250;
+  private static final int USERS_PER_SLOT = 8;
+  private static final int PLATFORM_THREADS = 200;
+
+  @Autowired private SessionService sessionService;
+  @Autowired private TimeSlotRepository timeSlotRepository;
+  @Autowired private RegistrationRepository registrationRepository;
+  @Autowired private SessionRepository sessionRepository;
+  @Autowired private ParticipantRepository participantRepository;
+
+  @Test
+  void platformVersusVirtualThreads() throws Exception {
+    // Warm up connection pool and JIT
+    run("warmup", Executors.newVirtualThreadPerTaskExecutor());
+
+    Storm platform =
+        run(
+            "platform",
+            Executors.newFixedThreadPool(
+                PLATFORM_THREADS, Thread.ofPlatform().name("join-", 0).factory()));
+    Storm virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor());
+
+    System.out.printf(
+        "%-9s %8s %8s %10s %10s %12s%n",
+        "mode", "joins", "failed", "p50 ms", "p99 ms", "max in-flight");
+    for (Storm storm : List.of(platform, virtual)) {
+      System.out.printf(
+          "%-9s %8d %8d %10.1f %10.1f %12d%n",
+          storm.mode(),
+          storm.latenciesNanos().length,
+          storm.failed(),
+          BenchmarkSupport.percentile(storm.latenciesNanos(), 50) / 1e6,
+          BenchmarkSupport.percentile(storm.latenciesNanos(), 99) / 1e6,
+          storm.maxInFlight());
+    }
+
+    assertEquals(0, platform.failed());
+    assertEquals(0, virtual.failed());
+    assertTrue(platform.maxInFlight() <= PLATFORM_THREADS);
+  }
+
+  private Storm run(String mode, ExecutorService executor) throws Exception {
+    List<JoinSessionRequest> joins = new ArrayList<>();
+    List<String> users = new ArrayList<>();
+    seed(mode, joins, users);
+
+    int total = joins.size();
+    long[] latencies = new long[total];
+    AtomicInteger failed = new AtomicInteger();
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    CountDownLatch go = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(total);
+
+    for (int i = 0; i < total; i++) {
+      int index = i;
+      executor.execute(
+          () -> {
+            try {
+              go.await();
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              sessionService.joinSession(users.get(index), joins.get(index));
+            } catch (Exception e) {
+              failed.incrementAndGet();
+            } finally {
+              inFlight.decrementAndGet();
+              latencies[index] = System.nanoTime();
+              done.countDown();
+            }
+          });
+    }
+
+    long start = System.nanoTime();
+    go.countDown();
+    assertTrue(done.await(5, TimeUnit.MINUTES));
+    executor.shutdown();
+
+    for (int i = 0; i < total; i++) {
+      latencies[i] -= start;
+    }
+    return new Storm(mode, latencies, failed.get(), maxInFlight.get());
+  }
+
+  /** Slots starting now, each with its session pre-created and full of registrations. */
+  private void seed(String mode, List<JoinSessionRequest> joins, List<String> users) {
+    participantRepository.deleteAll();
+    sessionRepository.deleteAll();
+    registrationRepository.deleteAll();
+    timeSlotRepository.deleteAll();
+
+    Instant start = Instant.now().truncatedTo(ChronoUnit.MINUTES).plus(1, ChronoUnit.MINUTES);
+    List<Registration> registrations = new ArrayList<>();
+    List<Session> sessions = new ArrayList<>();
+    for (int s = 0; s < SLOTS; s++) {
+      TimeSlot slot =
+          timeSlotRepository.save(
+              TimeSlot.builder()
+                  .targetLanguageCode("en")
+                  .level(TimeSlot.Level.B1)
+                  .startTime(start.plusMillis(s))
+                  .durationMinutes(30)
+                  .build());
+      sessions.add(
+          Session.builder()
+              .timeSlotId(slot.getId())
+              .targetLanguageCode(slot.getTargetLanguageCode())
+              .level(slot.getLevel())
+              .status(Session.Status.waiting)
+              .recordingEnabled(false)
+              .joinDeadline(slot.getStartTime().plus(5, ChronoUnit.MINUTES))
+              .build());
+      for (int u = 0; u < USERS_PER_SLOT; u++) {
+        String userId = mode + "-" + s + "-" + u;
+        registrations.add(
+            Registration.builder().timeSlotId(slot.getId()).userId(userId).build());
+        joins.add(
+            JoinSessionRequest.builder().timeSlotId(slot.getId()).displayName(userId).build());
+        users.add(userId);
+      }
+    }
+    sessionRepository.saveAll(sessions);
+    registrationRepository.saveAll(registrations);
+  }
+
+  private record Storm(String mode, long[] latenciesNanos, int failed, int maxInFlight) {}
+}
@@ -0,0 +1,112 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+
+@ExtendWith(MockitoExtension.class)
+class MediaStateBufferTest {
+
+  @Mock private MongoTemplate mongoTemplate;
+  @Mock private BulkOperations bulkOperations;
+
+  private MediaStateBuffer mediaStateBuffer;
+
+  @BeforeEach
+  void setUp() {
+    mediaStateBuffer = new MediaStateBuffer(mongoTemplate, new SimpleMeterRegistry());
+    lenient()
+        .when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Participant.class))
+        .thenReturn(bulkOperations);
+  }
+
+  @Test
+  void flush_shouldWriteOnlyLatestStatePerParticipantInOneBulk() {
+    // Given
+    mediaStateBuffer.record("session-1", "alice", false, true);
+    mediaStateBuffer.record("session-1", "alice", true, false);
+    mediaStateBuffer.record("session-1", "bob", false, false);
+    List<String> flushedSessions = new ArrayList<>();
+    mediaStateBuffer.onFlushed(flushedSessions::add);
+
+    // When
+    mediaStateBuffer.flush();
+
+    // Then
+    verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+    verify(bulkOperations).execute();
+    verify(mongoTemplate, never())
+        .updateMulti(any(Query.class), any(Update.class), eq(Session.class));
+    assertEquals(List.of("session-1"), flushedSessions);
+    assertTrue(mediaStateBuffer.find("session-1", "alice").isEmpty());
+
+    mediaStateBuffer.flush();
+    verify(mongoTemplate, times(1))
+        .bulkOps(any(BulkOperations.BulkMode.class), eq(Participant.class));
+  }
+
+  @Test
+  void apply_shouldOverlayBufferedState() {
+    // Given
+    mediaStateBuffer.record("session-1", "alice", false, true);
+    Participant participant =
+        Participant.builder()
+            .sessionId("session-1")
+            .userId("alice")
+            .cameraEnabled(true)
+            .micEnabled(true)
+            .build();
+
+    // When
+    mediaStateBuffer.apply(participant);
+
+    // Then
+    assertFalse(participant.getCameraEnabled());
+    assertTrue(participant.getMicEnabled());
+    verifyNoInteractions(mongoTemplate);
+  }
+
+  @Test
+  void flushParticipant_shouldWriteOnlyThatParticipant() {
+    // Given
+    mediaStateBuffer.record("session-1", "alice", false, true);
+    mediaStateBuffer.record("session-1", "bob", false, false);
+
+    // When
+    mediaStateBuffer.flush("session-1", "alice");
+
+    // Then
+    verify(bulkOperations, times(1)).updateOne(any(Query.class), any(Update.class));
+    assertTrue(mediaStateBuffer.find("session-1", "alice").isEmpty());
+    assertTrue(mediaStateBuffer.find("session-1", "bob").isPresent());
+  }
+
+  @Test
+  void flush_shouldKeepStateWhenBulkWriteFails() {
+    // Given
+    mediaStateBuffer.record("session-1", "alice", false, true);
+    when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+
+    // When
+    mediaStateBuffer.flush();
+
+    // Then
+    assertTrue(mediaStateBuffer.find("session-1", "alice").isPresent());
+  }
+}
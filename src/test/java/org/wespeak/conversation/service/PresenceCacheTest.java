@@ -0,0 +1,101 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.repository.ParticipantRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceCacheTest {
+
+  @Mock private ParticipantRepository participantRepository;
+
+  private SimpleMeterRegistry meterRegistry;
+  private PresenceCache presenceCache;
+  private Participant participant;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    presenceCache = new PresenceCache(participantRepository, meterRegistry, 100, 30, 5);
+    participant =
+        Participant.builder()
+            .id("participant-1")
+            .sessionId("session-1")
+            .userId("alice")
+            .status(Participant.Status.connected)
+            .cameraEnabled(true)
+            .micEnabled(true)
+            .build();
+  }
+
+  @Test
+  void find_shouldQueryMongoOnlyOnMiss() {
+    // Given
+    when(participantRepository.findByUserIdAndStatusNot("alice", Participant.Status.disconnected))
+        .thenReturn(Optional.of(participant));
+
+    // When
+    presenceCache.find("alice");
+    Optional<PresenceCache.Presence> second = presenceCache.find("alice");
+
+    // Then
+    assertEquals("session-1", second.orElseThrow().sessionId());
+    verify(participantRepository, times(1)).findByUserIdAndStatusNot(any(), any());
+    assertEquals(
+        1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    assertEquals(
+        1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+  }
+
+  @Test
+  void find_shouldCacheAbsenceToo() {
+    // Given
+    when(participantRepository.findByUserIdAndStatusNot("bob", Participant.Status.disconnected))
+        .thenReturn(Optional.empty());
+
+    // When
+    presenceCache.find("bob");
+    Optional<PresenceCache.Presence> second = presenceCache.find("bob");
+
+    // Then
+    assertTrue(second.isEmpty());
+    verify(participantRepository, times(1)).findByUserIdAndStatusNot(any(), any());
+  }
+
+  @Test
+  void joined_shouldBeServedWithoutQuery() {
+    // When
+    presenceCache.joined(participant);
+    presenceCache.updateMediaState("alice", false, true);
+
+    // Then
+    Participant cached = presenceCache.find("alice").orElseThrow().toParticipant();
+    assertEquals("participant-1", cached.getId());
+    assertFalse(cached.getCameraEnabled());
+    verifyNoInteractions(participantRepository);
+  }
+
+  @Test
+  void invalidate_shouldReloadOnNextFind() {
+    // Given
+    presenceCache.joined(participant);
+    when(participantRepository.findByUserIdAndStatusNot("alice", Participant.Status.disconnected))
+        .thenReturn(Optional.empty());
+
+    // When
+    presenceCache.invalidate("alice");
+
+    // Then
+    assertTrue(presenceCache.find("alice").isEmpty());
+  }
+}
@@ -0,0 +1,174 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wespeak.conversation.entity.Registration;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.exception.RegistrationException;
+import org.wespeak.conversation.repository.ReactiveRegistrationRepository;
+import org.wespeak.conversation.repository.ReactiveTimeSlotRepository;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRegistrationServiceTest {
+
+  @Mock private ReactiveRegistrationRepository registrationRepository;
+
+  @Mock private ReactiveTimeSlotRepository timeSlotRepository;
+
+  @Mock private TimeSlotService timeSlotService;
+
+  @Mock private TimetableIndex timetableIndex;
+
+  @InjectMocks private ReactiveRegistrationService registrationService;
+
+  private TimeSlot testSlot;
+  private String userId;
+
+  @BeforeEach
+  void setUp() {
+    userId = "user-123";
+    testSlot =
+        TimeSlot.builder()
+            .id("slot-1")
+            .targetLanguageCode("en")
+            .level(TimeSlot.Level.A2)
+            .startTime(Instant.now().plus(1, ChronoUnit.HOURS))
+            .durationMinutes(30)
+            .maxParticipants(8)
+            .build();
+
+    ReflectionTestUtils.setField(registrationService, "maxActiveRegistrations", 3);
+    ReflectionTestUtils.setField(registrationService, "cancellationDeadlineMinutes", 15);
+    ReflectionTestUtils.setField(registrationService, "registrationDeadlineMinutes", 5);
+  }
+
+  @Test
+  void register_shouldCreateRegistration() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Mono.just(testSlot));
+    when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
+        .thenReturn(Mono.just(false));
+    when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(Mono.just(0L));
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(Mono.just(true));
+    when(registrationRepository.save(any()))
+        .thenAnswer(
+            inv -> {
+              Registration reg = inv.getArgument(0);
+              reg.setId("reg-1");
+              return Mono.just(reg);
+            });
+
+    // When / Then
+    StepVerifier.create(registrationService.register("slot-1", userId))
+        .assertNext(
+            result -> {
+              assertEquals("reg-1", result.getId());
+              assertEquals(Registration.Status.registered, result.getStatus());
+            })
+        .verifyComplete();
+    verify(timetableIndex).seatsChanged("slot-1", 1);
+  }
+
+  @Test
+  void register_shouldNotTakeSeatWhenAlreadyRegistered() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Mono.just(testSlot));
+    when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
+        .thenReturn(Mono.just(true));
+
+    // When / Then
+    StepVerifier.create(registrationService.register("slot-1", userId))
+        .expectErrorSatisfies(
+            e -> assertEquals("ALREADY_REGISTERED", ((RegistrationException) e).getCode()))
+        .verify();
+    verify(timeSlotRepository, never()).takeSeat(any(), anyInt());
+  }
+
+  @Test
+  void register_shouldRejectWhenSlotIsFull() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Mono.just(testSlot));
+    when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
+        .thenReturn(Mono.just(false));
+    when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(Mono.just(0L));
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(Mono.just(false));
+
+    // When / Then
+    StepVerifier.create(registrationService.register("slot-1", userId))
+        .expectErrorSatisfies(e -> assertEquals("SLOT_FULL", ((RegistrationException) e).getCode()))
+        .verify();
+    verify(registrationRepository, never()).save(any());
+  }
+
+  @Test
+  void register_shouldGiveSeatBackWhenSaveFails() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Mono.just(testSlot));
+    when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
+        .thenReturn(Mono.just(false));
+    when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(Mono.just(0L));
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(Mono.just(true));
+    when(registrationRepository.save(any()))
+        .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+    when(timeSlotRepository.releaseSeats("slot-1", 1)).thenReturn(Mono.empty());
+
+    // When / Then
+    StepVerifier.create(registrationService.register("slot-1", userId))
+        .expectError(DuplicateKeyException.class)
+        .verify();
+    verify(timeSlotRepository).releaseSeats("slot-1", 1);
+    verify(timetableIndex, never()).seatsChanged(any(), anyLong());
+  }
+
+  @Test
+  void unregister_shouldCancelAndGiveSeatBack() {
+    // Given
+    Registration registration =
+        Registration.builder()
+            .id("reg-1")
+            .timeSlotId("slot-1")
+            .userId(userId)
+            .status(Registration.Status.registered)
+            .build();
+    when(registrationRepository.findByTimeSlotIdAndUserId("slot-1", userId))
+        .thenReturn(Mono.just(registration));
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Mono.just(testSlot));
+    when(registrationRepository.save(registration)).thenReturn(Mono.just(registration));
+    when(timeSlotRepository.releaseSeats("slot-1", 1)).thenReturn(Mono.empty());
+
+    // When / Then
+    StepVerifier.create(registrationService.unregister("slot-1", userId)).verifyComplete();
+    assertEquals(Registration.Status.cancelled, registration.getStatus());
+    assertNotNull(registration.getCancelledAt());
+    verify(timetableIndex).seatsChanged("slot-1", -1);
+  }
+
+  @Test
+  void unregister_shouldRejectWhenNotRegistered() {
+    // Given
+    when(registrationRepository.findByTimeSlotIdAndUserId("slot-1", userId))
+        .thenReturn(Mono.empty());
+
+    // When / Then
+    StepVerifier.create(registrationService.unregister("slot-1", userId))
+        .expectErrorSatisfies(
+            e -> assertEquals("NOT_REGISTERED", ((RegistrationException) e).getCode()))
+        .verify();
+    verify(timetableIndex, never()).seatsChanged(any(), anyLong());
+  }
+}
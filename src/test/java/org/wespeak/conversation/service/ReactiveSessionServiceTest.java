@@ -0,0 +1,242 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wespeak.conversation.dto.JoinSessionRequest;
+import org.wespeak.conversation.dto.SessionDto;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.exception.SessionException;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.ReactiveParticipantRepository;
+import org.wespeak.conversation.repository.ReactiveSessionRepository;
+import org.wespeak.conversation.repository.ReactiveTimeSlotRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveSessionServiceTest {
+
+  @Mock private ReactiveSessionRepository sessionRepository;
+
+  @Mock private ReactiveParticipantRepository participantRepository;
+
+  @Mock private ReactiveTimeSlotRepository timeSlotRepository;
+
+  @Mock private ReactiveRegistrationService registrationService;
+
+  @Mock private SessionService blockingSessionService;
+
+  @Mock private RoomRosterService roomRosterService;
+
+  @Mock private SessionPreparer sessionPreparer;
+
+  @Mock private SessionExpiryScheduler sessionExpiryScheduler;
+
+  @Mock private ParticipantRepository blockingParticipantRepository;
+
+  @Mock private SessionSnapshots sessionSnapshots;
+
+  private PresenceCache presenceCache;
+  private ReactiveSessionService sessionService;
+  private Session testSession;
+  private String userId;
+
+  @BeforeEach
+  void setUp() {
+    userId = "user-123";
+    testSession =
+        Session.builder()
+            .id("session-1")
+            .timeSlotId("slot-1")
+            .status(Session.Status.waiting)
+            .version(1L)
+            .build();
+
+    presenceCache =
+        new PresenceCache(blockingParticipantRepository, new SimpleMeterRegistry(), 1000, 30, 5);
+    sessionService =
+        new ReactiveSessionService(
+            sessionRepository,
+            participantRepository,
+            timeSlotRepository,
+            registrationService,
+            blockingSessionService,
+            roomRosterService,
+            sessionPreparer,
+            sessionExpiryScheduler,
+            presenceCache,
+            sessionSnapshots);
+    ReflectionTestUtils.setField(sessionService, "maxParticipants", 8);
+    ReflectionTestUtils.setField(sessionService, "longPollTimeoutMillis", 25_000L);
+  }
+
+  @Test
+  void joinSession_shouldSeatParticipantAndPublishSnapshot() {
+    // Given
+    JoinSessionRequest request =
+        JoinSessionRequest.builder().timeSlotId("slot-1").displayName("Test User").build();
+    Participant participant = connected();
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(Mono.just(true));
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Mono.just(testSession));
+    when(participantRepository.upsertConnected(
+            eq("session-1"), eq(userId), eq("Test User"), eq(false), any()))
+        .thenReturn(Mono.just(participant));
+    when(participantRepository.findBySessionIdAndStatusNot(
+            "session-1", Participant.Status.disconnected))
+        .thenReturn(Flux.just(participant));
+    when(sessionSnapshots.install(testSession, List.of(participant)))
+        .thenReturn(snapshotOf(testSession));
+
+    // When / Then
+    StepVerifier.create(sessionService.joinSession(userId, request))
+        .assertNext(result -> assertEquals("session-1", result.getId()))
+        .verifyComplete();
+    verify(roomRosterService).upsert(participant);
+    verify(blockingSessionService).actorJoined(testSession, participant);
+    verify(registrationService, never()).releaseAttendance(any(), any());
+    assertEquals("session-1", presenceCache.cached(userId).sessionId());
+  }
+
+  @Test
+  void joinSession_shouldUndoSeatAndClaimWhenAlreadyConnected() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(Mono.just(true));
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Mono.just(testSession));
+    when(participantRepository.upsertConnected(any(), any(), any(), anyBoolean(), any()))
+        .thenReturn(Mono.error(new DuplicateKeyException("connected")));
+    when(sessionRepository.releaseSeat("session-1")).thenReturn(Mono.just(testSession));
+    when(registrationService.releaseAttendance("slot-1", userId)).thenReturn(Mono.just(true));
+
+    // When / Then
+    StepVerifier.create(sessionService.joinSession(userId, request))
+        .expectErrorSatisfies(
+            e -> assertEquals("ALREADY_IN_SESSION", ((SessionException) e).getCode()))
+        .verify();
+    verify(sessionRepository).releaseSeat("session-1");
+    verify(registrationService).releaseAttendance("slot-1", userId);
+    verifyNoInteractions(roomRosterService);
+    verify(blockingSessionService, never()).actorJoined(any(), any());
+  }
+
+  @Test
+  void joinSession_shouldReportWhyTheSeatWasRefused() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+    testSession.setStatus(Session.Status.ended);
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(Mono.just(true));
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Mono.empty());
+    when(sessionRepository.findByTimeSlotId("slot-1")).thenReturn(Mono.just(testSession));
+    when(registrationService.releaseAttendance("slot-1", userId)).thenReturn(Mono.just(true));
+
+    // When / Then
+    StepVerifier.create(sessionService.joinSession(userId, request))
+        .expectErrorSatisfies(e -> assertEquals("SESSION_ENDED", ((SessionException) e).getCode()))
+        .verify();
+    verify(registrationService).releaseAttendance("slot-1", userId);
+    verifyNoInteractions(timeSlotRepository);
+  }
+
+  @Test
+  void leaveSession_shouldGiveSeatBackAndFinishOffTheEventLoop() {
+    // Given
+    presenceCache.joined(connected());
+    Participant previous = connected();
+    when(participantRepository.markDisconnected(eq("session-1"), eq(userId), any()))
+        .thenReturn(Mono.just(previous));
+    when(sessionRepository.releaseSeat("session-1")).thenReturn(Mono.just(testSession));
+
+    // When / Then
+    StepVerifier.create(sessionService.leaveSession(userId)).verifyComplete();
+    verify(blockingSessionService)
+        .disconnected(eq("session-1"), eq(userId), any(), eq(true), same(testSession));
+  }
+
+  @Test
+  void getCurrentSession_shouldServeFreshSnapshotWithoutQueries() {
+    // Given
+    presenceCache.joined(connected());
+    SessionSnapshots.Snapshot snapshot = snapshotOf(testSession);
+    when(sessionSnapshots.fresh("session-1")).thenReturn(snapshot);
+
+    // When / Then
+    StepVerifier.create(sessionService.getCurrentSession(userId))
+        .expectNext(snapshot)
+        .verifyComplete();
+    verifyNoInteractions(sessionRepository, participantRepository);
+  }
+
+  @Test
+  void getCurrentSession_shouldLoadAndCachePresenceOnAMiss() {
+    // Given
+    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
+        .thenReturn(Mono.empty());
+
+    // When / Then
+    StepVerifier.create(sessionService.getCurrentSession(userId))
+        .expectErrorSatisfies(
+            e -> assertEquals("NO_ACTIVE_SESSION", ((SessionException) e).getCode()))
+        .verify();
+    StepVerifier.create(sessionService.getCurrentSession(userId))
+        .expectError(SessionException.class)
+        .verify();
+    verify(participantRepository, times(1)).findByUserIdAndStatusNot(any(), any());
+  }
+
+  @Test
+  void getCurrentSession_shouldKeepSnapshotWhoseVersionDidNotMove() {
+    // Given
+    presenceCache.joined(connected());
+    SessionSnapshots.Snapshot snapshot = snapshotOf(testSession);
+    when(sessionSnapshots.fresh("session-1")).thenReturn(null);
+    when(sessionRepository.findVersion("session-1")).thenReturn(Mono.just(1L));
+    when(sessionSnapshots.confirm("session-1", 1L)).thenReturn(snapshot);
+
+    // When / Then
+    StepVerifier.create(sessionService.getCurrentSession(userId))
+        .expectNext(snapshot)
+        .verifyComplete();
+    verify(sessionRepository, never()).findById(any(String.class));
+    verifyNoInteractions(participantRepository);
+  }
+
+  private Participant connected() {
+    return Participant.builder()
+        .id("participant-1")
+        .sessionId("session-1")
+        .userId(userId)
+        .status(Participant.Status.connected)
+        .joinedAt(Instant.now())
+        .build();
+  }
+
+  private static SessionSnapshots.Snapshot snapshotOf(Session session) {
+    return new SessionSnapshots.Snapshot(
+        session.getVersion(),
+        SessionDto.builder()
+            .id(session.getId())
+            .version(session.getVersion())
+            .status(session.getStatus())
+            .participants(List.of())
+            .build(),
+        Instant.now(),
+        true);
+  }
+}
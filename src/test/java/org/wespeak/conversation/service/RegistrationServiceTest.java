@@ -2,6 +2,7 @@ package org.wespeak.conversation.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 import java.time.Instant;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.wespeak.conversation.dto.RegistrationDto;
 import org.wespeak.conversation.entity.Registration;
@@ -31,6 +33,8 @@ class RegistrationServiceTest {
 
   @Mock private TimeSlotService timeSlotService;
 
+  @Mock private TimetableIndex timetableIndex;
+
   @InjectMocks private RegistrationService registrationService;
 
   private TimeSlot testSlot;
@@ -62,7 +66,7 @@ class RegistrationServiceTest {
     when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
         .thenReturn(false);
     when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(0L);
-    when(registrationRepository.countByTimeSlotIdAndStatus(any(), any())).thenReturn(0L);
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(true);
     when(registrationRepository.save(any()))
         .thenAnswer(
             inv -> {
@@ -79,6 +83,25 @@ class RegistrationServiceTest {
     assertEquals("reg-1", result.getId());
     assertEquals("slot-1", result.getTimeSlotId());
     verify(registrationRepository).save(any());
+    verify(timeSlotRepository, never()).releaseSeats(any(), anyLong());
+    verify(timetableIndex).seatsChanged("slot-1", 1);
+  }
+
+  @Test
+  void register_shouldGiveSeatBackWhenSaveFails() {
+    // Given
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
+    when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
+        .thenReturn(false);
+    when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(0L);
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(true);
+    when(registrationRepository.save(any())).thenThrow(new DuplicateKeyException("duplicate"));
+
+    // When/Then
+    assertThrows(
+        DuplicateKeyException.class, () -> registrationService.register("slot-1", userId));
+    verify(timeSlotRepository).releaseSeats("slot-1", 1);
+    verify(timetableIndex, never()).seatsChanged(any(), anyLong());
   }
 
   @Test
@@ -113,13 +136,14 @@ class RegistrationServiceTest {
     when(registrationRepository.existsByTimeSlotIdAndUserIdAndStatus(any(), any(), any()))
         .thenReturn(false);
     when(registrationRepository.countByUserIdAndStatus(any(), any())).thenReturn(0L);
-    when(registrationRepository.countByTimeSlotIdAndStatus(any(), any())).thenReturn(8L); // Full
+    when(timeSlotRepository.takeSeat("slot-1", 8)).thenReturn(false); // Full
 
     // When/Then
     RegistrationException ex =
         assertThrows(
             RegistrationException.class, () -> registrationService.register("slot-1", userId));
     assertEquals("SLOT_FULL", ex.getCode());
+    verify(registrationRepository, never()).save(any());
   }
 
   @Test
@@ -179,6 +203,7 @@ class RegistrationServiceTest {
     // Then
     verify(registrationRepository)
         .save(argThat(reg -> reg.getStatus() == Registration.Status.cancelled));
+    verify(timeSlotRepository).releaseSeats("slot-1", 1);
   }
 
   @Test
@@ -191,4 +216,20 @@ class RegistrationServiceTest {
     // When/Then
     assertTrue(registrationService.isUserRegistered("slot-1", userId));
   }
+
+  @Test
+  void markNoShows_shouldMoveRemainingRegistrationsInOneUpdate() {
+    // Given
+    when(registrationRepository.transitionAll(
+            "slot-1", Registration.Status.registered, Registration.Status.noshow))
+        .thenReturn(3L);
+
+    // When
+    long marked = registrationService.markNoShows("slot-1");
+
+    // Then
+    assertEquals(3, marked);
+    verify(registrationRepository, never()).save(any());
+    verify(timeSlotRepository).releaseSeats("slot-1", 3);
+  }
 }
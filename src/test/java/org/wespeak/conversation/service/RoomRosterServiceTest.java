@@ -0,0 +1,128 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.repository.ParticipantRepository;
+
+@ExtendWith(MockitoExtension.class)
+class RoomRosterServiceTest {
+
+  @Mock private ParticipantRepository participantRepository;
+
+  @Mock private MediaStateBuffer mediaStateBuffer;
+
+  @InjectMocks private RoomRosterService roomRosterService;
+
+  private Participant alice;
+
+  @BeforeEach
+  void setUp() {
+    alice =
+        Participant.builder()
+            .id("p-1")
+            .sessionId("session-1")
+            .userId("alice")
+            .displayName("Alice")
+            .status(Participant.Status.connected)
+            .build();
+  }
+
+  @Test
+  void getRoom_shouldLoadFromMongoOnlyOnce() {
+    // Given
+    when(participantRepository.findBySessionId("session-1")).thenReturn(List.of(alice));
+
+    // When
+    roomRosterService.getRoom("session-1");
+    roomRosterService.getRoom("session-1");
+
+    // Then
+    assertTrue(roomRosterService.find("session-1", "alice").isPresent());
+    verify(participantRepository, times(1)).findBySessionId("session-1");
+  }
+
+  @Test
+  void upsertAndMediaState_shouldUpdateLoadedRoomWithoutDatabase() {
+    // Given
+    when(participantRepository.findBySessionId("session-1")).thenReturn(List.of(alice));
+    roomRosterService.getRoom("session-1");
+    Participant bob =
+        Participant.builder()
+            .sessionId("session-1")
+            .userId("bob")
+            .displayName("Bob")
+            .status(Participant.Status.connected)
+            .build();
+
+    // When
+    roomRosterService.upsert(bob);
+    roomRosterService.updateMediaState("session-1", "bob", false, true);
+    roomRosterService.markDisconnected("session-1", "alice");
+
+    // Then
+    RoomRosterService.RosterEntry entry = roomRosterService.find("session-1", "bob").orElseThrow();
+    assertEquals("Bob", entry.displayName());
+    assertFalse(entry.cameraEnabled());
+    assertTrue(entry.micEnabled());
+    assertEquals(
+        Participant.Status.disconnected,
+        roomRosterService.find("session-1", "alice").orElseThrow().status());
+    verify(participantRepository, times(1)).findBySessionId("session-1");
+  }
+
+  @Test
+  void find_shouldFallBackToMongoForParticipantsWhoJoinedElsewhere() {
+    // Given - the room was loaded here before bob joined through another node
+    when(participantRepository.findBySessionId("session-1")).thenReturn(List.of(alice));
+    roomRosterService.getRoom("session-1");
+    Participant bob =
+        Participant.builder()
+            .sessionId("session-1")
+            .userId("bob")
+            .displayName("Bob")
+            .status(Participant.Status.connected)
+            .build();
+    when(participantRepository.findBySessionIdAndUserId("session-1", "bob"))
+        .thenReturn(Optional.of(bob));
+
+    // When
+    Optional<RoomRosterService.RosterEntry> found = roomRosterService.find("session-1", "bob");
+
+    // Then - found, and remembered for the next lookup
+    assertEquals("Bob", found.orElseThrow().displayName());
+    assertTrue(roomRosterService.getRoom("session-1").containsKey("bob"));
+    roomRosterService.find("session-1", "bob");
+    verify(participantRepository, times(1)).findBySessionIdAndUserId("session-1", "bob");
+  }
+
+  @Test
+  void find_shouldRejectUsersMongoDoesNotKnowEither() {
+    // Given
+    when(participantRepository.findBySessionId("session-1")).thenReturn(List.of(alice));
+    when(participantRepository.findBySessionIdAndUserId("session-1", "mallory"))
+        .thenReturn(Optional.empty());
+
+    // When / Then
+    assertTrue(roomRosterService.find("session-1", "mallory").isEmpty());
+    assertFalse(roomRosterService.getRoom("session-1").containsKey("mallory"));
+  }
+
+  @Test
+  void upsert_shouldIgnoreRoomsThatAreNotLoaded() {
+    // When
+    roomRosterService.upsert(alice);
+
+    // Then
+    verifyNoInteractions(participantRepository);
+  }
+}
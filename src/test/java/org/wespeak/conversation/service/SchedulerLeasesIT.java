@@ -0,0 +1,168 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.wespeak.conversation.TestcontainersConfiguration;
+import org.wespeak.conversation.repository.SchedulerLeaseRepository;
+
+/** Several nodes compete for the same job's lease, on a clock the test moves by hand. */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@EnabledIf("org.wespeak.conversation.ConversationServiceApplicationTests#isDockerAvailable")
+class SchedulerLeasesIT {
+
+  private static final String JOB = "test-job";
+  private static final Duration TTL = Duration.ofSeconds(30);
+
+  @Autowired private SchedulerLeaseRepository leaseRepository;
+
+  private ManualClock clock;
+
+  @BeforeEach
+  void setUp() {
+    leaseRepository.deleteAll();
+    clock = new ManualClock(Instant.now());
+  }
+
+  @Test
+  void holds_shouldElectOneNodeAndLetItRenew() {
+    // Given
+    SchedulerLeases nodeA = node("node-a");
+    SchedulerLeases nodeB = node("node-b");
+
+    // When / Then
+    assertTrue(nodeA.holds(JOB));
+    assertFalse(nodeB.holds(JOB));
+
+    clock.advance(TTL.minusSeconds(1));
+    assertTrue(nodeA.holds(JOB));
+    clock.advance(TTL.minusSeconds(1));
+    assertTrue(nodeA.holds(JOB));
+    assertFalse(nodeB.holds(JOB));
+    assertEquals(1, leaseRepository.findById(JOB).orElseThrow().getToken());
+  }
+
+  @Test
+  void holds_shouldHandExpiredLeaseOverAndFenceOutThePreviousHolder() {
+    // Given
+    SchedulerLeases nodeA = node("node-a");
+    SchedulerLeases nodeB = node("node-b");
+    assertTrue(nodeA.holds(JOB));
+
+    // When - node A stalls past its lease
+    clock.advance(TTL.plusSeconds(1));
+    boolean bTookOver = nodeB.holds(JOB);
+    boolean aStillHolds = nodeA.holds(JOB);
+
+    // Then
+    assertTrue(bTookOver);
+    assertFalse(aStillHolds);
+    assertEquals("node-b", leaseRepository.findById(JOB).orElseThrow().getOwner());
+    assertEquals(2, leaseRepository.findById(JOB).orElseThrow().getToken());
+  }
+
+  @Test
+  void holds_shouldNotLetARestartedNodeReuseItsOldLease() {
+    // Given - same owner name, new process without the token it was granted
+    assertTrue(node("node-a").holds(JOB));
+
+    // When
+    boolean restarted = node("node-a").holds(JOB);
+
+    // Then
+    assertFalse(restarted);
+  }
+
+  @Test
+  void releaseAll_shouldLetAnotherNodeTakeOverWithoutWaiting() {
+    // Given
+    SchedulerLeases nodeA = node("node-a");
+    assertTrue(nodeA.holds(JOB));
+
+    // When
+    nodeA.releaseAll();
+
+    // Then
+    assertTrue(node("node-b").holds(JOB));
+  }
+
+  @Test
+  void holds_shouldElectExactlyOneOfManyConcurrentNodes() throws Exception {
+    // Given
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> attempts = new ArrayList<>();
+
+    // When
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int n = 0; n < 8; n++) {
+        SchedulerLeases node = node("node-" + n);
+        attempts.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return node.holds(JOB);
+                }));
+      }
+      start.countDown();
+    }
+
+    // Then
+    int leaders = 0;
+    for (Future<Boolean> attempt : attempts) {
+      leaders += attempt.get() ? 1 : 0;
+    }
+    assertEquals(1, leaders);
+  }
+
+  private SchedulerLeases node(String owner) {
+    return new SchedulerLeases(leaseRepository, owner, TTL, clock);
+  }
+
+  /** A clock that only moves when told to. */
+  private static final class ManualClock extends Clock {
+
+    private volatile Instant now;
+
+    private ManualClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
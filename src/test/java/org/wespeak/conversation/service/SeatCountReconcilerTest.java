@@ -0,0 +1,133 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SeatCountReconcilerTest {
+
+  @Mock private TimeSlotRepository timeSlotRepository;
+  @Mock private RegistrationRepository registrationRepository;
+  @Mock private SchedulerLeases schedulerLeases;
+
+  private SimpleMeterRegistry meterRegistry;
+  private SeatCountReconciler reconciler;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    reconciler =
+        new SeatCountReconciler(
+            timeSlotRepository, registrationRepository, schedulerLeases, meterRegistry, 24, 8);
+  }
+
+  @Test
+  void reconcile_shouldRepairOnlyDriftedCounts() {
+    // Given
+    when(schedulerLeases.holds(SeatCountReconciler.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot("in-step", 3), slot("drifted", 5), slot("legacy", null)));
+    when(registrationRepository.countSeatsTaken(any()))
+        .thenReturn(Map.of("in-step", 3, "drifted", 4));
+    when(timeSlotRepository.repairSeatCounts(any(), any())).thenReturn(2);
+
+    // When - the second run finds the same drift
+    reconciler.reconcile();
+    reconciler.reconcile();
+
+    // Then
+    Map<String, Integer> stored = new HashMap<>();
+    stored.put("in-step", 3);
+    stored.put("drifted", 5);
+    stored.put("legacy", null);
+    verify(timeSlotRepository).repairSeatCounts(stored, Map.of("drifted", 4, "legacy", 0));
+    assertEquals(2.0, meterRegistry.get("timeslot.seats.repaired").counter().count());
+  }
+
+  @Test
+  void reconcile_shouldLeaveDriftSeenOnceForTheNextRun() {
+    // Given - the first run catches a registration between its insert and its increment
+    when(schedulerLeases.holds(SeatCountReconciler.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot("slot-1", 2)))
+        .thenReturn(List.of(slot("slot-1", 3)));
+    when(registrationRepository.countSeatsTaken(any())).thenReturn(Map.of("slot-1", 3));
+
+    // When
+    reconciler.reconcile();
+    reconciler.reconcile();
+
+    // Then
+    verify(timeSlotRepository, never()).repairSeatCounts(any(), any());
+  }
+
+  @Test
+  void reconcile_shouldNotRepairWhenTheDriftChangedBetweenRuns() {
+    // Given - a registration in flight on each run, each seen before its increment
+    when(schedulerLeases.holds(SeatCountReconciler.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot("slot-1", 2)))
+        .thenReturn(List.of(slot("slot-1", 3)));
+    when(registrationRepository.countSeatsTaken(any()))
+        .thenReturn(Map.of("slot-1", 3))
+        .thenReturn(Map.of("slot-1", 4));
+
+    // When
+    reconciler.reconcile();
+    reconciler.reconcile();
+
+    // Then
+    verify(timeSlotRepository, never()).repairSeatCounts(any(), any());
+  }
+
+  @Test
+  void reconcile_shouldNotWriteWhenCountsAreInStep() {
+    // Given
+    when(schedulerLeases.holds(SeatCountReconciler.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot("empty", 0), slot("full", 8)));
+    when(registrationRepository.countSeatsTaken(any())).thenReturn(Map.of("full", 8));
+
+    // When
+    reconciler.reconcile();
+
+    // Then
+    verify(timeSlotRepository, never()).repairSeatCounts(any(), any());
+  }
+
+  @Test
+  void reconcile_shouldSkipWhenAnotherNodeHoldsTheLease() {
+    // Given
+    when(schedulerLeases.holds(SeatCountReconciler.JOB)).thenReturn(false);
+
+    // When
+    reconciler.reconcile();
+
+    // Then
+    verifyNoInteractions(timeSlotRepository, registrationRepository);
+  }
+
+  private static TimeSlot slot(String id, Integer registeredCount) {
+    return TimeSlot.builder()
+        .id(id)
+        .startTime(Instant.now().plusSeconds(3600))
+        .durationMinutes(30)
+        .registeredCount(registeredCount)
+        .build();
+  }
+}
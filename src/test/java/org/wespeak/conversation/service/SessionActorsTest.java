@@ -0,0 +1,265 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SessionActorsTest {
+
+  @Mock private SessionRepository sessionRepository;
+  @Mock private ParticipantRepository participantRepository;
+  @Mock private RegistrationService registrationService;
+  @Mock private ConversationEventPublisher eventPublisher;
+  @Mock private RoomRosterService roomRosterService;
+  @Mock private MediaStateBuffer mediaStateBuffer;
+  @Mock private PresenceCache presenceCache;
+
+  private SessionActors sessionActors;
+
+  @BeforeEach
+  void setUp() {
+    sessionActors = actors(Runnable::run);
+  }
+
+  @Test
+  void joined_shouldActivateOnceMinimumIsConnected() {
+    // Given
+    Session active = session(2, Session.Status.active);
+    when(sessionRepository.activate(eq("session-1"), eq(2), any()))
+        .thenReturn(Optional.of(active));
+
+    // When
+    Session afterFirst =
+        sessionActors.joined(session(1, Session.Status.waiting), participant("alice")).join();
+    Session afterSecond =
+        sessionActors.joined(session(2, Session.Status.waiting), participant("bob")).join();
+
+    // Then
+    assertEquals(Session.Status.waiting, afterFirst.getStatus());
+    assertEquals(Session.Status.active, afterSecond.getStatus());
+    verify(sessionRepository, times(1)).activate(any(), anyInt(), any());
+    verify(eventPublisher)
+        .publishSessionStarted(eq(active), argThat(participants -> participants.size() == 2));
+    verify(participantRepository, times(1)).findBySessionId("session-1");
+    verify(participantRepository, never()).findBySessionIdAndStatusNot(any(), any());
+  }
+
+  @Test
+  void left_shouldEndActiveSessionWhenLastParticipantLeaves() {
+    // Given
+    Session ended = session(0, Session.Status.ended);
+    ended.setEndedAt(Instant.now());
+    when(sessionRepository.endIfEmpty(eq("session-1"), any())).thenReturn(Optional.of(ended));
+    when(participantRepository.findBySessionId("session-1"))
+        .thenReturn(List.of(participant("alice")));
+    when(registrationService.markNoShows("slot-1")).thenReturn(1L);
+    List<String> endedSessions = new ArrayList<>();
+    sessionActors.onEnded(endedSessions::add);
+    List<String> disconnectedSessions = new ArrayList<>();
+    sessionActors.onDisconnected(
+        sessionId -> {
+          // Listeners see the room already disconnected, before the no-shows are marked
+          verify(participantRepository).disconnectAll("session-1", ended.getEndedAt());
+          verify(registrationService, never()).markNoShows(any());
+          disconnectedSessions.add(sessionId);
+        });
+
+    // When
+    sessionActors.left("session-1", "alice", Instant.now(), session(0, Session.Status.active));
+
+    // Then
+    verify(mediaStateBuffer).flushSession("session-1");
+    verify(participantRepository).disconnectAll("session-1", ended.getEndedAt());
+    assertEquals(List.of("session-1"), disconnectedSessions);
+    verify(participantRepository, never()).save(any());
+    verify(registrationService).markNoShows("slot-1");
+    verify(roomRosterService).evict("session-1");
+    verify(presenceCache).invalidate("alice");
+    verify(eventPublisher).publishSessionEnded(eq(ended), any());
+    assertEquals(List.of("session-1"), endedSessions);
+    assertEquals(0, sessionActors.liveActors());
+  }
+
+  @Test
+  void left_shouldKeepSessionWhileOthersAreConnected() {
+    // Given
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(2, Session.Status.active)));
+
+    // When
+    sessionActors.left("session-1", "alice", Instant.now(), session(1, Session.Status.active));
+
+    // Then
+    verify(sessionRepository, never()).endIfEmpty(any(), any());
+    assertEquals(1, sessionActors.liveActors());
+  }
+
+  @Test
+  void expire_shouldDropActorWhenSessionAlreadyEnded() {
+    // Given - still active when loaded, ended by another node before the update
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(1, Session.Status.active)));
+    when(sessionRepository.end(eq("session-1"), any())).thenReturn(Optional.empty());
+
+    // When
+    sessionActors.expire("session-1");
+
+    // Then
+    verifyNoInteractions(eventPublisher);
+    assertEquals(0, sessionActors.liveActors());
+  }
+
+  @Test
+  void left_shouldNotKeepActorForEndedSession() {
+    // Given - a leave that arrives after the session was ended and its actor dropped
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(0, Session.Status.ended)));
+
+    // When
+    sessionActors.left("session-1", "alice", Instant.now(), null);
+    sessionActors.left("session-1", "bob", Instant.now(), session(0, Session.Status.ended));
+
+    // Then
+    verify(sessionRepository, times(1)).findById("session-1");
+    verify(sessionRepository, never()).endIfEmpty(any(), any());
+    assertEquals(0, sessionActors.liveActors());
+  }
+
+  @Test
+  void evict_shouldDropActorOfSessionEndedElsewhere() {
+    // Given
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(2, Session.Status.active)));
+    sessionActors.left("session-1", "alice", Instant.now(), session(1, Session.Status.active));
+
+    // When
+    sessionActors.evict("session-1");
+
+    // Then
+    assertEquals(0, sessionActors.liveActors());
+  }
+
+  @Test
+  void evict_shouldHandLaterCommandsToAFreshActor() {
+    // Given
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(2, Session.Status.active)));
+    sessionActors.left("session-1", "alice", Instant.now(), session(1, Session.Status.active));
+    sessionActors.evict("session-1");
+
+    // When
+    sessionActors.left("session-1", "bob", Instant.now(), session(1, Session.Status.active));
+
+    // Then
+    verify(sessionRepository, times(2)).findById("session-1");
+    assertEquals(1, sessionActors.liveActors());
+  }
+
+  @Test
+  void evictIdle_shouldDropActorsPastTheIdleTimeout() {
+    // Given
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(2, Session.Status.active)));
+    sessionActors.left("session-1", "alice", Instant.now(), session(1, Session.Status.active));
+
+    // When / Then - kept while recently told, dropped once idle
+    ReflectionTestUtils.setField(sessionActors, "idleTimeoutMs", 60_000L);
+    sessionActors.evictIdle();
+    assertEquals(1, sessionActors.liveActors());
+    ReflectionTestUtils.setField(sessionActors, "idleTimeoutMs", 0L);
+    sessionActors.evictIdle();
+    assertEquals(0, sessionActors.liveActors());
+  }
+
+  @Test
+  void commands_shouldBeProcessedOneAtATime() throws Exception {
+    // Given
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    sessionActors = actors(executor);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(sessionRepository.activate(eq("session-1"), eq(2), any()))
+        .thenAnswer(
+            inv -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              Thread.sleep(1);
+              inFlight.decrementAndGet();
+              return Optional.empty();
+            });
+
+    // When
+    List<CompletableFuture<Session>> joins = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      Participant participant = participant("user-" + i);
+      joins.add(
+          CompletableFuture.supplyAsync(
+                  () -> sessionActors.joined(session(2, Session.Status.waiting), participant),
+                  executor)
+              .thenCompose(processed -> processed));
+    }
+    CompletableFuture.allOf(joins.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    // Then
+    verify(sessionRepository, times(50)).activate(any(), anyInt(), any());
+    assertEquals(1, maxInFlight.get());
+  }
+
+  private SessionActors actors(Executor executor) {
+    SessionActors actors =
+        new SessionActors(
+            sessionRepository,
+            participantRepository,
+            registrationService,
+            eventPublisher,
+            roomRosterService,
+            mediaStateBuffer,
+            presenceCache,
+            new SimpleMeterRegistry(),
+            executor,
+            Runnable::run);
+    ReflectionTestUtils.setField(actors, "minParticipants", 2);
+    ReflectionTestUtils.setField(actors, "idleTimeoutMs", 600_000L);
+    return actors;
+  }
+
+  private static Session session(int connectedCount, Session.Status status) {
+    return Session.builder()
+        .id("session-1")
+        .timeSlotId("slot-1")
+        .status(status)
+        .connectedCount(connectedCount)
+        .build();
+  }
+
+  private static Participant participant(String userId) {
+    return Participant.builder()
+        .sessionId("session-1")
+        .userId(userId)
+        .status(Participant.Status.connected)
+        .build();
+  }
+}
@@ -0,0 +1,138 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SessionExpirySchedulerTest {
+
+  private static final long SWEEP_INTERVAL_MS = 60_000;
+
+  @Mock private SessionRepository sessionRepository;
+  @Mock private TimeSlotRepository timeSlotRepository;
+  @Mock private SessionActors sessionActors;
+  @Mock private SchedulerLeases schedulerLeases;
+
+  private ScheduledExecutorService timer;
+  private SessionExpiryScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    timer = Executors.newSingleThreadScheduledExecutor();
+    scheduler =
+        new SessionExpiryScheduler(
+            sessionRepository,
+            timeSlotRepository,
+            sessionActors,
+            schedulerLeases,
+            new SimpleMeterRegistry(),
+            SWEEP_INTERVAL_MS,
+            timer);
+  }
+
+  @AfterEach
+  void tearDown() {
+    timer.shutdownNow();
+  }
+
+  @Test
+  void schedule_shouldExpireSessionAtItsDeadline() {
+    // When
+    scheduler.schedule("session-1", Instant.now().plusMillis(50));
+
+    // Then
+    verify(sessionActors, never()).expire(any());
+    verify(sessionActors, timeout(2000)).expire("session-1");
+    assertEquals(0, scheduler.pending());
+  }
+
+  @Test
+  void schedule_shouldLeaveDeadlinesBeyondHorizonToTheSweep() {
+    // When
+    scheduler.schedule("session-1", Instant.now().plusMillis(SWEEP_INTERVAL_MS * 3));
+
+    // Then
+    assertEquals(0, scheduler.pending());
+  }
+
+  @Test
+  void cancel_shouldDropDeadline() throws Exception {
+    // Given
+    scheduler.schedule("session-1", Instant.now().plusMillis(50));
+
+    // When
+    scheduler.cancel("session-1");
+    Thread.sleep(150);
+
+    // Then
+    verify(sessionActors, never()).expire(any());
+  }
+
+  @Test
+  void sweep_shouldExpireOverdueAndQueueUpcomingSessions() {
+    // Given
+    Instant now = Instant.now();
+    when(schedulerLeases.holds(SessionExpiryScheduler.JOB)).thenReturn(true);
+    when(sessionRepository.findByStatusInAndEndTimeBeforeOrderByEndTimeAsc(any(), any()))
+        .thenReturn(
+            List.of(
+                Session.builder().id("overdue").endTime(now.minusSeconds(30)).build(),
+                Session.builder().id("upcoming").endTime(now.plusSeconds(30)).build()));
+
+    // When
+    scheduler.sweep();
+
+    // Then
+    verify(sessionActors).expire("overdue");
+    verify(sessionActors, never()).expire("upcoming");
+    assertEquals(1, scheduler.pending());
+  }
+
+  @Test
+  void rebuild_shouldBackfillEndTimeFromSlot() {
+    // Given
+    TimeSlot slot =
+        TimeSlot.builder().id("slot-1").startTime(Instant.now()).durationMinutes(30).build();
+    when(schedulerLeases.holds(SessionExpiryScheduler.JOB)).thenReturn(true);
+    when(sessionRepository.findByStatusInAndEndTimeIsNull(any()))
+        .thenReturn(List.of(Session.builder().id("legacy").timeSlotId("slot-1").build()));
+    when(timeSlotRepository.findAllById(any())).thenReturn(List.of(slot));
+
+    // When
+    scheduler.rebuild();
+
+    // Then
+    verify(sessionRepository).setEndTime("legacy", slot.getEndTime());
+    verify(sessionRepository).findByStatusInAndEndTimeBeforeOrderByEndTimeAsc(any(), any());
+  }
+
+  @Test
+  void sweep_shouldLeaveSessionsAloneOnNodesWithoutTheLease() {
+    // Given
+    when(schedulerLeases.holds(SessionExpiryScheduler.JOB)).thenReturn(false);
+
+    // When
+    scheduler.sweep();
+
+    // Then
+    verifyNoInteractions(sessionRepository);
+    verify(sessionActors, never()).expire(any());
+  }
+}
@@ -0,0 +1,121 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.wespeak.conversation.TestcontainersConfiguration;
+import org.wespeak.conversation.dto.JoinSessionRequest;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Registration;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.exception.SessionException;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+/** More registered users than seats all join a slot with no session yet, at the same instant. */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@EnabledIf("org.wespeak.conversation.ConversationServiceApplicationTests#isDockerAvailable")
+class SessionJoinConcurrencyIT {
+
+  private static final int USERS = 24;
+
+  @Autowired private SessionService sessionService;
+  @Autowired private TimeSlotRepository timeSlotRepository;
+  @Autowired private RegistrationRepository registrationRepository;
+  @Autowired private SessionRepository sessionRepository;
+  @Autowired private ParticipantRepository participantRepository;
+
+  @Value("${app.conversation.max-participants:8}")
+  private int maxParticipants;
+
+  private TimeSlot slot;
+
+  @BeforeEach
+  void setUp() {
+    participantRepository.deleteAll();
+    sessionRepository.deleteAll();
+    registrationRepository.deleteAll();
+    timeSlotRepository.deleteAll();
+
+    slot =
+        timeSlotRepository.save(
+            TimeSlot.builder()
+                .targetLanguageCode("en")
+                .level(TimeSlot.Level.B1)
+                .startTime(Instant.now())
+                .durationMinutes(30)
+                .build());
+    List<Registration> registrations = new ArrayList<>();
+    for (int u = 0; u < USERS; u++) {
+      registrations.add(
+          Registration.builder().timeSlotId(slot.getId()).userId("user-" + u).build());
+    }
+    registrationRepository.saveAll(registrations);
+  }
+
+  @Test
+  void concurrentJoins_shouldNeverOverbook() throws Exception {
+    // Given
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> joins = new ArrayList<>();
+
+    // When
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int u = 0; u < USERS; u++) {
+        String userId = "user-" + u;
+        joins.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  try {
+                    sessionService.joinSession(
+                        userId, JoinSessionRequest.builder().timeSlotId(slot.getId()).build());
+                    return true;
+                  } catch (SessionException e) {
+                    assertEquals("SESSION_FULL", e.getCode());
+                    return false;
+                  }
+                }));
+      }
+      start.countDown();
+    }
+
+    // Then
+    int admitted = 0;
+    for (Future<Boolean> join : joins) {
+      admitted += join.get() ? 1 : 0;
+    }
+    Session session = sessionRepository.findByTimeSlotId(slot.getId()).orElseThrow();
+    assertEquals(maxParticipants, admitted);
+    assertEquals(maxParticipants, session.getConnectedCount());
+    assertEquals(Session.Status.active, session.getStatus());
+    assertEquals(
+        maxParticipants,
+        participantRepository.countBySessionIdAndStatus(
+            session.getId(), Participant.Status.connected));
+    assertEquals(
+        USERS - maxParticipants,
+        registrationRepository
+            .findByTimeSlotIdAndStatus(slot.getId(), Registration.Status.registered)
+            .size());
+  }
+}
@@ -0,0 +1,174 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SessionPreparerTest {
+
+  @Mock private TimeSlotRepository timeSlotRepository;
+  @Mock private SessionRepository sessionRepository;
+  @Mock private ParticipantRepository participantRepository;
+  @Mock private RoomRosterService roomRosterService;
+  @Mock private SessionActors sessionActors;
+  @Mock private SessionExpiryScheduler sessionExpiryScheduler;
+  @Mock private SchedulerLeases schedulerLeases;
+
+  @InjectMocks private SessionPreparer sessionPreparer;
+
+  private TimeSlot slot;
+  private Session session;
+
+  @BeforeEach
+  void setUp() {
+    slot =
+        TimeSlot.builder()
+            .id("slot-1")
+            .targetLanguageCode("en")
+            .level(TimeSlot.Level.A2)
+            .startTime(Instant.now().plus(3, ChronoUnit.MINUTES))
+            .durationMinutes(30)
+            .build();
+    session =
+        Session.builder()
+            .id("session-1")
+            .timeSlotId("slot-1")
+            .status(Session.Status.waiting)
+            .endTime(slot.getEndTime())
+            .build();
+
+    ReflectionTestUtils.setField(sessionPreparer, "leadMinutes", 5);
+    ReflectionTestUtils.setField(sessionPreparer, "gracePeriodMinutes", 5);
+  }
+
+  @Test
+  void createSession_shouldCarryDeadlinesAndScheduleExpiry() {
+    // Given
+    when(sessionRepository.createIfAbsent(any())).thenReturn(session);
+
+    // When
+    Session result = sessionPreparer.createSession(slot);
+
+    // Then
+    assertSame(session, result);
+    verify(sessionRepository)
+        .createIfAbsent(
+            argThat(
+                s ->
+                    s.getJoinDeadline().equals(slot.getStartTime().plus(5, ChronoUnit.MINUTES))
+                        && s.getEndTime().equals(slot.getEndTime())));
+    verify(sessionExpiryScheduler).schedule("session-1", slot.getEndTime());
+  }
+
+  @Test
+  void prepareUpcomingSessions_shouldCreateInBulkAndWarmRooms() {
+    // Given
+    Participant early = Participant.builder().sessionId("session-1").userId("alice").build();
+    when(schedulerLeases.holds(SessionPreparer.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot));
+    when(sessionRepository.findByTimeSlotIdIn(List.of("slot-1"))).thenReturn(List.of(session));
+    when(participantRepository.findBySessionIdIn(List.of("session-1")))
+        .thenReturn(List.of(early));
+
+    // When
+    sessionPreparer.prepareUpcomingSessions();
+
+    // Then
+    verify(sessionRepository).createAllIfAbsent(argThat(sessions -> sessions.size() == 1));
+    verify(sessionRepository, never()).createIfAbsent(any());
+    verify(roomRosterService).prime("session-1", List.of(early));
+    verify(sessionActors).prepare(session, List.of(early));
+    verify(sessionExpiryScheduler).schedule("session-1", slot.getEndTime());
+  }
+
+  @Test
+  void prepareUpcomingSessions_shouldSkipSlotsAlreadyPrepared() {
+    // Given
+    when(schedulerLeases.holds(SessionPreparer.JOB)).thenReturn(true);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot));
+    when(sessionRepository.findByTimeSlotIdIn(any())).thenReturn(List.of(session));
+    when(participantRepository.findBySessionIdIn(any())).thenReturn(List.of());
+
+    // When
+    sessionPreparer.prepareUpcomingSessions();
+    sessionPreparer.prepareUpcomingSessions();
+
+    // Then
+    verify(sessionRepository, times(1)).createAllIfAbsent(any());
+    verify(sessionActors, times(1)).prepare(any(), any());
+  }
+
+  @Test
+  void prepareUpcomingSessions_shouldWarmWithoutWritingWithoutTheLease() {
+    // Given
+    when(schedulerLeases.holds(SessionPreparer.JOB)).thenReturn(false);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot));
+    when(sessionRepository.findByTimeSlotIdIn(List.of("slot-1"))).thenReturn(List.of(session));
+    when(participantRepository.findBySessionIdIn(List.of("session-1"))).thenReturn(List.of());
+
+    // When
+    sessionPreparer.prepareUpcomingSessions();
+
+    // Then
+    verify(sessionRepository, never()).createAllIfAbsent(any());
+    verify(roomRosterService).prime("session-1", List.of());
+    verify(sessionActors).prepare(session, List.of());
+    verify(sessionExpiryScheduler).schedule("session-1", slot.getEndTime());
+  }
+
+  @Test
+  void prepareUpcomingSessions_shouldRetrySlotsWhoseSessionIsNotCreatedYet() {
+    // Given
+    when(schedulerLeases.holds(SessionPreparer.JOB)).thenReturn(false);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slot));
+    when(sessionRepository.findByTimeSlotIdIn(List.of("slot-1")))
+        .thenReturn(List.of())
+        .thenReturn(List.of(session));
+    when(participantRepository.findBySessionIdIn(List.of("session-1"))).thenReturn(List.of());
+
+    // When
+    sessionPreparer.prepareUpcomingSessions();
+    sessionPreparer.prepareUpcomingSessions();
+
+    // Then
+    verify(sessionActors, times(1)).prepare(session, List.of());
+  }
+
+  @Test
+  void backfillJoinDeadlines_shouldGiveLegacySessionsTheSlotDeadline() {
+    // Given
+    when(schedulerLeases.holds(SessionPreparer.JOB)).thenReturn(true);
+    when(sessionRepository.findByStatusInAndJoinDeadlineIsNull(any()))
+        .thenReturn(List.of(Session.builder().id("legacy").timeSlotId("slot-1").build()));
+    when(timeSlotRepository.findAllById(any())).thenReturn(List.of(slot));
+
+    // When
+    sessionPreparer.backfillJoinDeadlines();
+
+    // Then
+    verify(sessionRepository)
+        .setJoinDeadline("legacy", slot.getStartTime().plus(5, ChronoUnit.MINUTES));
+  }
+}
@@ -2,22 +2,28 @@ package org.wespeak.conversation.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.*;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.wespeak.conversation.dto.JoinSessionRequest;
 import org.wespeak.conversation.dto.MediaStateRequest;
 import org.wespeak.conversation.dto.ParticipantDto;
 import org.wespeak.conversation.dto.SessionDto;
+import org.wespeak.conversation.dto.SessionHistoryResponse;
 import org.wespeak.conversation.entity.Participant;
 import org.wespeak.conversation.entity.Session;
 import org.wespeak.conversation.entity.TimeSlot;
@@ -37,7 +43,17 @@ class SessionServiceTest {
 
   @Mock private RegistrationService registrationService;
 
-  @Mock private ConversationEventPublisher eventPublisher;
+  @Mock private RoomRosterService roomRosterService;
+
+  @Mock private MediaStateBuffer mediaStateBuffer;
+
+  @Mock private SessionActors sessionActors;
+
+  @Mock private SessionPreparer sessionPreparer;
+
+  @Mock private PresenceCache presenceCache;
+
+  @Mock private SessionSnapshots sessionSnapshots;
 
   @InjectMocks private SessionService sessionService;
 
@@ -68,9 +84,7 @@ class SessionServiceTest {
             .status(Session.Status.waiting)
             .build();
 
-    ReflectionTestUtils.setField(sessionService, "gracePeriodMinutes", 5);
     ReflectionTestUtils.setField(sessionService, "maxParticipants", 8);
-    ReflectionTestUtils.setField(sessionService, "minParticipants", 2);
   }
 
   @Test
@@ -82,26 +96,17 @@ class SessionServiceTest {
             .recordingConsent(true)
             .displayName("Test User")
             .build();
+    testSession.setConnectedCount(1);
 
-    when(registrationService.isUserRegistered("slot-1", userId)).thenReturn(true);
-    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
-        .thenReturn(Optional.empty());
-    when(sessionRepository.findByTimeSlotIdAndStatusIn(eq("slot-1"), any(), any()))
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(true)))
         .thenReturn(Optional.of(testSession));
-    when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
-    when(participantRepository.countBySessionIdAndStatus(any(), eq(Participant.Status.connected)))
-        .thenReturn(0L);
-    when(participantRepository.findBySessionIdAndUserId("session-1", userId))
-        .thenReturn(Optional.empty());
-    when(participantRepository.save(any()))
-        .thenAnswer(
-            inv -> {
-              Participant p = inv.getArgument(0);
-              p.setId("participant-1");
-              return p;
-            });
-    when(sessionRepository.save(any())).thenReturn(testSession);
-    when(participantRepository.findBySessionIdAndStatusNot(any(), any())).thenReturn(List.of());
+    when(participantRepository.upsertConnected(
+            eq("session-1"), eq(userId), eq("Test User"), eq(true), any()))
+        .thenReturn(Participant.builder().id("participant-1").sessionId("session-1").build());
+    when(sessionActors.joined(eq(testSession), any()))
+        .thenReturn(CompletableFuture.completedFuture(testSession));
+    when(sessionSnapshots.publish(any())).thenAnswer(inv -> snapshotOf(inv.getArgument(0)));
 
     // When
     SessionDto result = sessionService.joinSession(userId, request);
@@ -109,41 +114,142 @@ class SessionServiceTest {
     // Then
     assertNotNull(result);
     assertEquals("session-1", result.getId());
-    verify(participantRepository).save(any());
-    verify(registrationService).markAttended("slot-1", userId);
+    verify(roomRosterService).upsert(any());
+    verify(presenceCache).joined(any());
+    verify(registrationService, never()).releaseAttendance(any(), any());
+  }
+
+  @Test
+  void joinSession_shouldCreateSessionOnFirstJoin() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+    Session seated =
+        Session.builder().id("session-1").timeSlotId("slot-1").connectedCount(2).build();
+    Session active =
+        Session.builder()
+            .id("session-1")
+            .timeSlotId("slot-1")
+            .status(Session.Status.active)
+            .connectedCount(2)
+            .build();
+
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(seated));
+    when(sessionRepository.findByTimeSlotId("slot-1")).thenReturn(Optional.empty());
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
+    when(sessionPreparer.createSession(testSlot)).thenReturn(testSession);
+    when(participantRepository.upsertConnected(any(), any(), any(), anyBoolean(), any()))
+        .thenReturn(Participant.builder().id("participant-1").sessionId("session-1").build());
+    when(sessionActors.joined(eq(seated), any()))
+        .thenReturn(CompletableFuture.completedFuture(active));
+    when(sessionSnapshots.publish(any())).thenAnswer(inv -> snapshotOf(inv.getArgument(0)));
+
+    // When
+    SessionDto result = sessionService.joinSession(userId, request);
+
+    // Then
+    assertEquals("session-1", result.getId());
+    verify(sessionPreparer).createSession(testSlot);
+    verify(sessionSnapshots).publish(seated);
+    verify(sessionSnapshots).changed("session-1");
+  }
+
+  @Test
+  void joinSession_shouldNotWaitForOrFailWithTheActor() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+    CompletableFuture<Session> processed = new CompletableFuture<>();
+
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Optional.of(testSession));
+    when(participantRepository.upsertConnected(any(), any(), any(), anyBoolean(), any()))
+        .thenReturn(Participant.builder().id("participant-1").sessionId("session-1").build());
+    when(sessionActors.joined(eq(testSession), any())).thenReturn(processed);
+    when(sessionSnapshots.publish(testSession)).thenReturn(snapshotOf(testSession));
+
+    // When
+    SessionDto result = sessionService.joinSession(userId, request);
+    processed.completeExceptionally(new IllegalStateException("actor failed"));
+
+    // Then
+    assertEquals("session-1", result.getId());
+    verify(sessionSnapshots, never()).changed(any());
+    verify(registrationService, never()).releaseAttendance(any(), any());
+  }
+
+  @Test
+  void joinSession_shouldReleaseRegistrationWhenSessionFull() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+    testSession.setConnectedCount(8);
+
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Optional.empty());
+    when(sessionRepository.findByTimeSlotId("slot-1")).thenReturn(Optional.of(testSession));
+
+    // When/Then
+    SessionException ex =
+        assertThrows(SessionException.class, () -> sessionService.joinSession(userId, request));
+    assertEquals("SESSION_FULL", ex.getCode());
+    verify(registrationService).releaseAttendance("slot-1", userId);
+    verify(participantRepository, never())
+        .upsertConnected(any(), any(), any(), anyBoolean(), any());
+  }
+
+  @Test
+  void joinSession_shouldReleaseSeatWhenAlreadyConnected() {
+    // Given
+    JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
+
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Optional.of(testSession));
+    when(participantRepository.upsertConnected(any(), any(), any(), anyBoolean(), any()))
+        .thenThrow(new DuplicateKeyException("idx_participant_session_user"));
+
+    // When/Then
+    SessionException ex =
+        assertThrows(SessionException.class, () -> sessionService.joinSession(userId, request));
+    assertEquals("ALREADY_IN_SESSION", ex.getCode());
+    verify(sessionRepository).releaseSeat("session-1");
+    verify(registrationService).releaseAttendance("slot-1", userId);
   }
 
   @Test
   void joinSession_shouldThrowWhenNotRegistered() {
     // Given
     JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
-    when(registrationService.isUserRegistered("slot-1", userId)).thenReturn(false);
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(false);
 
     // When/Then
     SessionException ex =
         assertThrows(SessionException.class, () -> sessionService.joinSession(userId, request));
     assertEquals("NOT_REGISTERED", ex.getCode());
+    verifyNoInteractions(sessionRepository);
   }
 
   @Test
-  void joinSession_shouldThrowWhenAlreadyInSession() {
+  void joinSession_shouldThrowWhenConnectedToAnotherSession() {
     // Given
     JoinSessionRequest request = JoinSessionRequest.builder().timeSlotId("slot-1").build();
-    Participant existingParticipant =
-        Participant.builder()
-            .id("existing")
-            .sessionId("other-session")
-            .status(Participant.Status.connected)
-            .build();
 
-    when(registrationService.isUserRegistered("slot-1", userId)).thenReturn(true);
-    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
-        .thenReturn(Optional.of(existingParticipant));
+    when(registrationService.claimAttendance("slot-1", userId)).thenReturn(true);
+    when(sessionRepository.reserveSeat(eq("slot-1"), any(), eq(8), eq(false)))
+        .thenReturn(Optional.of(testSession));
+    when(participantRepository.upsertConnected(any(), any(), any(), anyBoolean(), any()))
+        .thenThrow(new DuplicateKeyException("idx_participant_user_connected"));
 
     // When/Then
     SessionException ex =
         assertThrows(SessionException.class, () -> sessionService.joinSession(userId, request));
     assertEquals("ALREADY_IN_SESSION", ex.getCode());
+    verify(sessionRepository).releaseSeat("session-1");
+    verify(registrationService).releaseAttendance("slot-1", userId);
+    verify(presenceCache, never()).joined(any());
   }
 
   @Test
@@ -161,17 +267,29 @@ class SessionServiceTest {
 
     MediaStateRequest request =
         MediaStateRequest.builder().cameraEnabled(false).micEnabled(true).build();
+    when(sessionSnapshots.toParticipantDto(any()))
+        .thenAnswer(
+            inv -> {
+              Participant updated = inv.getArgument(0);
+              return ParticipantDto.builder()
+                  .id(updated.getId())
+                  .cameraEnabled(updated.getCameraEnabled())
+                  .micEnabled(updated.getMicEnabled())
+                  .build();
+            });
 
-    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
-        .thenReturn(Optional.of(participant));
-    when(participantRepository.save(any())).thenReturn(participant);
+    when(presenceCache.find(userId))
+        .thenReturn(Optional.of(PresenceCache.Presence.of(participant)));
 
     // When
     ParticipantDto result = sessionService.updateMediaState(userId, request);
 
     // Then
     assertNotNull(result);
-    verify(participantRepository).save(argThat(p -> !p.getCameraEnabled() && p.getMicEnabled()));
+    assertFalse(result.getCameraEnabled());
+    verify(mediaStateBuffer).record("session-1", userId, false, true);
+    verify(presenceCache).updateMediaState(userId, false, true);
+    verifyNoInteractions(participantRepository);
   }
 
   @Test
@@ -184,33 +302,154 @@ class SessionServiceTest {
             .userId(userId)
             .status(Participant.Status.connected)
             .build();
+    testSession.setConnectedCount(1);
 
-    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
+    when(presenceCache.find(userId))
+        .thenReturn(Optional.of(PresenceCache.Presence.of(participant)));
+    when(participantRepository.markDisconnected(eq("session-1"), eq(userId), any()))
         .thenReturn(Optional.of(participant));
-    when(participantRepository.save(any())).thenReturn(participant);
-    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(testSession));
-    when(participantRepository.countBySessionIdAndStatus(any(), eq(Participant.Status.connected)))
-        .thenReturn(1L);
+    when(sessionRepository.releaseSeat("session-1")).thenReturn(Optional.of(testSession));
 
     // When
     sessionService.leaveSession(userId);
 
     // Then
-    verify(participantRepository)
-        .save(
-            argThat(
-                p -> p.getStatus() == Participant.Status.disconnected && p.getLeftAt() != null));
+    verify(sessionRepository).releaseSeat("session-1");
+    verify(mediaStateBuffer).flush("session-1", userId);
+    verify(roomRosterService).markDisconnected("session-1", userId);
+    verify(presenceCache).invalidate(userId);
+    verify(sessionSnapshots).changed("session-1");
+    verify(sessionActors).left(eq("session-1"), eq(userId), any(), eq(testSession));
   }
 
   @Test
-  void leaveSession_shouldThrowWhenNoActiveSession() {
+  void leaveSession_shouldNotReleaseSeatTwice() {
     // Given
-    when(participantRepository.findByUserIdAndStatusNot(userId, Participant.Status.disconnected))
+    Participant participant =
+        Participant.builder().sessionId("session-1").userId(userId).build();
+
+    when(presenceCache.find(userId))
+        .thenReturn(Optional.of(PresenceCache.Presence.of(participant)));
+    when(participantRepository.markDisconnected(eq("session-1"), eq(userId), any()))
         .thenReturn(Optional.empty());
 
+    // When
+    sessionService.leaveSession(userId);
+
+    // Then
+    verify(sessionRepository, never()).releaseSeat(any());
+    verifyNoInteractions(sessionActors);
+  }
+
+  @Test
+  void leaveSession_shouldThrowWhenNoActiveSession() {
+    // Given
+    when(presenceCache.find(userId)).thenReturn(Optional.empty());
+
     // When/Then
     SessionException ex =
         assertThrows(SessionException.class, () -> sessionService.leaveSession(userId));
     assertEquals("NO_ACTIVE_SESSION", ex.getCode());
   }
+
+  @Test
+  void getSessionHistory_shouldBatchFetchSessionsAndReturnCursor() {
+    // Given
+    Instant now = Instant.now();
+    List<Participant> rows =
+        List.of(
+            Participant.builder().id("p-3").sessionId("session-1").joinedAt(now).build(),
+            Participant.builder()
+                .id("p-2")
+                .sessionId("session-2")
+                .joinedAt(now.minusSeconds(60))
+                .build(),
+            Participant.builder()
+                .id("p-1")
+                .sessionId("session-3")
+                .joinedAt(now.minusSeconds(120))
+                .build());
+    // The session's seat counter is stale; the page counts who is connected now
+    testSession.setConnectedCount(1);
+    when(participantRepository.findHistory(userId, null, null, 0, 3)).thenReturn(rows);
+    when(sessionRepository.findAllById(any())).thenReturn(List.of(testSession));
+    when(participantRepository.countConnected(Set.of("session-1", "session-2")))
+        .thenReturn(Map.of("session-1", 3));
+    when(participantRepository.countByUserIdAndJoinedAtNotNull(userId)).thenReturn(3L);
+
+    // When
+    SessionHistoryResponse result = sessionService.getSessionHistory(userId, null, 0, 2);
+
+    // Then
+    assertEquals(2, result.getSessions().size());
+    assertEquals(3, result.getSessions().get(0).getParticipantCount());
+    assertEquals("en", result.getSessions().get(0).getTargetLanguageCode());
+    assertNull(result.getSessions().get(1).getTargetLanguageCode());
+    assertTrue(result.getHasMore());
+    assertEquals(
+        new HistoryCursor(now.minusSeconds(60), "p-2"),
+        HistoryCursor.decode(result.getNextCursor()));
+    verify(sessionRepository, times(1)).findAllById(any());
+    verify(sessionRepository, never()).findById(any());
+    verify(participantRepository, times(1)).countConnected(any());
+    verify(participantRepository, never()).countBySessionIdAndStatus(any(), any());
+  }
+
+  @Test
+  void getSessionHistory_shouldContinueAfterCursor() {
+    // Given
+    Instant joinedAt = Instant.ofEpochMilli(1_700_000_000_000L);
+    String cursor = new HistoryCursor(joinedAt, "p-2").encode();
+    when(participantRepository.findHistory(userId, joinedAt, "p-2", 0, 11)).thenReturn(List.of());
+
+    // When
+    SessionHistoryResponse result = sessionService.getSessionHistory(userId, cursor, 5, 10);
+
+    // Then
+    assertTrue(result.getSessions().isEmpty());
+    assertFalse(result.getHasMore());
+    assertNull(result.getNextCursor());
+  }
+
+  @Test
+  void getSessionHistory_shouldRejectMalformedCursor() {
+    // When/Then
+    SessionException ex =
+        assertThrows(
+            SessionException.class,
+            () -> sessionService.getSessionHistory(userId, "not a cursor", 0, 10));
+    assertEquals("INVALID_CURSOR", ex.getCode());
+  }
+
+  @Test
+  void getCurrentSession_shouldServeSharedSnapshot() {
+    // Given
+    SessionSnapshots.Snapshot snapshot = snapshotOf(testSession);
+    when(presenceCache.find(userId))
+        .thenReturn(
+            Optional.of(
+                PresenceCache.Presence.of(
+                    Participant.builder().sessionId("session-1").userId(userId).build())));
+    when(sessionSnapshots.current("session-1")).thenReturn(snapshot);
+
+    // When
+    SessionSnapshots.Snapshot result = sessionService.getCurrentSession(userId);
+
+    // Then
+    assertSame(snapshot, result);
+    verifyNoInteractions(participantRepository, sessionRepository);
+  }
+
+  private static SessionSnapshots.Snapshot snapshotOf(Session session) {
+    return new SessionSnapshots.Snapshot(
+        session.getVersion(),
+        SessionDto.builder()
+            .id(session.getId())
+            .version(session.getVersion())
+            .status(session.getStatus())
+            .participants(List.of())
+            .build(),
+        Instant.now(),
+        true);
+  }
 }
@@ -0,0 +1,158 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.Participant;
+import org.wespeak.conversation.entity.Session;
+import org.wespeak.conversation.repository.ParticipantRepository;
+import org.wespeak.conversation.repository.SessionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SessionSnapshotsTest {
+
+  @Mock private SessionRepository sessionRepository;
+  @Mock private ParticipantRepository participantRepository;
+  @Mock private MediaStateBuffer mediaStateBuffer;
+  @Mock private SessionActors sessionActors;
+
+  @Test
+  void current_shouldBuildOnceWithinMaxAge() {
+    // Given
+    SessionSnapshots snapshots = snapshots(60_000);
+    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(session(3)));
+    when(participantRepository.findBySessionIdAndStatusNot(any(), any()))
+        .thenReturn(List.of(participant("alice")));
+
+    // When
+    SessionSnapshots.Snapshot first = snapshots.current("session-1");
+    SessionSnapshots.Snapshot second = snapshots.current("session-1");
+
+    // Then
+    assertSame(first, second);
+    assertEquals(3, first.version());
+    assertEquals("\"session-1-3\"", first.etag());
+    assertEquals(1, first.session().getParticipants().size());
+    verify(sessionRepository, times(1)).findById(any());
+    verify(sessionRepository, never()).findVersion(any());
+  }
+
+  @Test
+  void current_shouldOnlyReadVersionOnceMaxAgeHasPassed() {
+    // Given
+    SessionSnapshots snapshots = snapshots(0);
+    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(session(3)));
+    when(sessionRepository.findVersion("session-1")).thenReturn(Optional.of(3L));
+
+    // When
+    SessionSnapshots.Snapshot first = snapshots.current("session-1");
+    SessionSnapshots.Snapshot second = snapshots.current("session-1");
+
+    // Then
+    assertSame(first.session(), second.session());
+    verify(sessionRepository, times(1)).findById(any());
+    verify(participantRepository, times(1)).findBySessionIdAndStatusNot(any(), any());
+  }
+
+  @Test
+  void current_shouldRebuildAfterLocalChange() {
+    // Given
+    SessionSnapshots snapshots = snapshots(60_000);
+    when(sessionRepository.findById("session-1"))
+        .thenReturn(Optional.of(session(3)))
+        .thenReturn(Optional.of(session(4)));
+    snapshots.current("session-1");
+
+    // When
+    snapshots.changed("session-1");
+    SessionSnapshots.Snapshot rebuilt = snapshots.current("session-1");
+
+    // Then
+    assertEquals(4, rebuilt.version());
+    verify(sessionRepository, never()).findVersion(any());
+  }
+
+  @Test
+  void current_shouldRebuildSeatCountedBeforeItsParticipant() {
+    // Given
+    SessionSnapshots snapshots = snapshots(0);
+    Session seated = session(4);
+    seated.setConnectedCount(1);
+    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(seated));
+    when(participantRepository.findBySessionIdAndStatusNot(any(), any()))
+        .thenReturn(List.of())
+        .thenReturn(List.of(participant("alice")));
+    SessionSnapshots.Snapshot joining = snapshots.current("session-1");
+
+    // When
+    SessionSnapshots.Snapshot joined = snapshots.current("session-1");
+
+    // Then
+    assertFalse(joining.settled());
+    assertTrue(joined.settled());
+    assertEquals(1, joined.session().getParticipants().size());
+    verify(sessionRepository, never()).findVersion(any());
+  }
+
+  @Test
+  void awaitChange_shouldCompleteWhenNewerVersionIsPublished() throws Exception {
+    // Given
+    SessionSnapshots snapshots = snapshots(60_000);
+    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(session(3)));
+    CompletableFuture<SessionSnapshots.Snapshot> parked =
+        snapshots.awaitChange("session-1", 3, Duration.ofSeconds(5));
+    assertFalse(parked.isDone());
+
+    // When
+    snapshots.publish(session(4));
+
+    // Then
+    assertEquals(4, parked.get(1, TimeUnit.SECONDS).version());
+  }
+
+  @Test
+  void awaitChange_shouldAnswerWithCurrentSnapshotOnTimeout() throws Exception {
+    // Given
+    SessionSnapshots snapshots = snapshots(60_000);
+    when(sessionRepository.findById("session-1")).thenReturn(Optional.of(session(3)));
+
+    // When
+    CompletableFuture<SessionSnapshots.Snapshot> parked =
+        snapshots.awaitChange("session-1", 3, Duration.ofMillis(50));
+
+    // Then
+    assertEquals(3, parked.get(1, TimeUnit.SECONDS).version());
+  }
+
+  private SessionSnapshots snapshots(long maxAgeMillis) {
+    return new SessionSnapshots(
+        sessionRepository, participantRepository, mediaStateBuffer, sessionActors, maxAgeMillis);
+  }
+
+  private static Session session(long version) {
+    return Session.builder()
+        .id("session-1")
+        .timeSlotId("slot-1")
+        .status(Session.Status.active)
+        .version(version)
+        .build();
+  }
+
+  private static Participant participant(String userId) {
+    return Participant.builder()
+        .sessionId("session-1")
+        .userId(userId)
+        .status(Participant.Status.connected)
+        .build();
+  }
+}
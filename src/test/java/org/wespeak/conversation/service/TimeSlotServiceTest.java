@@ -6,8 +6,11 @@ import static org.mockito.Mockito.*;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,7 +22,7 @@ import org.wespeak.conversation.dto.TimeSlotDto;
 import org.wespeak.conversation.dto.TimeSlotsResponse;
 import org.wespeak.conversation.entity.TimeSlot;
 import org.wespeak.conversation.exception.ResourceNotFoundException;
-import org.wespeak.conversation.repository.RegistrationRepository;
+import org.wespeak.conversation.exception.TimeSlotException;
 import org.wespeak.conversation.repository.TimeSlotRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,7 +30,9 @@ class TimeSlotServiceTest {
 
   @Mock private TimeSlotRepository timeSlotRepository;
 
-  @Mock private RegistrationRepository registrationRepository;
+  @Mock private SchedulerLeases schedulerLeases;
+
+  @Mock private TimetableIndex timetableIndex;
 
   @InjectMocks private TimeSlotService timeSlotService;
 
@@ -46,6 +51,7 @@ class TimeSlotServiceTest {
             .durationMinutes(30)
             .maxParticipants(8)
             .minParticipants(2)
+            .registeredCount(2)
             .isActive(true)
             .build();
   }
@@ -53,13 +59,13 @@ class TimeSlotServiceTest {
   @Test
   void findTimeSlots_shouldReturnSlots() {
     // Given
-    when(timeSlotRepository.findByTargetLanguageCodeAndIsActiveAndStartTimeBetweenOrderByStartTime(
-            eq("en"), eq(true), any(), any()))
+    when(timeSlotRepository.findActivePage(
+            eq("en"), isNull(), any(), any(), isNull(), isNull(), eq(0), eq(21)))
         .thenReturn(List.of(testSlot));
-    when(registrationRepository.countByTimeSlotIdAndStatus(any(), any())).thenReturn(2L);
 
     // When
-    TimeSlotsResponse response = timeSlotService.findTimeSlots("en", null, null, null, 0, 20);
+    TimeSlotsResponse response =
+        timeSlotService.findTimeSlots("en", null, null, null, null, 0, 20, false);
 
     // Then
     assertNotNull(response);
@@ -67,13 +73,104 @@ class TimeSlotServiceTest {
     assertEquals("slot-1", response.getTimeslots().get(0).getId());
     assertEquals(2, response.getTimeslots().get(0).getRegisteredCount());
     assertEquals(6, response.getTimeslots().get(0).getAvailableSpots());
+    assertFalse(response.getHasMore());
+    assertNull(response.getNextCursor());
+    assertNull(response.getTotal());
+    verify(timeSlotRepository, never()).countActive(any(), any(), any(), any());
+  }
+
+  @Test
+  void findTimeSlots_shouldBeServedFromTimetableIndexWhenItCoversTheWindow() {
+    // Given
+    when(timetableIndex.page(
+            eq("en"), eq(TimeSlot.Level.A2), any(), any(), any(), any(), eq(0), eq(21)))
+        .thenReturn(Optional.of(List.of(testSlot)));
+
+    // When
+    TimeSlotsResponse response =
+        timeSlotService.findTimeSlots("en", TimeSlot.Level.A2, null, null, null, 0, 20, false);
+
+    // Then
+    assertEquals("slot-1", response.getTimeslots().get(0).getId());
+    verifyNoInteractions(timeSlotRepository);
+  }
+
+  @Test
+  void findTimeSlots_shouldContinueAfterTheLastSlotOfThePage() {
+    // Given
+    TimeSlot second = slotAt("slot-2", testSlot.getStartTime().plus(1, ChronoUnit.HOURS));
+    TimeSlot third = slotAt("slot-3", testSlot.getStartTime().plus(2, ChronoUnit.HOURS));
+    when(timeSlotRepository.findActivePage(
+            any(), any(), any(), any(), isNull(), isNull(), eq(0), eq(3)))
+        .thenReturn(List.of(testSlot, second, third));
+    when(timeSlotRepository.findActivePage(
+            any(), any(), any(), any(), eq(second.getStartTime()), eq("slot-2"), eq(0), eq(3)))
+        .thenReturn(List.of(third));
+
+    // When
+    TimeSlotsResponse first =
+        timeSlotService.findTimeSlots(null, TimeSlot.Level.A2, null, null, null, 0, 2, false);
+    TimeSlotsResponse next =
+        timeSlotService.findTimeSlots(
+            null, TimeSlot.Level.A2, null, null, first.getNextCursor(), 5, 2, false);
+
+    // Then
+    assertEquals(2, first.getTimeslots().size());
+    assertTrue(first.getHasMore());
+    assertNotNull(first.getNextCursor());
+    assertEquals("slot-3", next.getTimeslots().get(0).getId());
+    assertFalse(next.getHasMore());
+  }
+
+  @Test
+  void findTimeSlots_shouldSkipByPageNumberWithoutACursor() {
+    // Given
+    when(timeSlotRepository.findActivePage(
+            any(), any(), any(), any(), isNull(), isNull(), eq(40), eq(21)))
+        .thenReturn(List.of(testSlot));
+
+    // When
+    TimeSlotsResponse response =
+        timeSlotService.findTimeSlots("en", null, null, null, null, 2, 20, false);
+
+    // Then
+    assertEquals("slot-1", response.getTimeslots().get(0).getId());
+    assertFalse(response.getHasMore());
+  }
+
+  @Test
+  void findTimeSlots_shouldCountTotalOnlyWhenAsked() {
+    // Given
+    when(timeSlotRepository.findActivePage(
+            any(), any(), any(), any(), any(), any(), anyInt(), anyInt()))
+        .thenReturn(List.of(testSlot));
+    when(timeSlotRepository.countActive(eq("en"), eq(TimeSlot.Level.A2), any(), any()))
+        .thenReturn(42L);
+
+    // When
+    TimeSlotsResponse response =
+        timeSlotService.findTimeSlots("en", TimeSlot.Level.A2, null, null, null, 0, 20, true);
+
+    // Then
+    assertEquals(42L, response.getTotal());
+  }
+
+  @Test
+  void findTimeSlots_shouldRejectMalformedCursor() {
+    // When/Then
+    TimeSlotException ex =
+        assertThrows(
+            TimeSlotException.class,
+            () ->
+                timeSlotService.findTimeSlots(
+                    "en", null, null, null, "not-a-cursor", 0, 20, false));
+    assertEquals("INVALID_CURSOR", ex.getCode());
   }
 
   @Test
   void findById_shouldReturnSlot() {
     // Given
     when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
-    when(registrationRepository.countByTimeSlotIdAndStatus(any(), any())).thenReturn(0L);
 
     // When
     TimeSlotDto result = timeSlotService.findById("slot-1");
@@ -118,7 +215,6 @@ class TimeSlotServiceTest {
             .build();
 
     when(timeSlotRepository.save(any())).thenReturn(savedSlot);
-    when(registrationRepository.countByTimeSlotIdAndStatus(any(), any())).thenReturn(0L);
 
     // When
     TimeSlotDto result = timeSlotService.create(request);
@@ -129,18 +225,134 @@ class TimeSlotServiceTest {
     assertEquals("fr", result.getTargetLanguageCode());
     assertEquals(TimeSlot.Level.B1, result.getLevel());
     verify(timeSlotRepository).save(any());
+    verify(timetableIndex).put(savedSlot);
+  }
+
+  @Test
+  void update_shouldWriteEditedFieldsWithoutSaving() {
+    // Given - a seat is taken between the read and the write
+    CreateTimeSlotRequest request = CreateTimeSlotRequest.builder().maxParticipants(10).build();
+    TimeSlot stored =
+        TimeSlot.builder()
+            .id("slot-1")
+            .targetLanguageCode("en")
+            .level(TimeSlot.Level.A2)
+            .startTime(testSlot.getStartTime())
+            .durationMinutes(testSlot.getDurationMinutes())
+            .maxParticipants(10)
+            .registeredCount(3)
+            .build();
+    when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
+    when(timeSlotRepository.updateDetails(argThat(slot -> slot.getMaxParticipants() == 10)))
+        .thenReturn(Optional.of(stored));
+
+    // When
+    TimeSlotDto result = timeSlotService.update("slot-1", request);
+
+    // Then
+    assertEquals(10, result.getMaxParticipants());
+    assertEquals(3, result.getRegisteredCount());
+    verify(timeSlotRepository, never()).save(any());
+    verify(timetableIndex).put(stored);
   }
 
   @Test
   void delete_shouldDeactivateSlot() {
     // Given
     when(timeSlotRepository.findById("slot-1")).thenReturn(Optional.of(testSlot));
-    when(timeSlotRepository.save(any())).thenReturn(testSlot);
+    when(timeSlotRepository.updateDetails(any())).thenReturn(Optional.of(testSlot));
 
     // When
     timeSlotService.delete("slot-1");
 
     // Then
-    verify(timeSlotRepository).save(argThat(slot -> !slot.getIsActive()));
+    verify(timeSlotRepository).updateDetails(argThat(slot -> !slot.getIsActive()));
+    verify(timeSlotRepository, never()).save(any());
+  }
+
+  @Test
+  void generateRecurringSlots_shouldUpsertNextWeeksOccurrences() {
+    // Given - a daily template from three days ago and a weekly one from two weeks ago
+    TimeSlot daily =
+        template("daily", TimeSlot.Recurrence.daily, now.minus(3, ChronoUnit.DAYS));
+    TimeSlot weekly =
+        template("weekly", TimeSlot.Recurrence.weekly, now.minus(14, ChronoUnit.DAYS));
+    when(schedulerLeases.holds(TimeSlotService.RECURRING_SLOTS_JOB)).thenReturn(true);
+    when(timeSlotRepository.findByIsActiveAndRecurrenceIn(eq(true), any()))
+        .thenReturn(Stream.of(daily, weekly));
+    List<TimeSlot> upserted = new ArrayList<>();
+    when(timeSlotRepository.createAllIfAbsent(any()))
+        .thenAnswer(
+            invocation -> {
+              List<TimeSlot> batch = invocation.getArgument(0);
+              upserted.addAll(batch);
+              return batch.size();
+            });
+
+    // When
+    timeSlotService.generateRecurringSlots();
+
+    // Then - one occurrence per period strictly after now and within the week
+    assertEquals(8, upserted.size());
+    assertEquals(daily.getStartTime().plus(3, ChronoUnit.DAYS), upserted.get(0).getStartTime());
+    assertEquals(weekly.getStartTime().plus(14, ChronoUnit.DAYS), upserted.get(7).getStartTime());
+    assertTrue(upserted.stream().allMatch(slot -> slot.getStartTime().isAfter(now)));
+    assertTrue(
+        upserted.stream().allMatch(slot -> slot.getRecurrence() == TimeSlot.Recurrence.once));
+    assertTrue(upserted.stream().allMatch(slot -> slot.getId() == null && slot.getIsActive()));
+  }
+
+  @Test
+  void generateRecurringSlots_shouldWriteInBoundedBatches() {
+    // Given - 150 daily templates, seven occurrences each
+    when(schedulerLeases.holds(TimeSlotService.RECURRING_SLOTS_JOB)).thenReturn(true);
+    when(timeSlotRepository.findByIsActiveAndRecurrenceIn(eq(true), any()))
+        .thenReturn(
+            IntStream.range(0, 150)
+                .mapToObj(i -> template("t" + i, TimeSlot.Recurrence.daily, now.minusSeconds(i))));
+    List<Integer> batchSizes = new ArrayList<>();
+    when(timeSlotRepository.createAllIfAbsent(any()))
+        .thenAnswer(
+            invocation -> {
+              List<TimeSlot> batch = invocation.getArgument(0);
+              batchSizes.add(batch.size());
+              return batch.size();
+            });
+
+    // When
+    timeSlotService.generateRecurringSlots();
+
+    // Then
+    assertEquals(List.of(TimeSlotService.GENERATION_BATCH_SIZE, 50), batchSizes);
+  }
+
+  @Test
+  void generateRecurringSlots_shouldSkipWhenAnotherNodeHoldsTheLease() {
+    // Given
+    when(schedulerLeases.holds(TimeSlotService.RECURRING_SLOTS_JOB)).thenReturn(false);
+
+    // When
+    timeSlotService.generateRecurringSlots();
+
+    // Then
+    verifyNoInteractions(timeSlotRepository);
+  }
+
+  private static TimeSlot template(String id, TimeSlot.Recurrence recurrence, Instant start) {
+    TimeSlot template = slotAt(id, start.plus(1, ChronoUnit.HOURS));
+    template.setRecurrence(recurrence);
+    template.setIsActive(true);
+    return template;
+  }
+
+  private static TimeSlot slotAt(String id, Instant startTime) {
+    return TimeSlot.builder()
+        .id(id)
+        .targetLanguageCode("en")
+        .level(TimeSlot.Level.A2)
+        .startTime(startTime)
+        .durationMinutes(30)
+        .maxParticipants(8)
+        .build();
   }
 }
@@ -0,0 +1,213 @@
+package org.wespeak.conversation.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.wespeak.conversation.entity.TimeSlot;
+import org.wespeak.conversation.repository.TimeSlotRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TimetableIndexTest {
+
+  @Mock private TimeSlotRepository timeSlotRepository;
+
+  private TimetableIndex index;
+  private Instant now;
+  private Instant weekAhead;
+
+  @BeforeEach
+  void setUp() {
+    index = new TimetableIndex(timeSlotRepository, new SimpleMeterRegistry(), 8);
+    now = Instant.now();
+    weekAhead = now.plus(7, ChronoUnit.DAYS);
+  }
+
+  @Test
+  void page_shouldBeEmptyUntilLoaded() {
+    // When / Then
+    assertTrue(index.page("en", null, now, weekAhead, null, null, 0, 20).isEmpty());
+    assertTrue(index.count("en", null, now, weekAhead).isEmpty());
+    assertTrue(index.version("en", null, now, weekAhead).isEmpty());
+  }
+
+  @Test
+  void page_shouldAnswerEachFilterCombinationInKeysetOrder() {
+    // Given
+    load(
+        slot("fr-b1-late", "fr", TimeSlot.Level.B1, 3),
+        slot("en-b1", "en", TimeSlot.Level.B1, 2),
+        slot("fr-a2", "fr", TimeSlot.Level.A2, 1),
+        slot("fr-b1-early", "fr", TimeSlot.Level.B1, 1));
+
+    // When / Then
+    assertEquals(List.of("fr-b1-early", "fr-b1-late"), ids(page("fr", TimeSlot.Level.B1)));
+    assertEquals(List.of("fr-a2", "fr-b1-early", "fr-b1-late"), ids(page("fr", null)));
+    assertEquals(
+        List.of("fr-b1-early", "en-b1", "fr-b1-late"),
+        ids(page(null, TimeSlot.Level.B1)));
+    assertEquals(4, index.count(null, null, Instant.now(), weekAhead).orElseThrow());
+  }
+
+  @Test
+  void page_shouldContinueAfterCursorAndStopAtLimit() {
+    // Given
+    TimeSlot first = slot("a", "en", TimeSlot.Level.B1, 1);
+    TimeSlot tiedWithFirst = slot("b", "en", TimeSlot.Level.B1, 1);
+    TimeSlot later = slot("c", "en", TimeSlot.Level.B1, 2);
+    load(later, tiedWithFirst, first);
+
+    // When
+    List<TimeSlot> page =
+        index
+            .page(
+                "en", TimeSlot.Level.B1, Instant.now(), weekAhead, first.getStartTime(), "a", 0, 1)
+            .orElseThrow();
+    List<TimeSlot> secondByNumber =
+        index
+            .page("en", TimeSlot.Level.B1, Instant.now(), weekAhead, null, null, 1, 1)
+            .orElseThrow();
+
+    // Then
+    assertEquals(List.of("b"), ids(page));
+    assertEquals(List.of("b"), ids(secondByNumber));
+  }
+
+  @Test
+  void page_shouldFallBackForWindowsBeyondTheHorizon() {
+    // Given
+    load(slot("en-b1", "en", TimeSlot.Level.B1, 1));
+
+    // When / Then
+    Instant monthAhead = now.plus(30, ChronoUnit.DAYS);
+    assertTrue(index.page("en", null, Instant.now(), monthAhead, null, null, 0, 20).isEmpty());
+  }
+
+  @Test
+  void put_shouldMoveChangedSlotsAndDropDeactivatedOnes() {
+    // Given
+    TimeSlot moved = slot("moved", "en", TimeSlot.Level.B1, 1);
+    TimeSlot cancelled = slot("cancelled", "en", TimeSlot.Level.B1, 2);
+    load(moved, cancelled);
+
+    // When
+    moved.setLevel(TimeSlot.Level.C1);
+    index.put(moved);
+    cancelled.setIsActive(false);
+    index.put(cancelled);
+
+    // Then
+    assertTrue(ids(page("en", TimeSlot.Level.B1)).isEmpty());
+    assertEquals(List.of("moved"), ids(page("en", TimeSlot.Level.C1)));
+  }
+
+  @Test
+  void seatsChanged_shouldUpdateListedCounts() {
+    // Given
+    load(slot("en-b1", "en", TimeSlot.Level.B1, 1));
+
+    // When
+    index.seatsChanged("en-b1", 1);
+    index.seatsChanged("en-b1", 1);
+    index.seatsChanged("en-b1", -1);
+
+    // Then
+    assertEquals(1, page("en", TimeSlot.Level.B1).get(0).getRegisteredCount());
+  }
+
+  @Test
+  void refresh_shouldKeepAWriteThatLandsDuringTheLoad() {
+    // Given - the reload reads the slot before a registration on this node lands
+    TimeSlot slot = slot("en-b1", "en", TimeSlot.Level.B1, 1);
+    load(slot);
+    TimeSlot registered = slot("en-b1", "en", TimeSlot.Level.B1, 1);
+    registered.setRegisteredCount(1);
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenAnswer(
+            invocation -> {
+              index.seatsChanged("en-b1", 1);
+              return List.of(slot);
+            });
+    when(timeSlotRepository.findAllById(List.of("en-b1"))).thenReturn(List.of(registered));
+
+    // When
+    index.refresh();
+
+    // Then
+    assertEquals(1, page("en", TimeSlot.Level.B1).get(0).getRegisteredCount());
+  }
+
+  @Test
+  void version_shouldMoveOnlyForPartitionsWhoseListingsChanged() {
+    // Given
+    load(slot("en-b1", "en", TimeSlot.Level.B1, 1), slot("fr-b1", "fr", TimeSlot.Level.B1, 1));
+    String english = version("en", TimeSlot.Level.B1);
+    String french = version("fr", TimeSlot.Level.B1);
+
+    // When
+    index.seatsChanged("en-b1", 1);
+
+    // Then
+    assertNotEquals(english, version("en", TimeSlot.Level.B1));
+    assertNotEquals(english, version(null, null));
+    assertEquals(french, version("fr", TimeSlot.Level.B1));
+  }
+
+  @Test
+  void version_shouldMoveWhenARefreshFindsAListingChangedElsewhere() {
+    // Given
+    TimeSlot slot = slot("en-b1", "en", TimeSlot.Level.B1, 1);
+    load(slot);
+    String loaded = version("en", TimeSlot.Level.B1);
+
+    // When
+    load(slot);
+    String unchanged = version("en", TimeSlot.Level.B1);
+    slot.setRegisteredCount(3);
+    load(slot);
+
+    // Then
+    assertEquals(loaded, unchanged);
+    assertNotEquals(unchanged, version("en", TimeSlot.Level.B1));
+  }
+
+  private void load(TimeSlot... slots) {
+    when(timeSlotRepository.findByStartTimeBetweenAndIsActive(any(), any(), eq(true)))
+        .thenReturn(List.of(slots));
+    index.refresh();
+  }
+
+  /** First page of the week from the index, which must cover it. */
+  private List<TimeSlot> page(String language, TimeSlot.Level level) {
+    return index.page(language, level, Instant.now(), weekAhead, null, null, 0, 20).orElseThrow();
+  }
+
+  private String version(String language, TimeSlot.Level level) {
+    return index.version(language, level, Instant.now(), weekAhead).orElseThrow();
+  }
+
+  private TimeSlot slot(String id, String language, TimeSlot.Level level, int hoursAhead) {
+    return TimeSlot.builder()
+        .id(id)
+        .targetLanguageCode(language)
+        .level(level)
+        .startTime(now.truncatedTo(ChronoUnit.HOURS).plus(hoursAhead + 1, ChronoUnit.HOURS))
+        .durationMinutes(30)
+        .maxParticipants(8)
+        .isActive(true)
+        .build();
+  }
+
+  private static List<String> ids(List<TimeSlot> slots) {
+    return slots.stream().map(TimeSlot::getId).toList();
+  }
+}
@@ -0,0 +1,82 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.wespeak.conversation.BenchmarkSupport;
+import org.wespeak.conversation.config.JacksonConfig;
+
+/**
+ * Compares encoding a room broadcast once per recipient (the old behaviour) against encoding it
+ * once and sharing the {@link TextMessage} across the room.
+ */
+@Tag("benchmark")
+class BroadcastEncodingBenchmark {
+
+  private static final int[] ROOM_SIZES = {2, 4, 8, 16, 32};
+
+  private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+
+  private final Map<String, Object> message =
+      Map.of(
+          "type", "participant-joined",
+          "userId", "3f1b8c2e-5d7a-4e0b-9c61-2a8f4d9e7b10",
+          "displayName", "Camille Dupont",
+          "cameraEnabled", true,
+          "micEnabled", false);
+
+  private long sink;
+
+  @Test
+  void encodeOnceVersusPerRecipient() throws Exception {
+    System.out.printf(
+        "%-6s %16s %16s %16s %16s%n",
+        "room", "per-recip ns", "once ns", "per-recip B", "once B");
+
+    for (int roomSize : ROOM_SIZES) {
+      int recipients = roomSize - 1;
+
+      BenchmarkSupport.Result perRecipient =
+          BenchmarkSupport.measure(
+              20_000,
+              100_000,
+              () -> {
+                for (int i = 0; i < recipients; i++) {
+                  deliver(new TextMessage(objectMapper.writeValueAsString(message)));
+                }
+              });
+
+      BenchmarkSupport.Result once =
+          BenchmarkSupport.measure(
+              20_000,
+              100_000,
+              () -> {
+                TextMessage frame = new TextMessage(objectMapper.writeValueAsString(message));
+                for (int i = 0; i < recipients; i++) {
+                  deliver(frame);
+                }
+              });
+
+      System.out.printf(
+          "%-6d %16.0f %16.0f %16.0f %16.0f%n",
+          roomSize,
+          perRecipient.nanosPerOp(),
+          once.nanosPerOp(),
+          perRecipient.bytesPerOp(),
+          once.bytesPerOp());
+
+      if (recipients > 1) {
+        assertTrue(once.bytesPerOp() < perRecipient.bytesPerOp());
+      }
+    }
+    assertTrue(sink > 0);
+  }
+
+  private void deliver(TextMessage frame) {
+    sink += frame.getPayloadLength();
+  }
+}
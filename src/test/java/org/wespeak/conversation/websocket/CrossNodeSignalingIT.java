@@ -0,0 +1,144 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.socket.TextMessage;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantJoined;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantState;
+
+/**
+ * Two signaling nodes sharing one Mongo replica set: frames published on one node must reach the
+ * other through the change-stream relay. Prints the added cross-node latency.
+ */
+@EnabledIf("org.wespeak.conversation.ConversationServiceApplicationTests#isDockerAvailable")
+class CrossNodeSignalingIT {
+
+  private static final int MESSAGES = 500;
+
+  private static MongoDBContainer mongo;
+  private static MongoClient client;
+  private static MongoSignalingRelay relayA;
+  private static MongoSignalingRelay relayB;
+
+  private static final SignalingCodecs codecs = new SignalingCodecs(new ObjectMapper());
+  private static SignalingCluster nodeA;
+  private static SignalingCluster nodeB;
+  private static final BlockingQueue<Received> receivedByB = new LinkedBlockingQueue<>();
+
+  @BeforeAll
+  static void startNodes() throws Exception {
+    mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+    mongo.start();
+    client = MongoClients.create(mongo.getReplicaSetUrl());
+    MongoTemplate mongoTemplate = new MongoTemplate(client, "signaling");
+
+    relayA = new MongoSignalingRelay(mongoTemplate, "node-a", Duration.ofSeconds(60), 10_000);
+    relayB = new MongoSignalingRelay(mongoTemplate, "node-b", Duration.ofSeconds(60), 10_000);
+    relayA.start();
+    relayB.start();
+
+    nodeA = new SignalingCluster(relayA, codecs, new SimpleMeterRegistry());
+    nodeB = new SignalingCluster(relayB, codecs, new SimpleMeterRegistry());
+    nodeA.subscribe(envelope -> {});
+    nodeB.subscribe(
+        envelope ->
+            receivedByB.add(
+                new Received(envelope, RelayEnvelope.nowMicros() - envelope.sentAtMicros())));
+
+    awaitChangeStream();
+  }
+
+  @AfterAll
+  static void stopNodes() throws Exception {
+    if (relayA != null) relayA.close();
+    if (relayB != null) relayB.close();
+    if (client != null) client.close();
+    if (mongo != null) mongo.stop();
+  }
+
+  @Test
+  void relay_shouldDeliverOffersToOtherNodeInOrder() throws Exception {
+    // Given - node A relays only once it knows node B has members of the session
+    ParticipantState bob = new ParticipantState("bob", "Bob", true, true);
+    nodeB.broadcast("session-1", "bob", OutboundFrame.of(new ParticipantJoined(bob)));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (nodeA.remoteMembers("session-1").isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    TextMessage offer =
+        new TextMessage("{\"type\":\"offer\",\"data\":{\"type\":\"offer\",\"sdp\":\"v=0\"}}");
+    RawValue data = codecs.json().read(offer).data();
+
+    // When
+    for (int i = 0; i < MESSAGES; i++) {
+      nodeA.sendToUser("session-1", "user-" + i, OutboundFrame.relay("offer", "alice", data));
+    }
+
+    // Then
+    List<Long> latencies = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      Received received = receivedByB.poll(10, TimeUnit.SECONDS);
+      assertNotNull(received, "message " + i + " was not delivered");
+      assertEquals("user-" + i, received.envelope().targetUserId());
+      assertEquals("node-a", received.envelope().originNodeId());
+      latencies.add(received.latencyMicros());
+    }
+
+    Collections.sort(latencies);
+    System.out.printf(
+        "cross-node relay over %d frames: p50=%d us, p99=%d us, max=%d us%n",
+        MESSAGES,
+        latencies.get(MESSAGES / 2),
+        latencies.get(MESSAGES * 99 / 100),
+        latencies.get(MESSAGES - 1));
+  }
+
+  @Test
+  void broadcast_shouldMakeParticipantVisibleOnOtherNode() throws Exception {
+    // When
+    ParticipantState carol = new ParticipantState("carol", "Carol", true, false);
+    nodeA.broadcast("session-2", "carol", OutboundFrame.of(new ParticipantJoined(carol)));
+
+    // Then
+    Received received = receivedByB.poll(10, TimeUnit.SECONDS);
+    assertNotNull(received);
+    assertTrue(received.envelope().isBroadcast());
+    assertEquals(List.of(carol), List.copyOf(nodeB.remoteMembers("session-2")));
+  }
+
+  /** The change stream is opened asynchronously; probe until node B sees node A's inserts. */
+  private static void awaitChangeStream() throws Exception {
+    // Presence is always published, so it can probe before either node knows the other
+    ParticipantState probe = new ParticipantState("probe", "probe", true, true);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (System.nanoTime() < deadline) {
+      nodeA.broadcast("probe", "probe", OutboundFrame.of(new ParticipantJoined(probe)));
+      if (receivedByB.poll(200, TimeUnit.MILLISECONDS) != null) {
+        Thread.sleep(200);
+        receivedByB.clear();
+        return;
+      }
+    }
+    fail("Change stream did not start");
+  }
+
+  private record Received(RelayEnvelope envelope, long latencyMicros) {}
+}
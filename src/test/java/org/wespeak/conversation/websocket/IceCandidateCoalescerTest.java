@@ -0,0 +1,192 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.TextMessage;
+
+@ExtendWith(MockitoExtension.class)
+class IceCandidateCoalescerTest {
+
+  @Mock private ScheduledExecutorService scheduler;
+  @Mock private SignalingConnection target;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SignalingCodecs codecs = new SignalingCodecs(objectMapper);
+
+  private final ReentrantLock outboundLock = new ReentrantLock();
+
+  private IceCandidateCoalescer coalescer;
+  private List<Runnable> scheduledFlushes;
+  private List<JsonNode> sent;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    scheduledFlushes = new ArrayList<>();
+    sent = Collections.synchronizedList(new ArrayList<>());
+    coalescer = new IceCandidateCoalescer(new SimpleMeterRegistry(), 15, scheduler);
+
+    lenient()
+        .when(scheduler.schedule(any(Runnable.class), anyLong(), any()))
+        .thenAnswer(
+            inv -> {
+              scheduledFlushes.add(inv.getArgument(0));
+              return null;
+            });
+    lenient().when(target.getId()).thenReturn("ws-1");
+    lenient().when(target.isOpen()).thenReturn(true);
+    lenient().when(target.outboundLock()).thenReturn(outboundLock);
+    lenient()
+        .doAnswer(inv -> record(inv.getArgument(0)))
+        .when(target)
+        .send(any(OutboundFrame.class));
+  }
+
+  @Test
+  void add_shouldSendCandidatesWithinWindowAsOneFrame() {
+    // Given
+    coalescer.add(target, "user-1", candidate("a"));
+    coalescer.add(target, "user-2", candidate("b"));
+    coalescer.add(target, "user-1", candidate("c"));
+    assertTrue(sent.isEmpty());
+
+    // When
+    runScheduledFlushes();
+
+    // Then
+    verify(scheduler).schedule(any(Runnable.class), eq(15L), eq(TimeUnit.MILLISECONDS));
+    assertEquals(1, sent.size());
+    JsonNode frame = sent.get(0);
+    assertEquals("ice-candidates", frame.get("type").asText());
+    assertEquals(3, frame.get("candidates").size());
+    assertEquals("user-2", frame.get("candidates").get(1).get("fromUserId").asText());
+    assertEquals("c", frame.get("candidates").get(2).get("data").get("candidate").asText());
+  }
+
+  @Test
+  void flushThenSend_shouldSendPendingBatchBeforeFrame() throws Exception {
+    // Given
+    coalescer.add(target, "user-1", candidate("a"));
+
+    // When
+    coalescer.flushThenSend(target, offer());
+    coalescer.add(target, "user-1", candidate("b"));
+
+    // Then - the first window's timer must not cut the second batch short
+    assertEquals(List.of("ice-candidates", "offer"), sentTypes());
+    scheduledFlushes.get(0).run();
+    assertEquals(2, sent.size());
+    scheduledFlushes.get(1).run();
+    assertEquals(3, sent.size());
+    assertEquals("b", sent.get(2).get("candidates").get(0).get("data").get("candidate").asText());
+  }
+
+  @Test
+  void flushThenSend_shouldWaitForWindowFlushInProgress() throws Exception {
+    // Given - the window closes and its flush stalls while queueing the batch
+    coalescer.add(target, "user-1", candidate("a"));
+    CountDownLatch queueing = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    doAnswer(
+            inv -> {
+              OutboundFrame frame = inv.getArgument(0);
+              if ("ice-candidates".equals(frame.getType())) {
+                queueing.countDown();
+                resume.await();
+              }
+              return record(frame);
+            })
+        .when(target)
+        .send(any(OutboundFrame.class));
+    Thread window = new Thread(scheduledFlushes.get(0));
+    window.start();
+    assertTrue(queueing.await(5, TimeUnit.SECONDS));
+
+    // When - an offer arrives meanwhile
+    Thread handler =
+        new Thread(
+            () -> {
+              try {
+                coalescer.flushThenSend(target, offer());
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    handler.start();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!outboundLock.hasQueuedThread(handler) && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+    assertTrue(outboundLock.hasQueuedThread(handler));
+    resume.countDown();
+    window.join(5000);
+    handler.join(5000);
+
+    // Then - the candidates still go out first
+    assertEquals(List.of("ice-candidates", "offer"), sentTypes());
+  }
+
+  @Test
+  void discard_shouldDropPendingBatch() {
+    // Given
+    coalescer.add(target, "user-1", candidate("a"));
+
+    // When
+    coalescer.discard(target);
+    runScheduledFlushes();
+
+    // Then
+    assertTrue(sent.isEmpty());
+  }
+
+  private boolean record(OutboundFrame frame) throws Exception {
+    String json = (String) frame.encodedFor(codecs.json()).getPayload();
+    sent.add(objectMapper.readTree(json));
+    return true;
+  }
+
+  private OutboundFrame offer() {
+    return OutboundFrame.relay("offer", "user-1", candidate("sdp"));
+  }
+
+  private List<String> sentTypes() {
+    return sent.stream().map(frame -> frame.get("type").asText()).toList();
+  }
+
+  private RawValue candidate(String candidate) {
+    try {
+      return codecs
+          .json()
+          .read(
+              new TextMessage(
+                  "{\"type\":\"ice-candidate\",\"data\":{\"candidate\":\"" + candidate + "\"}}"))
+          .data();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void runScheduledFlushes() {
+    List<Runnable> flushes = new ArrayList<>(scheduledFlushes);
+    scheduledFlushes.clear();
+    flushes.forEach(Runnable::run);
+  }
+}
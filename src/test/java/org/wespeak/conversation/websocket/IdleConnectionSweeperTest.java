@@ -0,0 +1,137 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+@ExtendWith(MockitoExtension.class)
+class IdleConnectionSweeperTest {
+
+  @Mock private WebSocketSession session;
+  @Mock private ScheduledExecutorService scheduler;
+
+  private final SignalingCodecs codecs = new SignalingCodecs(new ObjectMapper());
+
+  private long now;
+  private SimpleMeterRegistry meterRegistry;
+  private IdleConnectionSweeper sweeper;
+  private SignalingConnection connection;
+  private List<SignalingConnection> evicted;
+  private Executor evictor;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(session.getId()).thenReturn("ws-1");
+    lenient().when(session.isOpen()).thenReturn(true);
+
+    meterRegistry = new SimpleMeterRegistry();
+    evictor = Runnable::run;
+    sweeper =
+        new IdleConnectionSweeper(
+            meterRegistry, 3000, 9000, 1000, () -> now, scheduler, task -> evictor.execute(task));
+    evicted = new ArrayList<>();
+    sweeper.onIdle(evicted::add);
+
+    OutboundQueueManager manager =
+        new OutboundQueueManager(
+            meterRegistry, 16, OverflowPolicy.CLOSE_SLOW_CONSUMER, Runnable::run);
+    connection = manager.open(session, codecs.json());
+    sweeper.register(connection);
+  }
+
+  @Test
+  void tick_shouldPingQuietConnectionAndEvictItAfterIdleTimeout() throws Exception {
+    // When
+    advanceSeconds(3);
+
+    // Then
+    verify(session).sendMessage(any(PingMessage.class));
+    assertTrue(evicted.isEmpty());
+
+    // When
+    advanceSeconds(6);
+
+    // Then
+    assertEquals(List.of(connection), evicted);
+    assertEquals(1.0, meterRegistry.get("signaling.idle.evicted").counter().count());
+  }
+
+  @Test
+  void tick_shouldHandEvictionsToTheEvictor() {
+    // Given - an evictor that holds tasks until run
+    List<Runnable> pending = new ArrayList<>();
+    evictor = pending::add;
+
+    // When
+    advanceSeconds(9);
+
+    // Then - the tick only collected the connection
+    assertTrue(evicted.isEmpty());
+    assertEquals(1, pending.size());
+
+    // When
+    pending.forEach(Runnable::run);
+
+    // Then
+    assertEquals(List.of(connection), evicted);
+  }
+
+  @Test
+  void tick_shouldKeepConnectionThatKeepsTalking() throws Exception {
+    // When - a frame every two seconds
+    for (int i = 0; i < 10; i++) {
+      advanceSeconds(2);
+      sweeper.touch(connection);
+    }
+
+    // Then
+    verify(session, never()).sendMessage(any());
+    assertTrue(evicted.isEmpty());
+  }
+
+  @Test
+  void tick_shouldKeepConnectionThatAnswersPings() throws Exception {
+    // When - pinged at 3s, pong arrives right away
+    advanceSeconds(3);
+    sweeper.touch(connection);
+    advanceSeconds(6);
+
+    // Then - pinged again once the pong is a heartbeat old, but not evicted
+    verify(session, times(2)).sendMessage(any(PingMessage.class));
+    assertTrue(evicted.isEmpty());
+  }
+
+  @Test
+  void tick_shouldDropClosedConnections() {
+    // Given
+    when(session.isOpen()).thenReturn(false);
+
+    // When
+    advanceSeconds(20);
+
+    // Then
+    assertTrue(evicted.isEmpty());
+  }
+
+  private void advanceSeconds(int seconds) {
+    for (int i = 0; i < seconds; i++) {
+      now += TimeUnit.SECONDS.toNanos(1);
+      sweeper.tick();
+    }
+  }
+}
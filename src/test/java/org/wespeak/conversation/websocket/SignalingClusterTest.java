@@ -0,0 +1,155 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.wespeak.conversation.websocket.SignalingMessages.MediaStateChanged;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantJoined;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantLeft;
+import org.wespeak.conversation.websocket.SignalingMessages.ParticipantState;
+import org.wespeak.conversation.websocket.SignalingMessages.SessionEnded;
+
+class SignalingClusterTest {
+
+  private final SignalingCodecs codecs = new SignalingCodecs(new ObjectMapper());
+
+  private SimpleMeterRegistry meterRegistryB;
+  private SignalingCluster nodeA;
+  private SignalingCluster nodeB;
+  private List<RelayEnvelope> receivedByA;
+  private List<RelayEnvelope> receivedByB;
+
+  @BeforeEach
+  void setUp() {
+    LoopbackSignalingRelay.Bus bus = new LoopbackSignalingRelay.Bus();
+    meterRegistryB = new SimpleMeterRegistry();
+    nodeA =
+        new SignalingCluster(
+            new LoopbackSignalingRelay("node-a", bus), codecs, new SimpleMeterRegistry());
+    nodeB = new SignalingCluster(new LoopbackSignalingRelay("node-b", bus), codecs, meterRegistryB);
+
+    receivedByA = new ArrayList<>();
+    receivedByB = new ArrayList<>();
+    nodeA.subscribe(receivedByA::add);
+    nodeB.subscribe(receivedByB::add);
+  }
+
+  @Test
+  void sendToUser_shouldReachOtherNodesOnly() throws Exception {
+    // Given - bob is connected to node B
+    join(nodeB, "session-1", "bob");
+    receivedByA.clear();
+    RawValue data =
+        codecs
+            .json()
+            .read(
+                new TextMessage(
+                    "{\"type\":\"offer\",\"data\":{\"sdp\":\"v=0\"}}"))
+            .data();
+
+    // When
+    nodeA.sendToUser("session-1", "bob", OutboundFrame.relay("offer", "alice", data));
+
+    // Then
+    assertTrue(receivedByA.isEmpty());
+    assertEquals(1, receivedByB.size());
+    RelayEnvelope envelope = receivedByB.get(0);
+    assertEquals("node-a", envelope.originNodeId());
+    assertEquals("bob", envelope.targetUserId());
+    assertEquals(
+        "{\"type\":\"offer\",\"fromUserId\":\"alice\",\"data\":{\"sdp\":\"v=0\"}}",
+        envelope.payload());
+    assertEquals(1, meterRegistryB.get("signaling.relay.latency").timer().count());
+  }
+
+  @Test
+  void sendToUser_shouldNotPublishWhenNoOtherNodeHasMembers() throws Exception {
+    // Given
+    RawValue data =
+        codecs.json().read(new TextMessage("{\"type\":\"offer\",\"data\":{}}")).data();
+
+    // When
+    nodeA.sendToUser("session-1", "bob", OutboundFrame.relay("offer", "alice", data));
+    nodeA.broadcast(
+        "session-1", "alice", OutboundFrame.of(new MediaStateChanged("alice", false, true)));
+
+    // Then
+    assertTrue(receivedByB.isEmpty());
+  }
+
+  @Test
+  void presence_shouldBePublishedEvenWithoutRemoteMembers() throws Exception {
+    // When
+    ParticipantState alice = new ParticipantState("alice", "Alice", true, true);
+    nodeA.broadcast("session-1", "alice", OutboundFrame.of(new ParticipantJoined(alice)));
+    nodeA.broadcast("session-1", null, OutboundFrame.of(new SessionEnded()));
+
+    // Then
+    assertEquals(
+        List.of(ParticipantJoined.TYPE, SessionEnded.TYPE),
+        receivedByB.stream().map(RelayEnvelope::type).toList());
+  }
+
+  @Test
+  void onRemoteJoin_shouldLetMembersHereCatchUpTheJoiner() throws Exception {
+    // Given - alice on node A turned her camera off while nobody else was in the room
+    ParticipantState alice = new ParticipantState("alice", "Alice", true, true);
+    nodeA.broadcast("session-1", "alice", OutboundFrame.of(new ParticipantJoined(alice)));
+    nodeA.broadcast(
+        "session-1", "alice", OutboundFrame.of(new MediaStateChanged("alice", false, true)));
+    nodeA.onRemoteJoin(
+        (sessionId, userId) -> {
+          try {
+            nodeA.sendToUser(
+                sessionId, userId, OutboundFrame.of(new MediaStateChanged("alice", false, true)));
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+
+    // When
+    join(nodeB, "session-1", "bob");
+
+    // Then
+    assertEquals(
+        List.of(new ParticipantState("alice", "Alice", false, true)),
+        List.copyOf(nodeB.remoteMembers("session-1")));
+  }
+
+  @Test
+  void broadcasts_shouldTrackRemotePresence() throws Exception {
+    // Given - bob is connected to node B, so node A relays media changes too
+    join(nodeB, "session-1", "bob");
+
+    // When
+    ParticipantState alice = new ParticipantState("alice", "Alice", true, true);
+    nodeA.broadcast("session-1", "alice", OutboundFrame.of(new ParticipantJoined(alice)));
+    nodeA.broadcast(
+        "session-1", "alice", OutboundFrame.of(new MediaStateChanged("alice", false, true)));
+
+    // Then
+    assertEquals(
+        List.of(new ParticipantState("alice", "Alice", false, true)),
+        List.copyOf(nodeB.remoteMembers("session-1")));
+    assertTrue(
+        nodeA.remoteMembers("session-1").stream().noneMatch(m -> m.userId().equals("alice")));
+
+    // When
+    nodeA.broadcast("session-1", "alice", OutboundFrame.of(new ParticipantLeft("alice")));
+
+    // Then
+    assertTrue(nodeB.remoteMembers("session-1").isEmpty());
+  }
+
+  private static void join(SignalingCluster node, String sessionId, String userId)
+      throws Exception {
+    ParticipantState state = new ParticipantState(userId, userId, true, true);
+    node.broadcast(sessionId, userId, OutboundFrame.of(new ParticipantJoined(state)));
+  }
+}
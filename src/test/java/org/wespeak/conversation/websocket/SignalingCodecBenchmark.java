@@ -0,0 +1,136 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketMessage;
+import org.wespeak.conversation.BenchmarkSupport;
+import org.wespeak.conversation.config.JacksonConfig;
+import org.wespeak.conversation.websocket.SignalingMessages.Inbound;
+
+/**
+ * Bytes on the wire and read cost of text JSON versus binary CBOR signaling frames, and of the
+ * streaming read versus a full tree parse, plus the cost of relaying the result to a peer.
+ */
+@Tag("benchmark")
+class SignalingCodecBenchmark {
+
+  private final SignalingCodecs codecs = new SignalingCodecs(new JacksonConfig().objectMapper());
+
+  private long sink;
+
+  @Test
+  void jsonVersusCbor() throws Exception {
+    Map<String, Map<String, Object>> messages = new LinkedHashMap<>();
+    messages.put("offer", relay("offer", Map.of("type", "offer", "sdp", sdp())));
+    messages.put(
+        "ice-candidate",
+        relay(
+            "ice-candidate",
+            Map.of(
+                "candidate",
+                "candidate:842163049 1 udp 1677729535 203.0.113.7 46154 typ srflx raddr"
+                    + " 192.168.1.23 rport 46154 generation 0 ufrag EsAw network-cost 999",
+                "sdpMid",
+                "0",
+                "sdpMLineIndex",
+                0)));
+    messages.put(
+        "media-state",
+        Map.of("type", "media-state", "cameraEnabled", false, "micEnabled", true));
+
+    System.out.printf(
+        "%-14s %-5s %8s %12s %12s %14s %14s%n",
+        "message",
+        "fmt",
+        "bytes",
+        "tree ns/op",
+        "read ns/op",
+        "read B/op",
+        "relay B/op");
+
+    for (Map.Entry<String, Map<String, Object>> entry : messages.entrySet()) {
+      WebSocketMessage<?> json = codecs.json().encode(entry.getValue());
+      WebSocketMessage<?> cbor = codecs.cbor().encode(entry.getValue());
+
+      report(entry.getKey(), codecs.json(), json);
+      report(entry.getKey(), codecs.cbor(), cbor);
+
+      Inbound fromJson = codecs.json().read(json);
+      Inbound fromCbor = codecs.cbor().read(cbor);
+      assertEquals(fromJson.type(), fromCbor.type());
+      assertEquals(fromJson.targetUserId(), fromCbor.targetUserId());
+      assertTrue(cbor.getPayloadLength() <= json.getPayloadLength());
+    }
+    assertTrue(sink > 0);
+  }
+
+  private void report(String name, SignalingCodec codec, WebSocketMessage<?> message)
+      throws Exception {
+    byte[] payload =
+        codec.isBinary()
+            ? ((ByteBuffer) message.getPayload()).array()
+            : ((String) message.getPayload()).getBytes();
+
+    BenchmarkSupport.Result tree =
+        BenchmarkSupport.measure(
+            20_000, 100_000, () -> sink += codec.getMapper().readTree(payload).size());
+    BenchmarkSupport.Result read =
+        BenchmarkSupport.measure(20_000, 100_000, () -> sink += codec.read(message).hashCode());
+    BenchmarkSupport.Result relay =
+        BenchmarkSupport.measure(
+            20_000,
+            100_000,
+            () -> {
+              Inbound inbound = codec.read(message);
+              if (inbound.data() != null) {
+                OutboundFrame frame = OutboundFrame.relay(inbound.type(), "sender", inbound.data());
+                sink += frame.encodedFor(codec).getPayloadLength();
+              }
+            });
+
+    System.out.printf(
+        "%-14s %-5s %8d %12.0f %12.0f %14.0f %14.0f%n",
+        name,
+        codec.isBinary() ? "cbor" : "json",
+        message.getPayloadLength(),
+        tree.nanosPerOp(),
+        read.nanosPerOp(),
+        read.bytesPerOp(),
+        relay.bytesPerOp());
+  }
+
+  private static Map<String, Object> relay(String type, Map<String, Object> data) {
+    return Map.of(
+        "type", type, "targetUserId", "3f1b8c2e-5d7a-4e0b-9c61-2a8f4d9e7b10", "data", data);
+  }
+
+  private static String sdp() {
+    StringBuilder sdp =
+        new StringBuilder(
+            "v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n"
+                + "a=group:BUNDLE 0 1\r\na=msid-semantic: WMS stream\r\n");
+    String[] mediaLines = {"audio 9 UDP/TLS/RTP/SAVPF 111", "video 9 UDP/TLS/RTP/SAVPF 96"};
+    for (String media : mediaLines) {
+      sdp.append("m=")
+          .append(media)
+          .append("\r\nc=IN IP4 0.0.0.0\r\na=rtcp:9 IN IP4 0.0.0.0\r\n")
+          .append("a=ice-ufrag:EsAw\r\na=ice-pwd:P2uYro0UCOQ4zxjKXaWCBui1\r\n")
+          .append("a=fingerprint:sha-256 D1:2C:BE:AD:C4:F6:64:5C:25:16:11:9C:AF:E7:0F:73:")
+          .append("79:36:4E:9C:1E:15:54:39:0C:06:8B:ED:96:86:00:39\r\n")
+          .append("a=setup:actpass\r\na=sendrecv\r\na=rtcp-mux\r\n");
+      for (int pt = 96; pt < 110; pt++) {
+        sdp.append("a=rtpmap:")
+            .append(pt)
+            .append(" VP8/90000\r\na=rtcp-fb:")
+            .append(pt)
+            .append(" nack pli\r\n");
+      }
+    }
+    return sdp.toString();
+  }
+}
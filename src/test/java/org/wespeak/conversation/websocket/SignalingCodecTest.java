@@ -0,0 +1,108 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.wespeak.conversation.websocket.SignalingMessages.Inbound;
+import org.wespeak.conversation.websocket.SignalingMessages.RoomState;
+
+class SignalingCodecTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SignalingCodecs codecs = new SignalingCodecs(objectMapper);
+
+  @Test
+  void read_shouldExtractDispatchFieldsAndCaptureData() throws Exception {
+    // Given
+    String payload =
+        "{\"type\":\"offer\",\"extra\":{\"ignored\":[1,2]},\"targetUserId\":\"user-2\","
+            + "\"data\":{\"type\":\"offer\",\"sdp\":\"v=0\"}}";
+
+    // When
+    Inbound inbound = codecs.json().read(new TextMessage(payload));
+
+    // Then
+    assertEquals("offer", inbound.type());
+    assertEquals("user-2", inbound.targetUserId());
+    assertNull(inbound.sessionId());
+    assertEquals(
+        "{\"type\":\"offer\",\"sdp\":\"v=0\"}",
+        payload.substring(inbound.data().start(), inbound.data().end()));
+  }
+
+  @Test
+  void read_shouldReadMediaStateFlags() throws Exception {
+    // Given
+    TextMessage message =
+        new TextMessage("{\"type\":\"media-state\",\"cameraEnabled\":false,\"micEnabled\":true}");
+
+    // When
+    Inbound inbound = codecs.json().read(message);
+
+    // Then
+    assertEquals(Boolean.FALSE, inbound.cameraEnabled());
+    assertEquals(Boolean.TRUE, inbound.micEnabled());
+    assertNull(inbound.data());
+  }
+
+  @Test
+  void relay_shouldSpliceDataIntoTextFrame() throws Exception {
+    // Given
+    Inbound inbound =
+        codecs
+            .json()
+            .read(
+                new TextMessage(
+                    "{\"type\":\"ice-candidate\",\"targetUserId\":\"user-2\","
+                        + "\"data\":{\"candidate\":\"candidate:1 1 udp 1 10.0.0.1 9 typ host\"}}"));
+
+    // When
+    WebSocketMessage<?> frame =
+        OutboundFrame.relay(inbound.type(), "user-1", inbound.data()).encodedFor(codecs.json());
+
+    // Then
+    assertEquals(
+        "{\"type\":\"ice-candidate\",\"fromUserId\":\"user-1\","
+            + "\"data\":{\"candidate\":\"candidate:1 1 udp 1 10.0.0.1 9 typ host\"}}",
+        frame.getPayload());
+  }
+
+  @Test
+  void relay_shouldTranscodeDataBetweenFormats() throws Exception {
+    // Given
+    Map<String, Object> data = Map.of("type", "answer", "sdp", "v=0", "lines", List.of(1, 2, 3));
+    WebSocketMessage<?> cbor =
+        codecs.cbor().encode(Map.of("type", "answer", "targetUserId", "user-2", "data", data));
+    Inbound inbound = codecs.cbor().read(cbor);
+
+    // When
+    OutboundFrame frame = OutboundFrame.relay(inbound.type(), "user-1", inbound.data());
+    JsonNode asJson = objectMapper.readTree((String) frame.encodedFor(codecs.json()).getPayload());
+    JsonNode asCbor =
+        codecs
+            .cbor()
+            .getMapper()
+            .readTree(((ByteBuffer) frame.encodedFor(codecs.cbor()).getPayload()).array());
+
+    // Then
+    assertEquals(objectMapper.valueToTree(data), asJson.get("data"));
+    assertEquals(asJson, asCbor);
+    assertEquals("user-1", asJson.get("fromUserId").asText());
+  }
+
+  @Test
+  void encode_shouldWriteTypeFirst() throws Exception {
+    // When
+    WebSocketMessage<?> frame = codecs.json().encode(new RoomState(List.of()));
+
+    // Then
+    assertEquals("{\"type\":\"room-state\",\"participants\":[]}", frame.getPayload());
+  }
+}
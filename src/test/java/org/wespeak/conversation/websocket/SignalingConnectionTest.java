@@ -0,0 +1,158 @@
+package org.wespeak.conversation.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+@ExtendWith(MockitoExtension.class)
+class SignalingConnectionTest {
+
+  @Mock private WebSocketSession session;
+
+  private final SignalingCodecs codecs = new SignalingCodecs(new ObjectMapper());
+
+  private SimpleMeterRegistry meterRegistry;
+  private Queue<Runnable> pendingDrains;
+  private List<String> written;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    pendingDrains = new ArrayDeque<>();
+    written = new ArrayList<>();
+
+    lenient().when(session.getId()).thenReturn("ws-1");
+    lenient().when(session.isOpen()).thenReturn(true);
+    lenient()
+        .doAnswer(
+            inv -> {
+              WebSocketMessage<?> message = inv.getArgument(0);
+              written.add((String) message.getPayload());
+              return null;
+            })
+        .when(session)
+        .sendMessage(any());
+  }
+
+  @Test
+  void send_shouldDeliverFramesInOrderOnDrainThread() {
+    // Given
+    SignalingConnection connection = connection(4, OverflowPolicy.CLOSE_SLOW_CONSUMER);
+
+    // When
+    connection.send(new TextMessage("a"), "offer");
+    connection.send(new TextMessage("b"), "answer");
+
+    // Then - nothing is written on the caller's thread
+    assertTrue(written.isEmpty());
+    assertEquals(2, connection.queueDepth());
+
+    runDrains();
+    assertEquals(List.of("a", "b"), written);
+    assertEquals(0, connection.queueDepth());
+    assertEquals(0.0, meterRegistry.get("signaling.outbound.queued").gauge().value());
+  }
+
+  @Test
+  void drain_shouldRequeueItselfAfterABatch() {
+    // Given
+    SignalingConnection connection =
+        connection(2 * SignalingConnection.DRAIN_BATCH, OverflowPolicy.CLOSE_SLOW_CONSUMER);
+    for (int i = 0; i <= SignalingConnection.DRAIN_BATCH; i++) {
+      connection.send(new TextMessage("frame-" + i), "ice-candidate");
+    }
+
+    // When
+    pendingDrains.poll().run();
+
+    // Then - the rest waits behind other connections' drains
+    assertEquals(SignalingConnection.DRAIN_BATCH, written.size());
+    assertEquals(1, pendingDrains.size());
+    runDrains();
+    assertEquals(SignalingConnection.DRAIN_BATCH + 1, written.size());
+    assertEquals(0, connection.queueDepth());
+  }
+
+  @Test
+  void send_shouldDropOldestMediaStateWhenFull() throws Exception {
+    // Given
+    SignalingConnection connection = connection(3, OverflowPolicy.DROP_OLDEST_MEDIA_STATE);
+    connection.send(new TextMessage("media-1"), SignalingConnection.MEDIA_STATE_TYPE);
+    connection.send(new TextMessage("offer"), "offer");
+    connection.send(new TextMessage("media-2"), SignalingConnection.MEDIA_STATE_TYPE);
+
+    // When
+    boolean accepted = connection.send(new TextMessage("answer"), "answer");
+
+    // Then
+    assertTrue(accepted);
+    runDrains();
+    assertEquals(List.of("offer", "media-2", "answer"), written);
+    assertEquals(1.0, meterRegistry.get("signaling.outbound.dropped").counter().count());
+    verify(session, never()).close(any());
+  }
+
+  @Test
+  void send_shouldCloseSlowConsumerWhenNothingCanBeDropped() throws Exception {
+    // Given
+    SignalingConnection connection = connection(2, OverflowPolicy.DROP_OLDEST_MEDIA_STATE);
+    connection.send(new TextMessage("offer"), "offer");
+    connection.send(new TextMessage("answer"), "answer");
+
+    // When
+    boolean accepted = connection.send(new TextMessage("ice"), "ice-candidate");
+
+    // Then
+    assertFalse(accepted);
+    assertFalse(connection.isOpen());
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    assertEquals(
+        1.0, meterRegistry.get("signaling.outbound.slow_consumers_closed").counter().count());
+    assertEquals(0.0, meterRegistry.get("signaling.outbound.queued").gauge().value());
+  }
+
+  @Test
+  void closeAfterDrain_shouldCloseOnlyAfterQueuedFramesAreWritten() throws Exception {
+    // Given
+    SignalingConnection connection = connection(4, OverflowPolicy.CLOSE_SLOW_CONSUMER);
+    connection.send(new TextMessage("session-ended"), "session-ended");
+
+    // When
+    connection.closeAfterDrain(CloseStatus.NORMAL);
+
+    // Then
+    verify(session, never()).close(any());
+    runDrains();
+    assertEquals(List.of("session-ended"), written);
+    verify(session).close(CloseStatus.NORMAL);
+  }
+
+  private SignalingConnection connection(int capacity, OverflowPolicy policy) {
+    OutboundQueueManager manager =
+        new OutboundQueueManager(meterRegistry, capacity, policy, pendingDrains::add);
+    return manager.open(session, codecs.json());
+  }
+
+  private void runDrains() {
+    Runnable drain;
+    while ((drain = pendingDrains.poll()) != null) {
+      drain.run();
+    }
+  }
+}